@@ -31,12 +31,15 @@ import org.deltafi.actionkit.action.parameters.EnvVarDefinitionProvider;
 import org.deltafi.actionkit.action.parameters.SchemaGeneratorConfigCustomizer;
 import org.deltafi.actionkit.action.parameters.annotation.Size;
 import org.deltafi.actionkit.action.service.ActionRunner;
+import org.deltafi.actionkit.action.service.ConcurrencyController;
 import org.deltafi.actionkit.action.service.HeartbeatService;
 import org.deltafi.actionkit.lookup.*;
+import org.deltafi.actionkit.metrics.ActionPhaseMetrics;
 import org.deltafi.actionkit.properties.ActionsProperties;
 import org.deltafi.actionkit.registration.PluginRegistrar;
 import org.deltafi.actionkit.service.ActionEventQueue;
 import org.deltafi.actionkit.service.HostnameService;
+import org.deltafi.actionkit.service.ResultPublisher;
 import org.deltafi.common.action.EventQueueProperties;
 import org.deltafi.common.graphql.dgs.GraphQLClientFactory;
 import org.deltafi.common.http.HttpService;
@@ -44,9 +47,11 @@ import org.deltafi.actionkit.lookup.LookupTableClient;
 import org.deltafi.actionkit.lookup.LookupTableSupplier;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.common.ssl.SslAutoConfiguration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.context.ApplicationContext;
@@ -58,6 +63,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import javax.annotation.Nullable;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.*;
 
 @AutoConfiguration
@@ -76,9 +82,11 @@ public class ActionKitAutoConfiguration {
     public ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue(ActionsProperties actionsProperties,
             EventQueueProperties eventQueueProperties, List<Action<?, ?, ?>> actions,
             List<LookupTableSupplier> lookupTableSuppliers) throws URISyntaxException {
-        // Calculate the total number of threads for all actions
+        // Calculate the total number of threads for all actions, actions on virtual threads need one connection for
+        // their dispatcher and share one for writing results
         int totalThreads = actions.stream()
-                .mapToInt(action -> actionsProperties.getActionThreads().getOrDefault(action.getClassCanonicalName(), 1))
+                .mapToInt(action -> actionsProperties.getVirtualThreadConcurrency().getOrDefault(action.getClassCanonicalName(), 0) > 0 ?
+                        2 : actionsProperties.getActionThreads().getOrDefault(action.getClassCanonicalName(), 1))
                 .sum();
 
         // Add one thread to handle all lookup table suppliers
@@ -93,8 +101,13 @@ public class ActionKitAutoConfiguration {
     }
 
     @Bean
-    public ActionEventQueue actionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue) {
-        return new ActionEventQueue(valkeyKeyedBlockingQueue);
+    public ActionEventQueue actionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue,
+            ActionsProperties actionsProperties) {
+        ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue,
+                actionsProperties.getResultBatchSize(), Duration.ofMillis(actionsProperties.getResultBatchWindowMs()),
+                actionsProperties.isResultBatchWaitForFlush());
+        return new ActionEventQueue(valkeyKeyedBlockingQueue, actionsProperties.getQueuePayloadFormat(),
+                actionsProperties.getQueueCompressionThreshold(), resultPublisher);
     }
 
     @Bean
@@ -121,6 +134,19 @@ public class ActionKitAutoConfiguration {
         return new HeartbeatService();
     }
 
+    @Bean
+    public ConcurrencyController concurrencyController() {
+        return new ConcurrencyController();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "actions", name = "phase-metrics", havingValue = "true")
+    public ActionPhaseMetrics actionPhaseMetrics(
+            @Value("${VICTORIAMETRICS_HOST:deltafi-victoriametrics}") String victoriametricsHost,
+            @Value("${VICTORIAMETRICS_PORT:2003}") int victoriametricsPort, HostnameService hostnameService) {
+        return new ActionPhaseMetrics(victoriametricsHost, victoriametricsPort, hostnameService.getHostname());
+    }
+
     @Bean
     public SchemaGenerator parametersSchemaGenerator(@Nullable SchemaGeneratorConfigCustomizer schemaGeneratorCustomizer) {
         SchemaGeneratorConfigBuilder configBuilder =
@@ -20,18 +20,23 @@ package org.deltafi.actionkit.action;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.deltafi.actionkit.action.error.ErrorResult;
 import org.deltafi.actionkit.action.parameters.ActionParameters;
 import org.deltafi.actionkit.action.parameters.DataSizeModule;
+import org.deltafi.actionkit.metrics.ActionPhase;
+import org.deltafi.actionkit.metrics.ActionPhaseMetrics;
 import org.deltafi.common.types.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Base class for all DeltaFi Actions.  No action should directly extend this class, but should use
@@ -57,11 +62,23 @@ public abstract class Action<I, P extends ActionParameters, R extends ResultType
     @Setter
     public String appName;
 
-    private ActionExecution actionExecution = null;
+    // executions in progress keyed by the thread running them, one instance runs several at once on virtual threads
+    @Getter(AccessLevel.NONE)
+    private final Map<Thread, ActionExecution> actionExecutions = new ConcurrentHashMap<>();
 
     @Setter
     private int threadNum = 0;
 
+    // last converted parameters keyed by flow and action name, reused while the raw parameters are unchanged when the
+    // action opts in with reusesParams
+    @Getter(AccessLevel.NONE)
+    private final Map<String, ConvertedParams<P>> convertedParams = new ConcurrentHashMap<>();
+
+    // times parameter conversion when phase metrics are enabled
+    @Getter(AccessLevel.NONE)
+    @Setter
+    private ActionPhaseMetrics phaseMetrics;
+
     public Action(ActionType actionType, String description) {
         this(actionType, ActionOptions.builder().description(description).build());
     }
@@ -127,27 +144,92 @@ public abstract class Action<I, P extends ActionParameters, R extends ResultType
                     actionInput.getActionContext().getDid());
         }
 
-        actionExecution = new ActionExecution(getClassCanonicalName(), actionInput.getActionContext().getActionName(),
-                threadNum, actionInput.getActionContext().getDid(), OffsetDateTime.now(), appName);
+        actionExecutions.put(Thread.currentThread(), new ActionExecution(getClassCanonicalName(),
+                actionInput.getActionContext().getActionName(), threadNum, actionInput.getActionContext().getDid(),
+                OffsetDateTime.now(), appName));
 
         if (actionInput.getActionContext().getJoin() != null) {
             return executeJoinAction(actionInput);
         }
 
         return execute(actionInput.getActionContext(), buildInput(actionInput.getActionContext(),
-                actionInput.getDeltaFileMessages().getFirst()), convertToParams(actionInput.getActionParams()));
+                actionInput.getDeltaFileMessages().getFirst()), convertToParams(actionInput.getActionContext(), actionInput.getActionParams()));
     }
 
     protected P convertToParams(@NotNull Map<String, Object> params) {
         return OBJECT_MAPPER.convertValue(params, paramClass);
     }
 
+    /**
+     * Whether converted parameters are reused across executions while the raw parameters for the flow and action are
+     * unchanged. Reused parameters are shared by concurrent executions, so only override this to return true when the
+     * action never modifies its parameters.
+     * @return true to reuse converted parameters, false to convert them for every execution
+     */
+    protected boolean reusesParams() {
+        return false;
+    }
+
+    /**
+     * Convert the raw parameters for the flow and action in the context. When the action opts in with
+     * {@link #reusesParams()}, the previous conversion is returned while the raw parameters have not changed.
+     * @param context the context of the execution
+     * @param params the raw parameters from the action input, may be null
+     * @return the converted parameters
+     */
+    protected P convertToParams(@NotNull ActionContext context, Map<String, Object> params) {
+        if (phaseMetrics == null) {
+            return convertOrReuseParams(context, params);
+        }
+
+        long start = System.nanoTime();
+        P converted = convertOrReuseParams(context, params);
+        phaseMetrics.recordNanos(getClassCanonicalName(), ActionPhase.PARAMETER_CONVERSION, System.nanoTime() - start);
+        return converted;
+    }
+
+    private P convertOrReuseParams(ActionContext context, Map<String, Object> params) {
+        if (params == null) {
+            return convertToParams(Map.of());
+        }
+
+        if (!reusesParams()) {
+            return convertToParams(params);
+        }
+
+        String key = context.getFlowName() + "." + context.getActionName();
+        ConvertedParams<P> cached = convertedParams.get(key);
+        if (cached != null && cached.matches(params)) {
+            return cached.params();
+        }
+
+        P converted = convertToParams(params);
+        convertedParams.put(key, new ConvertedParams<>(params.hashCode(), params, converted));
+        return converted;
+    }
+
     public R executeJoinAction(@NotNull ActionInput actionInput) {
         throw new UnsupportedOperationException("Join is not supported for " + getClassCanonicalName());
     }
 
+    /**
+     * Get the execution in progress on the calling thread
+     * @return the execution or null if the calling thread is not executing this action
+     */
+    public ActionExecution getActionExecution() {
+        return actionExecutions.get(Thread.currentThread());
+    }
+
+    /**
+     * Get all executions of this action instance that are in progress
+     * @return the executions in progress
+     */
+    public List<ActionExecution> getActionExecutions() {
+        return List.copyOf(actionExecutions.values());
+    }
+
     public void clearActionExecution() {
-        actionExecution = null;
+        actionExecutions.remove(Thread.currentThread());
     }
 
     /**
@@ -157,4 +239,10 @@ public abstract class Action<I, P extends ActionParameters, R extends ResultType
     public String getClassCanonicalName() {
         return getClass().getCanonicalName();
     }
+
+    private record ConvertedParams<P>(int hash, Map<String, Object> raw, P params) {
+        boolean matches(Map<String, Object> other) {
+            return hash == other.hashCode() && raw.equals(other);
+        }
+    }
 }
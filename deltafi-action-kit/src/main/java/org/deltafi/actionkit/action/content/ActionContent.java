@@ -23,7 +23,6 @@ import org.deltafi.actionkit.action.ActionKitException;
 import org.deltafi.actionkit.action.error.ErrorResultException;
 import org.deltafi.common.content.ContentStorageService;
 import org.deltafi.common.io.Writer;
-import org.deltafi.common.io.WriterPipedInputStream;
 import org.deltafi.common.storage.s3.ObjectStorageException;
 import org.deltafi.common.types.ActionContext;
 import org.deltafi.common.types.Content;
@@ -33,8 +32,6 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Slf4j
 public class ActionContent {
@@ -96,11 +93,9 @@ public class ActionContent {
         }
     }
 
-    private static final ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool();
-
     /**
-     * Save content to content storage and return the new ActionContent. This method calls the supplied Writer from a
-     * separate thread to stream content to content storage.
+     * Save content to content storage and return the new ActionContent. The supplied Writer is called on the calling
+     * thread and its output is streamed to content storage as it is written.
      *
      * @param context The ActionContext from the current input being processed
      * @param writer a Writer that produces the content to be stored
@@ -109,9 +104,10 @@ public class ActionContent {
      * @return The ActionContent that was stored
      */
     public static ActionContent saveContent(ActionContext context, Writer writer, String name, String mediaType) {
-        try (WriterPipedInputStream writerPipedInputStream = WriterPipedInputStream.create(writer, EXECUTOR_SERVICE)) {
-            return saveContent(context, writerPipedInputStream, name, mediaType);
-        } catch (IOException e) {
+        try {
+            return new ActionContent(context.getContentStorageService().save(context.getDid(), writer, name, mediaType),
+                    context.getContentStorageService());
+        } catch (ObjectStorageException e) {
             throw new ErrorResultException("Unable to write content",
                     "An error occurred when trying to save content: " + name, e);
         }
@@ -30,11 +30,15 @@ import org.deltafi.actionkit.action.filter.FilterResultException;
 import org.deltafi.actionkit.exception.ExpectedContentException;
 import org.deltafi.actionkit.exception.MissingMetadataException;
 import org.deltafi.actionkit.exception.StartupException;
+import org.deltafi.actionkit.metrics.ActionPhase;
+import org.deltafi.actionkit.metrics.ActionPhaseMetrics;
 import org.deltafi.actionkit.properties.ActionsProperties;
 import org.deltafi.actionkit.service.ActionEventQueue;
+import org.deltafi.actionkit.service.ActionEventQueue.QueuedAction;
 import org.deltafi.actionkit.service.HostnameService;
 import org.deltafi.common.content.ActionContentStorageService;
 import org.deltafi.common.content.ContentStorageService;
+import org.deltafi.common.content.SegmentCache;
 import org.deltafi.common.types.ActionContext;
 import org.deltafi.common.types.ActionEvent;
 import org.deltafi.common.types.ActionInput;
@@ -52,8 +56,10 @@ import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -85,7 +91,20 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
     @Autowired
     private ConfigurableListableBeanFactory beanFactory;
 
+    @Autowired(required = false)
+    private ActionPhaseMetrics actionPhaseMetrics;
+
     private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // concurrency limits of the actions that run a single instance on virtual threads
+    private final Map<String, AdjustableSemaphore> concurrencyLimits = new ConcurrentHashMap<>();
+    // exponentially weighted moving average of the execution time of each action class in milliseconds
+    private final Map<String, Double> averageExecutionMillis = new ConcurrentHashMap<>();
+    // fetches the content of the next buffered input while the current one executes, null when disabled
+    private ContentPrefetcher contentPrefetcher;
+    // deletes unused content in the background, null to delete it on the action thread
+    private OrphanContentDeleter orphanContentDeleter;
 
     @Getter
     private final List<Action<?, ?, ?>> allActions = new ArrayList<>();
@@ -98,6 +117,22 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
      */
     @PostConstruct
     private void initialize() {
+        if (actionsProperties.getContentCacheBytes() > 0) {
+            try {
+                contentStorageService.setSegmentCache(new SegmentCache(Path.of(actionsProperties.getContentCacheDir()),
+                        actionsProperties.getContentCacheBytes()));
+            } catch (IOException e) {
+                throw new StartupException("Failed to create content cache: " + e.getMessage());
+            }
+        }
+        if (actionsProperties.getContentPrefetchBytes() > 0) {
+            contentPrefetcher = new ContentPrefetcher(contentStorageService, virtualExecutor,
+                    actionsProperties.getContentPrefetchBytes());
+        }
+        if (actionsProperties.isAsyncOrphanDeletion()) {
+            orphanContentDeleter = new OrphanContentDeleter(contentStorageService,
+                    actionsProperties.getOrphanDeletionConcurrency(), actionsProperties.getOrphanDeletionBatchSize());
+        }
         registerAdditionalActions();
         startActions();
     }
@@ -105,18 +140,27 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
     private void registerAdditionalActions() {
         for (Action<?, ?, ?> action : singletonActions) {
             action.setAppName(appName);
+            action.setPhaseMetrics(actionPhaseMetrics);
             String actionName = action.getClass().getCanonicalName();
-            int numThreads = actionsProperties.getActionThreads().getOrDefault(actionName, 1);
-
             List<Action<?, ?, ?>> instances = new ArrayList<>();
             instances.add(action);
 
+            int concurrency = actionsProperties.getVirtualThreadConcurrency().getOrDefault(actionName, 0);
+            if (concurrency > 0) {
+                concurrencyLimits.put(actionName, new AdjustableSemaphore(concurrency));
+                allActions.addAll(instances);
+                continue;
+            }
+
+            int numThreads = actionsProperties.getActionThreads().getOrDefault(actionName, 1);
+
             for (int i = 1; i < numThreads; i++) {
                 String beanName = actionName + "#" + i;
                 if (!beanFactory.containsBeanDefinition(beanName)) {
                     Action<?, ?, ?> newInstance = applicationContext.getAutowireCapableBeanFactory().createBean(action.getClass());
                     newInstance.setThreadNum(i);
                     newInstance.setAppName(appName);
+                    newInstance.setPhaseMetrics(actionPhaseMetrics);
                     beanFactory.registerSingleton(beanName, newInstance);
                     instances.add(newInstance);
                 }
@@ -127,8 +171,20 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
 
     private void startActions() {
         for (Action<?, ?, ?> action : allActions) {
-            log.info("Starting action: {} (thread {})", action.getClassCanonicalName(), action.getThreadNum());
-            executor.submit(() -> listen(action, actionsProperties.getActionPollingInitialDelayMs()));
+            AdjustableSemaphore concurrencyLimit = concurrencyLimits.get(action.getClassCanonicalName());
+            if (concurrencyLimit != null) {
+                log.info("Starting action: {} (up to {} virtual threads)", action.getClassCanonicalName(),
+                        concurrencyLimit.getMaxPermits());
+                executor.submit(() -> dispatch(action, concurrencyLimit, actionsProperties.getActionPollingInitialDelayMs()));
+            } else if (contentPrefetcher != null && actionsProperties.getActionQueueBatchSize()
+                    .getOrDefault(action.getClassCanonicalName(), 1) > 1) {
+                log.info("Starting action: {} (thread {}, prefetching content)", action.getClassCanonicalName(),
+                        action.getThreadNum());
+                executor.submit(() -> listenWithPrefetch(action, actionsProperties.getActionPollingInitialDelayMs()));
+            } else {
+                log.info("Starting action: {} (thread {})", action.getClassCanonicalName(), action.getThreadNum());
+                executor.submit(() -> listen(action, actionsProperties.getActionPollingInitialDelayMs()));
+            }
         }
 
         markRunning();
@@ -138,13 +194,14 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
         try {
             Thread.sleep(delayMs);
             ActionContentStorageService actionContentStorageService = new ActionContentStorageService(contentStorageService);
+            int batchSize = actionsProperties.getActionQueueBatchSize().getOrDefault(action.getClassCanonicalName(), 1);
             while (!Thread.currentThread().isInterrupted()) {
                 log.trace("{} listening", action.getClassCanonicalName());
-                ActionInput actionInput = actionEventQueue.takeAction(action.getClassCanonicalName());
-                actionInput.getActionContext().setActionVersion(buildProperties.getVersion());
-                actionInput.getActionContext().setHostname(hostnameService.getHostname());
-                actionInput.getActionContext().setStartTime(OffsetDateTime.now());
-                actionInput.getActionContext().setContentStorageService(actionContentStorageService);
+                ActionInput actionInput = actionEventQueue.takeAction(action.getClassCanonicalName(), batchSize);
+                if (actionInput == null) {
+                    continue;
+                }
+                prepareContext(actionInput.getActionContext(), actionContentStorageService);
                 executeAction(action, actionInput, actionInput.getReturnAddress());
                 actionContentStorageService.clear();
             }
@@ -157,9 +214,188 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
         log.warn("Shutting down action thread: {}", action.getClassCanonicalName());
     }
 
+    /**
+     * Like {@link #listen}, but after taking an action input the next input is taken from the local buffer and its
+     * content is fetched in the background while the current input executes. The next input stays with this thread
+     * and is put back on its queue if the thread stops before executing it.
+     */
+    private void listenWithPrefetch(Action<?, ?, ?> action, long delayMs) {
+        String actionClassName = action.getClassCanonicalName();
+        PrefetchedInput next = null;
+        try {
+            Thread.sleep(delayMs);
+            int batchSize = actionsProperties.getActionQueueBatchSize().getOrDefault(actionClassName, 1);
+            while (!Thread.currentThread().isInterrupted()) {
+                log.trace("{} listening", actionClassName);
+                PrefetchedInput current = next;
+                next = null;
+                if (current == null) {
+                    QueuedAction queuedAction = actionEventQueue.takeQueuedAction(actionClassName, batchSize);
+                    if (queuedAction == null) {
+                        continue;
+                    }
+                    current = prefetch(queuedAction);
+                }
+
+                boolean executing = false;
+                try {
+                    QueuedAction following = actionEventQueue.pollBufferedAction(actionClassName);
+                    if (following != null) {
+                        next = prefetch(following);
+                    }
+
+                    prepareContext(current.actionInput().getActionContext(), current.contentStorageService());
+                    executing = true;
+                    executeAction(action, current.actionInput(), current.actionInput().getReturnAddress());
+                } finally {
+                    contentPrefetcher.release(current.reservedBytes());
+                    if (!executing) {
+                        returnAction(current.queuedAction());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            log.error("Unexpected exception caught at {} thread execution level: ", actionClassName, e);
+            executor.submit(() -> listenWithPrefetch(action, actionsProperties.getActionPollingPeriodMs()));
+        } finally {
+            if (next != null) {
+                contentPrefetcher.release(next.reservedBytes());
+                returnAction(next.queuedAction());
+            }
+        }
+        log.warn("Shutting down action thread: {}", actionClassName);
+    }
+
+    // a failed prefetch leaves the content to be loaded from storage when the action asks for it
+    private PrefetchedInput prefetch(QueuedAction queuedAction) {
+        ActionContentStorageService actionContentStorageService = new ActionContentStorageService(contentStorageService);
+        long reservedBytes = 0;
+        try {
+            reservedBytes = contentPrefetcher.prefetch(queuedAction.actionInput(), actionContentStorageService);
+        } catch (RuntimeException e) {
+            log.warn("Unable to prefetch content of an action input taken from {}", queuedAction.entry().getKey(), e);
+        }
+        return new PrefetchedInput(queuedAction, actionContentStorageService, reservedBytes);
+    }
+
+    private void returnAction(QueuedAction queuedAction) {
+        try {
+            actionEventQueue.returnAction(queuedAction);
+        } catch (Throwable e) {
+            log.error("Unable to return action input for did {}",
+                    queuedAction.actionInput().getActionContext().getDid(), e);
+        }
+    }
+
+    /**
+     * Take action inputs for an action that runs on virtual threads and execute each on its own virtual thread, as
+     * long as a permit is available. The single action instance is shared by all of its executions.
+     */
+    private void dispatch(Action<?, ?, ?> action, AdjustableSemaphore concurrencyLimit, long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+            int batchSize = actionsProperties.getActionQueueBatchSize().getOrDefault(action.getClassCanonicalName(), 1);
+            while (!Thread.currentThread().isInterrupted()) {
+                concurrencyLimit.acquire();
+                QueuedAction queuedAction;
+                try {
+                    queuedAction = actionEventQueue.takeQueuedAction(action.getClassCanonicalName(), batchSize);
+                } catch (Throwable e) {
+                    concurrencyLimit.release();
+                    throw e;
+                }
+                if (queuedAction == null) {
+                    concurrencyLimit.release();
+                    continue;
+                }
+
+                ActionInput actionInput = queuedAction.actionInput();
+                try {
+                    prepareContext(actionInput.getActionContext(),
+                            new ActionContentStorageService(contentStorageService));
+                    virtualExecutor.submit(() -> {
+                        try {
+                            executeAction(action, actionInput, actionInput.getReturnAddress());
+                        } finally {
+                            concurrencyLimit.release();
+                        }
+                    });
+                } catch (Throwable e) {
+                    // the execution never started, so hand the input to another worker
+                    concurrencyLimit.release();
+                    returnAction(queuedAction);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            log.error("Unexpected exception caught at {} dispatcher level: ", action.getClassCanonicalName(), e);
+            executor.submit(() -> dispatch(action, concurrencyLimit, actionsProperties.getActionPollingPeriodMs()));
+        }
+        log.warn("Shutting down action dispatcher: {}", action.getClassCanonicalName());
+    }
+
+    /**
+     * Change the number of concurrent executions of an action that runs on virtual threads. Executions already
+     * running are allowed to finish when the limit is lowered.
+     *
+     * @param actionClassName the canonical class name of the action
+     * @param concurrency the new maximum number of concurrent executions, at least 1
+     * @return false if the action does not run on virtual threads
+     */
+    public boolean setConcurrency(String actionClassName, int concurrency) {
+        AdjustableSemaphore concurrencyLimit = concurrencyLimits.get(actionClassName);
+        if (concurrencyLimit == null) {
+            return false;
+        }
+        concurrencyLimit.setMaxPermits(concurrency);
+        log.info("Set the concurrency of action {} to {}", actionClassName, concurrency);
+        return true;
+    }
+
+    /**
+     * Get the concurrency limits of the actions that run on virtual threads
+     *
+     * @return map of action class names to their maximum number of concurrent executions
+     */
+    public Map<String, Integer> getConcurrency() {
+        Map<String, Integer> concurrency = new HashMap<>();
+        concurrencyLimits.forEach((actionClassName, limit) -> concurrency.put(actionClassName, limit.getMaxPermits()));
+        return concurrency;
+    }
+
+    /**
+     * Get the recent average execution time of an action
+     *
+     * @param actionClassName the canonical class name of the action
+     * @return the average execution time in milliseconds, 0 if the action has not run yet
+     */
+    public double getAverageExecutionMillis(String actionClassName) {
+        return averageExecutionMillis.getOrDefault(actionClassName, 0.0);
+    }
+
+    private void prepareContext(ActionContext context, ActionContentStorageService actionContentStorageService) {
+        context.setActionVersion(buildProperties.getVersion());
+        context.setHostname(hostnameService.getHostname());
+        context.setStartTime(OffsetDateTime.now());
+        context.setContentStorageService(actionContentStorageService);
+        actionContentStorageService.setDeduplicating(actionsProperties.isContentDeduplication());
+    }
+
     void executeAction(Action<?, ?, ?> action, ActionInput actionInput, String returnAddress) {
+        long start = System.nanoTime();
         ActionContext context = actionInput.getActionContext();
         log.trace("Running action {} with input {}", action.getClassCanonicalName(), actionInput);
+        if (actionPhaseMetrics != null) {
+            if (actionInput.getActionCreated() != null) {
+                actionPhaseMetrics.recordNanos(action.getClassCanonicalName(), ActionPhase.QUEUE_WAIT,
+                        Duration.between(actionInput.getActionCreated(), OffsetDateTime.now()).toNanos());
+            }
+            context.getContentStorageService().setMetered(true);
+        }
         ResultType result;
         try (MDC.MDCCloseable ignored = MDC.putCloseable("action", context.getActionName())) {
             result = action.executeAction(actionInput);
@@ -181,15 +417,41 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
             result = new ErrorResult(context, "Action execution exception", e).logErrorTo(log);
         }
 
+        long executed = System.nanoTime();
+        if (actionPhaseMetrics != null) {
+            recordExecution(action.getClassCanonicalName(), context.getContentStorageService(), executed - start);
+        }
+
         ActionEvent event = fromResult(result, context);
+        long cleanupStart = System.nanoTime();
         orphanContentCheck(context, event);
+        long cleanedUp = System.nanoTime();
         action.clearActionExecution();
+        averageExecutionMillis.merge(action.getClassCanonicalName(), (cleanedUp - start) / 1_000_000.0,
+                (average, latest) -> average * 0.8 + latest * 0.2);
 
         try {
             actionEventQueue.putResult(event, returnAddress);
         } catch (Throwable e) {
             log.error("Error sending result to valkey for did {}", context.getDid(), e);
         }
+
+        if (actionPhaseMetrics != null) {
+            actionPhaseMetrics.recordNanos(action.getClassCanonicalName(), ActionPhase.ORPHAN_CLEANUP,
+                    cleanedUp - cleanupStart);
+            actionPhaseMetrics.recordNanos(action.getClassCanonicalName(), ActionPhase.RESULT_PUBLISH,
+                    System.nanoTime() - cleanedUp);
+        }
+    }
+
+    private void recordExecution(String actionClassName, ActionContentStorageService actionContentStorageService,
+            long executeNanos) {
+        actionPhaseMetrics.recordNanos(actionClassName, ActionPhase.EXECUTE, executeNanos);
+        actionPhaseMetrics.recordNanos(actionClassName, ActionPhase.CONTENT_LOAD,
+                actionContentStorageService.getLoadNanos());
+        actionPhaseMetrics.recordContentLoadBytes(actionClassName, actionContentStorageService.getLoadBytes());
+        actionPhaseMetrics.recordNanos(actionClassName, ActionPhase.CONTENT_SAVE,
+                actionContentStorageService.getSaveNanos());
     }
 
     // protect against malformed ResultTypes that result in unexpected exceptions
@@ -203,6 +465,16 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
     }
 
     private void orphanContentCheck(ActionContext context, ActionEvent event) {
+        if (orphanContentDeleter != null) {
+            List<String> unusedObjectNames = context.getContentStorageService().takeUnusedObjectNames(event);
+            if (!unusedObjectNames.isEmpty()) {
+                orphanContentDeleter.delete(unusedObjectNames);
+                log.warn("Queued {} unused content entries for deletion for did {} due to a {} event by {}",
+                        unusedObjectNames.size(), context.getDid(), event.getType(), event.getActionName());
+            }
+            return;
+        }
+
         int count = context.getContentStorageService().deleteUnusedContent(event);
         if (count > 0) {
             log.warn("Deleted {} unused content entries for did {} due to a {} event by {}", count, context.getDid(), event.getType(), event.getActionName());
@@ -236,28 +508,47 @@ public class ActionRunner implements ApplicationListener<ContextClosedEvent> {
 
             // Stop accepting new tasks
             executor.shutdown();
+            virtualExecutor.shutdown();
 
             try {
                 // Wait for existing tasks to complete
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                boolean terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+                terminated &= virtualExecutor.awaitTermination(5, TimeUnit.SECONDS);
+                if (!terminated) {
                     log.warn("Action executor didn't terminate gracefully, forcing shutdown");
                     executor.shutdownNow();
+                    virtualExecutor.shutdownNow();
 
                     // Wait again for forced shutdown
-                    if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+                    terminated &= virtualExecutor.awaitTermination(5, TimeUnit.SECONDS);
+                    if (!terminated) {
                         log.error("Action executor didn't terminate after forced shutdown");
                     }
                 }
-                if (executor.isTerminated()) {
+                if (executor.isTerminated() && virtualExecutor.isTerminated()) {
                     log.info("Action executor shut down successfully");
                 } else {
                     log.error("Action executor didn't terminate");
                 }
+                actionEventQueue.returnBufferedActions();
+                actionEventQueue.flushResults();
+                if (orphanContentDeleter != null) {
+                    orphanContentDeleter.close();
+                }
             } catch (InterruptedException e) {
                 log.warn("Interrupted while waiting for action executor shutdown");
                 executor.shutdownNow();
+                virtualExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
             }
         }
     }
+
+    private record PrefetchedInput(QueuedAction queuedAction, ActionContentStorageService contentStorageService,
+            long reservedBytes) {
+        ActionInput actionInput() {
+            return queuedAction.actionInput();
+        }
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphore whose number of permits can be changed while permits are held. Lowering the limit takes effect as
+ * permits are released, so executions already running are never interrupted.
+ */
+public class AdjustableSemaphore extends Semaphore {
+    private int maxPermits;
+
+    public AdjustableSemaphore(int maxPermits) {
+        super(checkedPermits(maxPermits), true);
+        this.maxPermits = maxPermits;
+    }
+
+    /**
+     * Change the number of permits
+     *
+     * @param maxPermits the new number of permits, at least 1
+     */
+    public synchronized void setMaxPermits(int maxPermits) {
+        int delta = checkedPermits(maxPermits) - this.maxPermits;
+        if (delta > 0) {
+            release(delta);
+        } else if (delta < 0) {
+            reducePermits(-delta);
+        }
+        this.maxPermits = maxPermits;
+    }
+
+    public synchronized int getMaxPermits() {
+        return maxPermits;
+    }
+
+    private static int checkedPermits(int maxPermits) {
+        if (maxPermits < 1) {
+            throw new IllegalArgumentException("The number of permits must be at least 1 but was " + maxPermits);
+        }
+        return maxPermits;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.actionkit.properties.ActionsProperties;
+import org.deltafi.actionkit.service.ActionEventQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adjusts the concurrency of the actions that run on virtual threads from the depth of their queues and their recent
+ * execution times. Each action is sized to drain its backlog within one control interval, bounded by its minimum and
+ * its configured virtualThreadConcurrency, and shrinks by at most half per interval once its queue is empty. When the
+ * targets exceed the shared budget, every action keeps its minimum and the rest of the budget is split in proportion
+ * to the additional concurrency each action asked for.
+ */
+@Slf4j
+public class ConcurrencyController {
+    static final Duration INTERVAL = Duration.ofSeconds(5);
+
+    @Autowired
+    private ActionRunner actionRunner;
+
+    @Autowired
+    private ActionEventQueue actionEventQueue;
+
+    @Autowired
+    private ActionsProperties actionsProperties;
+
+    @Scheduled(fixedDelay = 5000)
+    void adjust() {
+        if (!actionsProperties.isAdaptiveConcurrency()) {
+            return;
+        }
+
+        Map<String, Integer> current = actionRunner.getConcurrency();
+        Map<String, Integer> targets = new HashMap<>();
+        Map<String, Integer> minimums = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : current.entrySet()) {
+            String actionClassName = entry.getKey();
+            int max = actionsProperties.getVirtualThreadConcurrency().getOrDefault(actionClassName, entry.getValue());
+            int min = Math.clamp(actionsProperties.getAdaptiveConcurrencyMin().getOrDefault(actionClassName, 1), 1, max);
+            minimums.put(actionClassName, min);
+            targets.put(actionClassName, target(entry.getValue(), actionEventQueue.queueDepth(actionClassName),
+                    actionRunner.getAverageExecutionMillis(actionClassName), min, max));
+        }
+
+        Map<String, Integer> allocated = allocate(targets, minimums, actionsProperties.getAdaptiveConcurrencyBudget());
+        allocated.forEach((actionClassName, concurrency) -> {
+            if (!concurrency.equals(current.get(actionClassName))) {
+                actionRunner.setConcurrency(actionClassName, concurrency);
+            }
+        });
+    }
+
+    /**
+     * Get the concurrency an action needs to drain its queue within one interval
+     *
+     * @param current the current concurrency
+     * @param depth the number of waiting action inputs
+     * @param averageMillis the recent average execution time, 0 if unknown
+     * @param min the minimum concurrency
+     * @param max the maximum concurrency
+     * @return the target concurrency
+     */
+    static int target(int current, long depth, double averageMillis, int min, int max) {
+        long target;
+        if (depth == 0) {
+            target = current / 2;
+        } else if (averageMillis <= 0) {
+            // nothing has finished yet, so grow until timings are available
+            target = current * 2L;
+        } else {
+            target = (long) Math.ceil(depth * averageMillis / INTERVAL.toMillis());
+        }
+        return Math.clamp(Math.max(target, current / 2), min, max);
+    }
+
+    /**
+     * Fit the targets into the shared budget
+     *
+     * @param targets the target concurrency of each action
+     * @param minimums the minimum concurrency of each action
+     * @param budget the maximum total concurrency, 0 for no limit
+     * @return the concurrency of each action
+     */
+    static Map<String, Integer> allocate(Map<String, Integer> targets, Map<String, Integer> minimums, int budget) {
+        int total = targets.values().stream().mapToInt(Integer::intValue).sum();
+        if (budget <= 0 || total <= budget) {
+            return targets;
+        }
+
+        int minimumTotal = minimums.values().stream().mapToInt(Integer::intValue).sum();
+        int spare = Math.max(budget - minimumTotal, 0);
+        int extraDemand = total - minimumTotal;
+
+        Map<String, Integer> allocated = new HashMap<>();
+        targets.forEach((actionClassName, target) -> {
+            int min = minimums.get(actionClassName);
+            allocated.put(actionClassName, min + (int) ((long) (target - min) * spare / extraDemand));
+        });
+        return allocated;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.content.ActionContentStorageService;
+import org.deltafi.common.content.ContentStorageService;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.deltafi.common.types.ActionInput;
+import org.deltafi.common.types.Content;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the content of action inputs in the background before they are executed so the fetch overlaps with the
+ * execution of the previous input. The bytes held by fetched content that has not finished executing are limited by
+ * a budget shared by all actions in the JVM.
+ */
+@Slf4j
+public class ContentPrefetcher {
+    private final ContentStorageService contentStorageService;
+    private final Executor executor;
+    private final long budgetBytes;
+
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    /**
+     * @param contentStorageService the storage to fetch content from
+     * @param executor the executor running the fetches
+     * @param budgetBytes the maximum number of bytes held by fetched content at once
+     */
+    public ContentPrefetcher(ContentStorageService contentStorageService, Executor executor, long budgetBytes) {
+        this.contentStorageService = contentStorageService;
+        this.executor = executor;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Start fetching the content of an action input into the storage service its execution will load content from.
+     * Content is fetched in order as long as it fits in the remaining budget, the rest is loaded from storage when
+     * the action asks for it. Join inputs are not fetched.
+     *
+     * @param actionInput the action input to fetch the content of
+     * @param actionContentStorageService the storage service of the execution of the action input
+     * @return the number of bytes reserved from the budget, to be released once the execution finishes
+     */
+    public long prefetch(ActionInput actionInput, ActionContentStorageService actionContentStorageService) {
+        if (actionInput.getActionContext().getJoin() != null || actionInput.getDeltaFileMessages() == null ||
+                actionInput.getDeltaFileMessages().isEmpty() ||
+                actionInput.getDeltaFileMessages().getFirst().getContentList() == null) {
+            return 0;
+        }
+
+        long reserved = 0;
+        for (Content content : actionInput.getDeltaFileMessages().getFirst().getContentList()) {
+            long size = content.getSize();
+            if (size <= 0 || !reserve(size)) {
+                continue;
+            }
+            try {
+                actionContentStorageService.addPrefetchedContent(content,
+                        CompletableFuture.supplyAsync(() -> fetch(content), executor));
+                reserved += size;
+            } catch (RejectedExecutionException e) {
+                // shutting down, the content is loaded from storage if the input still executes
+                release(size);
+                break;
+            } catch (RuntimeException e) {
+                // the caller never learns of these reservations, so give them back before failing
+                release(reserved + size);
+                throw e;
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Return bytes reserved by {@link #prefetch} to the budget
+     *
+     * @param bytes the number of bytes to release
+     */
+    public void release(long bytes) {
+        if (bytes > 0) {
+            reservedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * Get the number of bytes currently reserved from the budget
+     *
+     * @return the reserved bytes
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    private boolean reserve(long size) {
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current + size > budgetBytes) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    private byte[] fetch(Content content) {
+        try (InputStream inputStream = contentStorageService.load(content)) {
+            return inputStream.readAllBytes();
+        } catch (ObjectStorageException | IOException e) {
+            log.debug("Unable to prefetch content {}", content.getName(), e);
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -23,10 +23,7 @@ import org.deltafi.actionkit.service.ActionEventQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
 public class HeartbeatService {
     @Autowired
@@ -39,27 +36,21 @@ public class HeartbeatService {
 
     @Scheduled(fixedRate = 10000)
     void setHeartbeat() {
+        Set<String> queueNames = new LinkedHashSet<>();
         for (Action<?, ?, ?> action : actionRunner.getAllActions()) {
-            actionEventQueue.setHeartbeat(action.getClassCanonicalName());
+            queueNames.add(action.getClassCanonicalName());
         }
+        actionEventQueue.setHeartbeats(queueNames);
     }
 
     @Scheduled(fixedRate = 5000)
     void recordRunningTasks() {
         List<ActionExecution> oldList = new ArrayList<>(runningActions);
-        runningActions = new ArrayList<>();
+        runningActions = actionRunner.getAllActions().stream()
+                .flatMap(action -> action.getActionExecutions().stream())
+                .toList();
+        oldList.removeAll(runningActions);
 
-        actionRunner.getAllActions().stream()
-                .map(Action::getActionExecution)
-                .filter(Objects::nonNull)
-                .forEach(actionExecution -> {
-                    runningActions.add(actionExecution);
-                    oldList.remove(actionExecution);
-                    actionEventQueue.recordLongRunningTask(actionExecution);
-                });
-
-        for (ActionExecution actionExecution : oldList) {
-            actionEventQueue.removeLongRunningTask(actionExecution);
-        }
+        actionEventQueue.syncLongRunningTasks(runningActions, oldList);
     }
 }
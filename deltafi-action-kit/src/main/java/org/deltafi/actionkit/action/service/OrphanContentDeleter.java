@@ -0,0 +1,128 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.content.ContentStorageService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes content saved by actions but not used by their results in the background, so action threads publish their
+ * results without waiting on storage. Object names from all executions are collected and deleted in batches by a
+ * fixed number of workers.
+ */
+@Slf4j
+public class OrphanContentDeleter {
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    private final ContentStorageService contentStorageService;
+    private final int batchSize;
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param contentStorageService the storage to delete objects from
+     * @param concurrency the maximum number of deletions in flight at once
+     * @param batchSize the maximum number of objects per deletion
+     */
+    public OrphanContentDeleter(ContentStorageService contentStorageService, int concurrency, int batchSize) {
+        this.contentStorageService = contentStorageService;
+        this.batchSize = Math.max(batchSize, 1);
+        workers = Executors.newFixedThreadPool(Math.max(concurrency, 1));
+        for (int i = 0; i < Math.max(concurrency, 1); i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    /**
+     * Queue objects for deletion
+     *
+     * @param objectNames the names of the objects to delete
+     */
+    public void delete(Collection<String> objectNames) {
+        pending.addAll(objectNames);
+    }
+
+    /**
+     * Get the number of objects waiting to be deleted
+     *
+     * @return the number of waiting objects
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stop the workers and delete any objects still waiting on the calling thread
+     */
+    public void close() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Orphaned content deleters didn't terminate gracefully");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> batch = new ArrayList<>();
+        while (pending.drainTo(batch, batchSize) > 0) {
+            deleteBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void work() {
+        List<String> batch = new ArrayList<>();
+        while (running) {
+            try {
+                String first = pending.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                deleteBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deleteBatch(List<String> objectNames) {
+        try {
+            contentStorageService.deleteAllByObjectName(List.copyOf(objectNames));
+        } catch (Exception e) {
+            log.error("Failed to delete {} orphaned content objects", objectNames.size(), e);
+        }
+    }
+}
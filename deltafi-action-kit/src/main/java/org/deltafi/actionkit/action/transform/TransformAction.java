@@ -42,7 +42,8 @@ public abstract class TransformAction<P extends ActionParameters> extends Action
         if (this instanceof Join joinAction) {
             TransformInput joinedInput = joinAction.join(actionInput.getDeltaFileMessages().stream()
                     .map(deltaFileMessage -> buildInput(actionInput.getActionContext(), deltaFileMessage)).toList());
-            return execute(actionInput.getActionContext(), joinedInput, convertToParams(actionInput.getActionParams()));
+            return execute(actionInput.getActionContext(), joinedInput,
+                    convertToParams(actionInput.getActionContext(), actionInput.getActionParams()));
         } else {
             return super.executeJoinAction(actionInput);
         }
@@ -0,0 +1,45 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.metrics;
+
+/**
+ * The phases of an action execution timed by {@link ActionPhaseMetrics}
+ */
+public enum ActionPhase {
+    // time from the core queueing the action to the action kit starting it
+    QUEUE_WAIT,
+    // time converting the action parameters to the parameter class
+    PARAMETER_CONVERSION,
+    // time opening and reading content from storage
+    CONTENT_LOAD,
+    // time running the action, including the parameter conversion and content storage done by the action
+    EXECUTE,
+    // time writing content to storage
+    CONTENT_SAVE,
+    // time deleting content saved by the action but not referenced by its result
+    ORPHAN_CLEANUP,
+    // time handing the result to the result queue
+    RESULT_PUBLISH;
+
+    /**
+     * @return the value of the phase label in exported metrics
+     */
+    public String label() {
+        return name().toLowerCase();
+    }
+}
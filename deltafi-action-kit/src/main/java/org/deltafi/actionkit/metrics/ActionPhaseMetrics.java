@@ -0,0 +1,190 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograms of the time action executions spend in each {@link ActionPhase} and of the bytes of content they load,
+ * kept per action class. Values are recorded wait-free into HdrHistogram recorders and reported to VictoriaMetrics
+ * over the Graphite plaintext protocol, the same path the core uses for its metrics. Each report holds the quantiles
+ * of the values recorded since the previous successful report, and the sums and counts as increments over that
+ * interval, following the core's stats_counts convention. Values that fail to send are included in the next report.
+ */
+@Slf4j
+public class ActionPhaseMetrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String PHASE_METRIC = "action_phase.seconds";
+    private static final String CONTENT_LOAD_BYTES_METRIC = "action_content_load.bytes";
+
+    private final String victoriametricsHost;
+    private final int victoriametricsPort;
+    private final String hostname;
+    private final Map<String, Map<ActionPhase, Series>> phaseSeries = new ConcurrentHashMap<>();
+    private final Map<String, Series> contentLoadBytesSeries = new ConcurrentHashMap<>();
+
+    /**
+     * @param victoriametricsHost the host of the VictoriaMetrics Graphite listener
+     * @param victoriametricsPort the port of the VictoriaMetrics Graphite listener
+     * @param hostname the hostname added as a tag so the reports of several instances of a plugin stay separate
+     */
+    public ActionPhaseMetrics(String victoriametricsHost, int victoriametricsPort, String hostname) {
+        this.victoriametricsHost = victoriametricsHost;
+        this.victoriametricsPort = victoriametricsPort;
+        this.hostname = hostname;
+    }
+
+    /**
+     * Record the time an execution of an action spent in a phase
+     *
+     * @param actionClassName the canonical class name of the action
+     * @param phase the phase
+     * @param nanos the time spent in nanoseconds
+     */
+    public void recordNanos(String actionClassName, ActionPhase phase, long nanos) {
+        phaseSeries.computeIfAbsent(actionClassName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(phase, k -> new Series())
+                .record(nanos);
+    }
+
+    /**
+     * Record the bytes of content an execution of an action loaded
+     *
+     * @param actionClassName the canonical class name of the action
+     * @param bytes the number of bytes loaded
+     */
+    public void recordContentLoadBytes(String actionClassName, long bytes) {
+        contentLoadBytesSeries.computeIfAbsent(actionClassName, k -> new Series()).record(bytes);
+    }
+
+    /**
+     * Send the values recorded since the previous successful report to VictoriaMetrics
+     */
+    @Scheduled(fixedRate = 10000)
+    public synchronized void report() {
+        long timestamp = System.currentTimeMillis() / 1000;
+        StringBuilder metrics = new StringBuilder();
+        List<Series> reported = new ArrayList<>();
+
+        new TreeMap<>(phaseSeries).forEach((actionClassName, series) -> new TreeMap<>(series).forEach((phase, value) -> {
+            if (value.append(metrics, PHASE_METRIC, tags(actionClassName) + ";phase=" + phase.label(), 1e-9,
+                    timestamp)) {
+                reported.add(value);
+            }
+        }));
+        new TreeMap<>(contentLoadBytesSeries).forEach((actionClassName, value) -> {
+            if (value.append(metrics, CONTENT_LOAD_BYTES_METRIC, tags(actionClassName), 1, timestamp)) {
+                reported.add(value);
+            }
+        });
+
+        if (!metrics.isEmpty() && sendMetrics(metrics.toString())) {
+            reported.forEach(Series::reported);
+        }
+    }
+
+    private String tags(String actionClassName) {
+        return ";action=" + actionClassName + ";hostname=" + hostname;
+    }
+
+    protected boolean sendMetrics(String metrics) {
+        try (Socket socket = new Socket(victoriametricsHost, victoriametricsPort);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.UTF_8))) {
+            writer.write(metrics);
+            writer.flush();
+            socket.shutdownOutput();
+            return true;
+        } catch (IOException e) {
+            log.error("Could not send action phase metrics to VictoriaMetrics at {}:{}", victoriametricsHost,
+                    victoriametricsPort, e);
+            return false;
+        }
+    }
+
+    private static class Series {
+        private final Recorder recorder = new Recorder(3);
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private final Histogram unreported = new Histogram(3);
+        private Histogram interval;
+        private long reportedSum;
+        private long reportedCount;
+        private long sentSum;
+        private long sentCount;
+
+        void record(long value) {
+            long clamped = Math.max(value, 0);
+            recorder.recordValue(clamped);
+            sum.add(clamped);
+            count.increment();
+        }
+
+        /**
+         * Append the values recorded since the last successful report
+         *
+         * @return true if there were values to append
+         */
+        boolean append(StringBuilder metrics, String metric, String tags, double scale, long timestamp) {
+            interval = recorder.getIntervalHistogram(interval);
+            unreported.add(interval);
+            sentSum = sum.sum();
+            sentCount = count.sum();
+            if (sentCount == reportedCount) {
+                return false;
+            }
+
+            for (double quantile : QUANTILES) {
+                append(metrics, "gauge." + metric + tags + ";quantile=" + quantile,
+                        unreported.getValueAtPercentile(quantile * 100) * scale, timestamp);
+            }
+            append(metrics, "stats_counts." + metric + "_sum" + tags, (sentSum - reportedSum) * scale, timestamp);
+            append(metrics, "stats_counts." + metric + "_count" + tags, sentCount - reportedCount, timestamp);
+            return true;
+        }
+
+        void reported() {
+            unreported.reset();
+            reportedSum = sentSum;
+            reportedCount = sentCount;
+        }
+
+        private static void append(StringBuilder metrics, String name, double value, long timestamp) {
+            metrics.append(name).append(' ').append(value).append(' ').append(timestamp).append('\n');
+        }
+
+        private static void append(StringBuilder metrics, String name, long value, long timestamp) {
+            metrics.append(name).append(' ').append(value).append(' ').append(timestamp).append('\n');
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.deltafi.actionkit.properties;
 
 import lombok.Data;
+import org.deltafi.common.queue.QueuePayloadFormat;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.HashMap;
@@ -31,6 +32,41 @@ public class ActionsProperties {
     // TODO: find a more interactive way to set this via the UI
     // for now, allow customization through the shipped application.yaml
     private Map<String, Integer> actionThreads = new HashMap<>();
+    // maximum concurrent executions of actions that run a single instance on virtual threads instead of actionThreads
+    private Map<String, Integer> virtualThreadConcurrency = new HashMap<>();
+    // resize virtual thread actions between their minimum and virtualThreadConcurrency based on queue depth
+    private boolean adaptiveConcurrency = false;
+    // minimum concurrency of virtual thread actions under adaptive control, 1 when not set
+    private Map<String, Integer> adaptiveConcurrencyMin = new HashMap<>();
+    // maximum total concurrency of all virtual thread actions under adaptive control, 0 for no shared limit
+    private int adaptiveConcurrencyBudget = 0;
+    // number of queue entries to pop per request, extra entries are buffered locally for the action's threads
+    private Map<String, Integer> actionQueueBatchSize = new HashMap<>();
+    // bytes of content of the next buffered input to fetch while the current one executes, 0 disables prefetching
+    private long contentPrefetchBytes = 0L;
+    // bytes of loaded content to keep on local disk in contentCacheDir for later loads, 0 disables the cache
+    private long contentCacheBytes = 0L;
+    private String contentCacheDir = "/tmp/content-cache";
+    // reuse content loaded or saved earlier in an execution when the execution saves identical bytes again
+    private boolean contentDeduplication = false;
+    // format used for results when the core advertises support for it, JSON is always used otherwise
+    private QueuePayloadFormat queuePayloadFormat = QueuePayloadFormat.JSON;
+    // minimum encoded size in bytes of results to compress when the core advertises support for it, 0 disables
+    private int queueCompressionThreshold = 0;
+    // maximum number of results from all action threads written in one pipelined flush, 1 writes each result directly
+    private int resultBatchSize = 1;
+    // how long to wait for more results after the first result of a batch arrives
+    private long resultBatchWindowMs = 5L;
+    // block action threads until their result is flushed so a result is written before the next take
+    private boolean resultBatchWaitForFlush = true;
+    // delete content that actions saved but did not use in a background batch instead of before publishing the result
+    private boolean asyncOrphanDeletion = false;
+    // maximum number of background orphaned content deletions in flight
+    private int orphanDeletionConcurrency = 2;
+    // maximum number of objects removed by one background orphaned content deletion
+    private int orphanDeletionBatchSize = 1000;
+    // record per-phase execution histograms for each action and report them to VictoriaMetrics
+    private boolean phaseMetrics = false;
 
     private String hostname;
 }
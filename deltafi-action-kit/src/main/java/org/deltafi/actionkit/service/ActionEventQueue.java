@@ -17,48 +17,94 @@
  */
 package org.deltafi.actionkit.service;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.StreamReadConstraints;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.deltafi.common.lookup.LookupTableEvent;
 import org.deltafi.common.lookup.LookupTableEventResult;
+import org.deltafi.common.queue.QueueCapability;
+import org.deltafi.common.queue.QueueIndexKeys;
+import org.deltafi.common.queue.QueuePayloadCodec;
+import org.deltafi.common.queue.QueuePayloadFormat;
+import org.deltafi.common.queue.QueueShards;
+import org.deltafi.common.queue.valkey.PayloadFormatNegotiator;
 import org.deltafi.common.queue.valkey.SortedSetEntry;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.common.types.*;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import static org.deltafi.common.action.EventQueueProperties.DGS_QUEUE;
 
 /**
  * Service for pushing and popping action events to a valkey queue.
  */
-@RequiredArgsConstructor
 @Slf4j
 public class ActionEventQueue {
 
-    private static final ObjectMapper OBJECT_MAPPER;
-    static {
-        ObjectMapper temp = new ObjectMapper()
-                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                .configure(DeserializationFeature.USE_LONG_FOR_INTS, true)
-                .registerModule(new JavaTimeModule());
-        StreamReadConstraints streamReadConstraints = StreamReadConstraints
-                .builder()
-                .maxStringLength(16 * 1024 * 1024)
-                .build();
-        temp.getFactory().setStreamReadConstraints(streamReadConstraints);
-        OBJECT_MAPPER = temp;
-    }
+    private static final ObjectMapper OBJECT_MAPPER = QueuePayloadCodec.JSON_MAPPER;
+    private static final List<QueueCapability> CAPABILITIES = List.of(QueueCapability.values());
+    private static final Duration QUEUE_SHARDS_REFRESH_INTERVAL = Duration.ofSeconds(10);
 
     private final ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
+    private final PayloadFormatNegotiator payloadFormatNegotiator;
+    private final ResultPublisher resultPublisher;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<String, Deque<SortedSetEntry>> localBuffers = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Integer> queueShards = Map.of();
+    private volatile Instant nextQueueShardsRefresh = Instant.MIN;
+
+    public ActionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue) {
+        this(valkeyKeyedBlockingQueue, QueuePayloadFormat.JSON);
+    }
+
+    /**
+     * Create an ActionEventQueue that writes results in the preferred format when the core advertises support for it
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param preferredFormat the format to use for results when the core can read it
+     */
+    public ActionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, QueuePayloadFormat preferredFormat) {
+        this(valkeyKeyedBlockingQueue, preferredFormat, 0);
+    }
+
+    /**
+     * Create an ActionEventQueue that writes results in the preferred format and compresses large results when the
+     * core advertises support for them
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param preferredFormat the format to use for results when the core can read it
+     * @param compressionThreshold the minimum encoded size in bytes of results to compress, 0 to disable compression
+     */
+    public ActionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, QueuePayloadFormat preferredFormat,
+            int compressionThreshold) {
+        this(valkeyKeyedBlockingQueue, preferredFormat, compressionThreshold,
+                new ResultPublisher(valkeyKeyedBlockingQueue));
+    }
+
+    /**
+     * Create an ActionEventQueue that hands results to the given publisher
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param preferredFormat the format to use for results when the core can read it
+     * @param compressionThreshold the minimum encoded size in bytes of results to compress, 0 to disable compression
+     * @param resultPublisher the publisher that writes results to the queue
+     */
+    public ActionEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, QueuePayloadFormat preferredFormat,
+            int compressionThreshold, ResultPublisher resultPublisher) {
+        this.valkeyKeyedBlockingQueue = valkeyKeyedBlockingQueue;
+        this.payloadFormatNegotiator = new PayloadFormatNegotiator(valkeyKeyedBlockingQueue, () -> preferredFormat,
+                () -> compressionThreshold, Clock.systemUTC());
+        this.resultPublisher = resultPublisher;
+    }
 
     /**
      * Request an ActionInput object from the ActionEvent queue for the specified action
@@ -68,7 +114,139 @@ public class ActionEventQueue {
      * @throws JsonProcessingException if the incoming event cannot be serialized
      */
     public ActionInput takeAction(String actionClassName) throws JsonProcessingException {
-        return OBJECT_MAPPER.readValue(valkeyKeyedBlockingQueue.take(actionClassName), ActionInput.class);
+        return takeAction(actionClassName, 1);
+    }
+
+    /**
+     * Request an ActionInput object for the specified action, popping up to batchSize entries from the queue at once.
+     * Entries beyond the first are held in a local buffer shared by all threads of the action and are handed out
+     * before the queue is consulted again. When the core has sharded the queue, all of its shards are taken from.
+     *
+     * @param actionClassName Name of action for Action event request
+     * @param batchSize maximum number of entries to pop from the queue in a single request
+     * @return next Action on the queue for the given action name or null if the blocking pop returned nothing
+     * @throws JsonProcessingException if the incoming event cannot be serialized
+     */
+    public ActionInput takeAction(String actionClassName, int batchSize) throws JsonProcessingException {
+        QueuedAction queuedAction = takeQueuedAction(actionClassName, batchSize);
+        return queuedAction != null ? queuedAction.actionInput() : null;
+    }
+
+    /**
+     * Like {@link #takeAction(String, int)}, but also returns the queue entry the action input was decoded from so it
+     * can be handed back with {@link #returnAction(QueuedAction)}
+     *
+     * @param actionClassName Name of action for Action event request
+     * @param batchSize maximum number of entries to pop from the queue in a single request
+     * @return next Action on the queue with its entry or null if the blocking pop returned nothing
+     * @throws JsonProcessingException if the incoming event cannot be serialized
+     */
+    public QueuedAction takeQueuedAction(String actionClassName, int batchSize) throws JsonProcessingException {
+        Deque<SortedSetEntry> buffer = batchSize > 1 ?
+                localBuffers.computeIfAbsent(actionClassName, k -> new ConcurrentLinkedDeque<>()) : null;
+        SortedSetEntry entry = buffer != null ? buffer.poll() : null;
+        if (entry == null) {
+            int maxItems = Math.max(batchSize, 1);
+            int shards = shardCount(actionClassName);
+            List<SortedSetEntry> entries = shards > 1 ?
+                    valkeyKeyedBlockingQueue.take(QueueShards.shardKeys(actionClassName, shards), maxItems) :
+                    valkeyKeyedBlockingQueue.take(actionClassName, maxItems);
+            if (entries.isEmpty()) {
+                return null;
+            }
+            entry = entries.getFirst();
+            if (buffer != null) {
+                buffer.addAll(entries.subList(1, entries.size()));
+            }
+        }
+
+        return new QueuedAction(decodeActionInput(entry), entry);
+    }
+
+    // the score of an action input entry is the time the core queued it
+    private ActionInput decodeActionInput(SortedSetEntry entry) throws JsonProcessingException {
+        ActionInput actionInput = QueuePayloadCodec.decode(entry.getValue(), ActionInput.class);
+        actionInput.setActionCreated(entry.getScore());
+        return actionInput;
+    }
+
+    /**
+     * Take the next action input from the local buffer of the action without going to the queue
+     *
+     * @param actionClassName Name of action
+     * @return the next buffered action input with its entry or null if the buffer is empty
+     * @throws JsonProcessingException if the buffered event cannot be deserialized
+     */
+    public QueuedAction pollBufferedAction(String actionClassName) throws JsonProcessingException {
+        Deque<SortedSetEntry> buffer = localBuffers.get(actionClassName);
+        SortedSetEntry entry = buffer != null ? buffer.poll() : null;
+        return entry != null ? new QueuedAction(decodeActionInput(entry), entry) : null;
+    }
+
+    /**
+     * Put an action input that was taken but will not be executed back on the queue it was taken from so it is picked
+     * up by another worker. The original entry is put back, which keeps its shard, its score, and the format and
+     * compression the core wrote it with, and it is indexed again like the entries of {@link #returnBufferedActions()}.
+     *
+     * @param queuedAction the action input and the entry it was taken as
+     */
+    public void returnAction(QueuedAction queuedAction) {
+        SortedSetEntry entry = queuedAction.entry();
+        valkeyKeyedBlockingQueue.put(new SortedSetEntry(entry.getKey(), entry.getValue(), entry.getScore(),
+                QueueIndexKeys.forActionInput(queuedAction.actionInput())));
+    }
+
+    /**
+     * Get the number of action inputs waiting for the action, across all shards of its queue
+     *
+     * @param actionClassName Name of action
+     * @return the number of waiting action inputs
+     */
+    public long queueDepth(String actionClassName) {
+        long depth = 0;
+        for (String key : QueueShards.shardKeys(actionClassName, shardCount(actionClassName))) {
+            depth += valkeyKeyedBlockingQueue.sortedSetSize(key);
+        }
+        return depth;
+    }
+
+    private int shardCount(String actionClassName) {
+        Instant now = Instant.now();
+        if (now.isAfter(nextQueueShardsRefresh)) {
+            queueShards = valkeyKeyedBlockingQueue.getQueueShards();
+            nextQueueShardsRefresh = now.plus(QUEUE_SHARDS_REFRESH_INTERVAL);
+        }
+        return queueShards.getOrDefault(actionClassName, 1);
+    }
+
+    /**
+     * Put any locally buffered entries back on their queues with their original scores so they are picked up by
+     * another worker instead of waiting on the core to requeue them. The entries are indexed again since their index
+     * fields may have been dropped or moved to other entries while they were out of the queue.
+     */
+    public void returnBufferedActions() {
+        List<SortedSetEntry> entries = new ArrayList<>();
+        for (Deque<SortedSetEntry> buffer : localBuffers.values()) {
+            SortedSetEntry entry;
+            while ((entry = buffer.poll()) != null) {
+                entries.add(withIndexKeys(entry));
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            log.info("Returning {} buffered action inputs to the queue", entries.size());
+            valkeyKeyedBlockingQueue.put(entries);
+        }
+    }
+
+    private static SortedSetEntry withIndexKeys(SortedSetEntry entry) {
+        try {
+            return new SortedSetEntry(entry.getKey(), entry.getValue(), entry.getScore(),
+                    QueueIndexKeys.forActionInput(QueuePayloadCodec.decode(entry.getValue(), ActionInput.class)));
+        } catch (JsonProcessingException e) {
+            log.warn("Returning unreadable buffered action input without index keys: {}", e.getMessage());
+            return entry;
+        }
     }
 
     public LookupTableEvent takeLookupTableEvent(String... lookupTableNames) throws JsonProcessingException {
@@ -93,17 +271,62 @@ public class ActionEventQueue {
     }
 
     /**
-     * Submit a result object for action processing
+     * Submit a result object for action processing. The result is encoded on the calling thread and written by the
+     * result publisher, which may batch it with the results of other action threads.
      *
      * @param result ActionEvent result to be posted to the action queue
      * @throws JsonProcessingException if the outgoing event cannot be deserialized
      */
     public void putResult(ActionEvent result, String returnAddress) throws JsonProcessingException {
-        valkeyKeyedBlockingQueue.put(new SortedSetEntry(queueName(returnAddress), OBJECT_MAPPER.writeValueAsString(result), OffsetDateTime.now()));
+        String queueName = queueName(returnAddress);
+        resultPublisher.publish(new SortedSetEntry(queueName, payloadFormatNegotiator.encode(result, queueName),
+                OffsetDateTime.now()));
     }
 
+    /**
+     * Write any results still held by the result publisher and stop batching
+     */
+    public void flushResults() {
+        resultPublisher.close();
+    }
+
+    /**
+     * Publish a heartbeat for the given action queue. The heartbeat also advertises that this action kit can read
+     * Smile encoded and compressed entries from the queue.
+     *
+     * @param key the name of the action queue
+     */
     public void setHeartbeat(String key) {
-        valkeyKeyedBlockingQueue.setHeartbeat(key);
+        setHeartbeats(List.of(key));
+    }
+
+    /**
+     * Publish heartbeats for the given action queues in a single round trip. The heartbeats also advertise that this
+     * action kit can read Smile encoded and compressed entries from the queues.
+     *
+     * @param keys the names of the action queues
+     */
+    public void setHeartbeats(Collection<String> keys) {
+        valkeyKeyedBlockingQueue.setHeartbeats(keys, instanceId, CAPABILITIES);
+    }
+
+    /**
+     * Records the currently running tasks and removes the finished ones in a single round trip.
+     *
+     * @param running the {@link ActionExecution} objects of the tasks that are still running
+     * @param finished the {@link ActionExecution} objects of the tasks that have finished since the last sync
+     */
+    public void syncLongRunningTasks(Collection<ActionExecution> running, Collection<ActionExecution> finished) {
+        Map<String, String> recorded = new HashMap<>();
+        for (ActionExecution actionExecution : running) {
+            try {
+                recorded.put(actionExecution.key(), longRunningTaskValue(actionExecution));
+            } catch (JsonProcessingException e) {
+                log.error("Unable to convert long running task information to JSON", e);
+            }
+        }
+        valkeyKeyedBlockingQueue.syncLongRunningTasks(recorded,
+                finished.stream().map(ActionExecution::key).toList());
     }
 
     /**
@@ -116,16 +339,20 @@ public class ActionEventQueue {
      */
     public void recordLongRunningTask(ActionExecution actionExecution) {
         try {
-            List<String> values = new ArrayList<>(List.of(actionExecution.startTime().toString(), OffsetDateTime.now().toString()));
-            if (actionExecution.appName() != null) {
-                values.add(actionExecution.appName());
-            }
-            valkeyKeyedBlockingQueue.recordLongRunningTask(actionExecution.key(), OBJECT_MAPPER.writeValueAsString(values));
+            valkeyKeyedBlockingQueue.recordLongRunningTask(actionExecution.key(), longRunningTaskValue(actionExecution));
         } catch (JsonProcessingException e) {
             log.error("Unable to convert long running task information to JSON", e);
         }
     }
 
+    private String longRunningTaskValue(ActionExecution actionExecution) throws JsonProcessingException {
+        List<String> values = new ArrayList<>(List.of(actionExecution.startTime().toString(), OffsetDateTime.now().toString()));
+        if (actionExecution.appName() != null) {
+            values.add(actionExecution.appName());
+        }
+        return OBJECT_MAPPER.writeValueAsString(values);
+    }
+
     /**
      * Removes the specified long-running task from Valkey.
      * <p>
@@ -137,4 +364,12 @@ public class ActionEventQueue {
     public void removeLongRunningTask(ActionExecution actionExecution) {
         valkeyKeyedBlockingQueue.removeLongRunningTask(actionExecution.key());
     }
+
+    /**
+     * An action input together with the queue entry it was decoded from
+     *
+     * @param actionInput the decoded action input
+     * @param entry the entry as it was taken from the queue
+     */
+    public record QueuedAction(ActionInput actionInput, SortedSetEntry entry) {}
 }
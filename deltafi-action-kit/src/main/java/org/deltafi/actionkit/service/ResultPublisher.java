@@ -0,0 +1,191 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.queue.valkey.SortedSetEntry;
+import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Publishes action results to valkey on behalf of all action threads. When batching is enabled, results are collected
+ * by a single flusher thread until either the maximum batch size is reached or the batching window that started with
+ * the first result expires, and are then written with one pipelined put. Callers can wait for the flush containing
+ * their result so a result is in valkey before the next action input is taken.
+ */
+@Slf4j
+public class ResultPublisher implements AutoCloseable {
+    private final ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final boolean waitForFlush;
+
+    private final BlockingQueue<PendingResult> pending = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    // publishers hold the read lock while queueing so close cannot drain the queue between their check and their add
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    private record PendingResult(SortedSetEntry entry, CompletableFuture<Void> flushed) {}
+
+    /**
+     * Create a ResultPublisher that writes each result immediately on the calling thread
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     */
+    public ResultPublisher(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue) {
+        this(valkeyKeyedBlockingQueue, 1, Duration.ZERO, true);
+    }
+
+    /**
+     * Create a ResultPublisher
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param maxBatchSize the maximum number of results written in one flush, 1 or less disables batching
+     * @param batchWindow the maximum time to wait for more results after the first result of a batch arrives
+     * @param waitForFlush if true, {@link #publish(SortedSetEntry)} blocks until the result has been written
+     */
+    public ResultPublisher(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, int maxBatchSize, Duration batchWindow,
+            boolean waitForFlush) {
+        this.valkeyKeyedBlockingQueue = valkeyKeyedBlockingQueue;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.waitForFlush = waitForFlush;
+
+        flusher = maxBatchSize > 1 ? Thread.ofPlatform().name("result-publisher").daemon().start(this::run) : null;
+    }
+
+    /**
+     * Publish a result. Without batching the result is written before returning. With batching the result is queued
+     * for the flusher thread, and the call only waits for it to be written if waitForFlush is set. Failures of flushes
+     * that are not waited on are logged. Results published once the publisher is closed are written directly.
+     *
+     * @param entry the result entry to write
+     */
+    public void publish(SortedSetEntry entry) {
+        PendingResult pendingResult = flusher == null ? null : enqueue(entry);
+        if (pendingResult == null) {
+            valkeyKeyedBlockingQueue.put(entry);
+            return;
+        }
+
+        if (!waitForFlush) {
+            return;
+        }
+
+        try {
+            pendingResult.flushed().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private PendingResult enqueue(SortedSetEntry entry) {
+        closeLock.readLock().lock();
+        try {
+            if (!running) {
+                return null;
+            }
+            PendingResult pendingResult = new PendingResult(entry, new CompletableFuture<>());
+            pending.add(pendingResult);
+            return pendingResult;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        List<PendingResult> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingResult next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingResult> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            valkeyKeyedBlockingQueue.put(batch.stream().map(PendingResult::entry).toList());
+            batch.forEach(pendingResult -> pendingResult.flushed().complete(null));
+        } catch (RuntimeException e) {
+            log.error("Failed to publish {} action results", batch.size(), e);
+            batch.forEach(pendingResult -> pendingResult.flushed().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Stop the flusher thread and write any results that are still pending, completing every waiting publisher
+     */
+    @Override
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+
+        closeLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingResult> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        flush(remaining);
+    }
+}
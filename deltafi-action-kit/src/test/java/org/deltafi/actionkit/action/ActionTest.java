@@ -31,7 +31,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 @ExtendWith(MockitoExtension.class)
 public class ActionTest {
@@ -61,6 +65,13 @@ public class ActionTest {
 
     private static class C extends B<Integer> {}
 
+    private static class ReusingParams extends A {
+        @Override
+        protected boolean reusesParams() {
+            return true;
+        }
+    }
+
     C action = new C();
 
     @Test
@@ -70,4 +81,29 @@ public class ActionTest {
         assertEquals("Actual nothing action at all", action.getActionOptions().getDescription());
         assertEquals(TestActionParameters.class, action.getParamClass());
     }
+
+    @Test
+    public void convertsParamsForEveryExecutionByDefault() {
+        ActionContext context = ActionContext.builder().flowName("flow").actionName("action").build();
+
+        TestActionParameters first = action.convertToParams(context, Map.of("testParameter", "a"));
+        assertEquals("a", first.getTestParameter());
+        assertNotSame(first, action.convertToParams(context, Map.of("testParameter", "a")));
+    }
+
+    @Test
+    public void reusesConvertedParams() {
+        ReusingParams action = new ReusingParams();
+        ActionContext context = ActionContext.builder().flowName("flow").actionName("action").build();
+
+        TestActionParameters first = action.convertToParams(context, Map.of("testParameter", "a"));
+        assertEquals("a", first.getTestParameter());
+        assertSame(first, action.convertToParams(context, Map.of("testParameter", "a")));
+
+        TestActionParameters changed = action.convertToParams(context, Map.of("testParameter", "b"));
+        assertEquals("b", changed.getTestParameter());
+
+        ActionContext otherContext = ActionContext.builder().flowName("flow").actionName("other").build();
+        assertNotSame(changed, action.convertToParams(otherContext, Map.of("testParameter", "b")));
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdjustableSemaphoreTest {
+    @Test
+    void raisesAndLowersPermits() throws InterruptedException {
+        AdjustableSemaphore semaphore = new AdjustableSemaphore(2);
+        semaphore.acquire(2);
+
+        semaphore.setMaxPermits(3);
+        assertThat(semaphore.tryAcquire()).isTrue();
+
+        // lowering while every permit is held leaves a debt that released permits pay off
+        semaphore.setMaxPermits(1);
+        semaphore.release(2);
+        assertThat(semaphore.tryAcquire()).isFalse();
+        semaphore.release();
+        assertThat(semaphore.tryAcquire()).isTrue();
+        assertThat(semaphore.getMaxPermits()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidPermits() {
+        assertThatThrownBy(() -> new AdjustableSemaphore(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdjustableSemaphore(1).setMaxPermits(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyControllerTest {
+    @Test
+    void sizesToDrainBacklog() {
+        // 1000 inputs at 100ms each need 20 executions to drain within the 5 second interval
+        assertThat(ConcurrencyController.target(4, 1000, 100, 1, 50)).isEqualTo(20);
+        assertThat(ConcurrencyController.target(4, 100_000, 100, 1, 50)).isEqualTo(50);
+        assertThat(ConcurrencyController.target(4, 10, 0, 1, 50)).isEqualTo(8);
+    }
+
+    @Test
+    void shrinksByAtMostHalf() {
+        assertThat(ConcurrencyController.target(40, 0, 100, 1, 50)).isEqualTo(20);
+        assertThat(ConcurrencyController.target(40, 10, 100, 1, 50)).isEqualTo(20);
+        assertThat(ConcurrencyController.target(1, 0, 100, 2, 50)).isEqualTo(2);
+    }
+
+    @Test
+    void fitsTargetsIntoBudget() {
+        Map<String, Integer> targets = Map.of("a", 50, "b", 10);
+        Map<String, Integer> minimums = Map.of("a", 5, "b", 5);
+
+        assertThat(ConcurrencyController.allocate(targets, minimums, 0)).isEqualTo(targets);
+        assertThat(ConcurrencyController.allocate(targets, minimums, 100)).isEqualTo(targets);
+        assertThat(ConcurrencyController.allocate(targets, minimums, 30)).isEqualTo(Map.of("a", 23, "b", 7));
+        assertThat(ConcurrencyController.allocate(targets, minimums, 8)).isEqualTo(Map.of("a", 5, "b", 5));
+    }
+}
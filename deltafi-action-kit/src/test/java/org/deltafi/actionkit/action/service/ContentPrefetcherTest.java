@@ -0,0 +1,102 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import org.deltafi.common.content.ActionContentStorageService;
+import org.deltafi.common.content.ContentStorageService;
+import org.deltafi.common.content.Segment;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.deltafi.common.types.ActionContext;
+import org.deltafi.common.types.ActionInput;
+import org.deltafi.common.types.Content;
+import org.deltafi.common.types.DeltaFileMessage;
+import org.deltafi.common.types.JoinConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ContentPrefetcherTest {
+    private final ContentStorageService contentStorageService = mock(ContentStorageService.class);
+
+    @Test
+    void prefetchesContentWithinBudget() throws ObjectStorageException, IOException {
+        when(contentStorageService.load(any())).thenAnswer(invocation ->
+                new ByteArrayInputStream(new byte[(int) invocation.getArgument(0, Content.class).getSize()]));
+        ContentPrefetcher contentPrefetcher = new ContentPrefetcher(contentStorageService, Runnable::run, 10);
+
+        Content small = content(4);
+        Content large = content(8);
+        Content fits = content(6);
+        ActionContentStorageService actionContentStorageService = mock(ActionContentStorageService.class);
+
+        long reserved = contentPrefetcher.prefetch(actionInput(small, large, fits), actionContentStorageService);
+
+        assertThat(reserved).isEqualTo(10);
+        assertThat(contentPrefetcher.getReservedBytes()).isEqualTo(10);
+        verify(actionContentStorageService).addPrefetchedContent(eq(small), any());
+        verify(actionContentStorageService).addPrefetchedContent(eq(fits), any());
+        verify(actionContentStorageService, never()).addPrefetchedContent(eq(large), any());
+
+        contentPrefetcher.release(reserved);
+        assertThat(contentPrefetcher.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void releasesReservationsWhenPrefetchFails() {
+        ContentPrefetcher contentPrefetcher = new ContentPrefetcher(contentStorageService, Runnable::run, 10);
+        Content first = content(4);
+        Content second = content(4);
+        ActionContentStorageService actionContentStorageService = mock(ActionContentStorageService.class);
+        doThrow(new IllegalStateException("closed")).when(actionContentStorageService)
+                .addPrefetchedContent(eq(second), any());
+
+        assertThatThrownBy(() -> contentPrefetcher.prefetch(actionInput(first, second), actionContentStorageService))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(contentPrefetcher.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void skipsJoins() {
+        ContentPrefetcher contentPrefetcher = new ContentPrefetcher(contentStorageService, Runnable::run, 10);
+        ActionInput actionInput = actionInput(content(4));
+        actionInput.getActionContext().setJoin(new JoinConfiguration(null, 2, null, null));
+
+        assertThat(contentPrefetcher.prefetch(actionInput, mock(ActionContentStorageService.class))).isZero();
+        verifyNoInteractions(contentStorageService);
+    }
+
+    private Content content(int size) {
+        return new Content("name", "mediaType", new Segment(UUID.randomUUID(), 0, size, UUID.randomUUID()));
+    }
+
+    private ActionInput actionInput(Content... contents) {
+        return ActionInput.builder()
+                .actionContext(ActionContext.builder().build())
+                .deltaFileMessages(List.of(new DeltaFileMessage(Map.of(), List.of(contents))))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.action.service;
+
+import org.deltafi.common.content.ContentStorageService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class OrphanContentDeleterTest {
+    private final ContentStorageService contentStorageService = mock(ContentStorageService.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deletesInBatches() {
+        OrphanContentDeleter orphanContentDeleter = new OrphanContentDeleter(contentStorageService, 1, 2);
+        orphanContentDeleter.delete(List.of("a", "b", "c"));
+        orphanContentDeleter.delete(List.of("d"));
+        orphanContentDeleter.close();
+
+        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
+        verify(contentStorageService, atLeast(2)).deleteAllByObjectName(captor.capture());
+        List<String> deleted = new ArrayList<>();
+        for (List<String> batch : captor.getAllValues()) {
+            assertThat(batch).hasSizeLessThanOrEqualTo(2);
+            deleted.addAll(batch);
+        }
+        assertThat(deleted).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(orphanContentDeleter.pendingCount()).isZero();
+    }
+
+    @Test
+    void keepsDeletingAfterAFailure() {
+        doThrow(new RuntimeException("failed")).doNothing().when(contentStorageService).deleteAllByObjectName(anyList());
+        OrphanContentDeleter orphanContentDeleter = new OrphanContentDeleter(contentStorageService, 1, 10);
+        orphanContentDeleter.delete(List.of("a"));
+        verify(contentStorageService, timeout(2000)).deleteAllByObjectName(List.of("a"));
+
+        orphanContentDeleter.delete(List.of("b"));
+        orphanContentDeleter.close();
+        verify(contentStorageService).deleteAllByObjectName(List.of("b"));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActionPhaseMetricsTest {
+    private static final String EXECUTE_TAGS = ";action=org.Test;hostname=host;phase=execute";
+
+    private final List<String> sent = new ArrayList<>();
+    private boolean sendSucceeds = true;
+
+    private final ActionPhaseMetrics actionPhaseMetrics = new ActionPhaseMetrics("localhost", 2003, "host") {
+        @Override
+        protected boolean sendMetrics(String metrics) {
+            sent.add(metrics);
+            return sendSucceeds;
+        }
+    };
+
+    @Test
+    void reportsSummaries() {
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 2_000_000);
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 4_000_000);
+        actionPhaseMetrics.recordContentLoadBytes("org.Test", 1024);
+
+        actionPhaseMetrics.report();
+
+        assertThat(sent).hasSize(1);
+        assertThat(sent.getFirst())
+                .contains("stats_counts.action_phase.seconds_count" + EXECUTE_TAGS + " 2 ")
+                .contains("stats_counts.action_phase.seconds_sum" + EXECUTE_TAGS + " 0.006 ")
+                .contains("stats_counts.action_content_load.bytes_count;action=org.Test;hostname=host 1 ")
+                .contains("stats_counts.action_content_load.bytes_sum;action=org.Test;hostname=host 1024.0 ")
+                .containsPattern("gauge\\.action_phase\\.seconds" + EXECUTE_TAGS + ";quantile=0\\.99 0\\.004");
+    }
+
+    @Test
+    void reportsOnlyNewValues() {
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 1_000);
+        actionPhaseMetrics.report();
+        actionPhaseMetrics.report();
+
+        assertThat(sent).hasSize(1);
+
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 3_000);
+        actionPhaseMetrics.report();
+
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(1))
+                .contains("stats_counts.action_phase.seconds_count" + EXECUTE_TAGS + " 1 ")
+                .containsPattern("gauge\\.action_phase\\.seconds" + EXECUTE_TAGS + ";quantile=0\\.5 3\\.0\\d*E-6");
+    }
+
+    @Test
+    void resendsValuesAfterAFailedReport() {
+        sendSucceeds = false;
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 1_000);
+        actionPhaseMetrics.report();
+
+        sendSucceeds = true;
+        actionPhaseMetrics.recordNanos("org.Test", ActionPhase.EXECUTE, 1_000);
+        actionPhaseMetrics.report();
+
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(1)).contains("stats_counts.action_phase.seconds_count" + EXECUTE_TAGS + " 2 ");
+    }
+}
@@ -18,16 +18,22 @@
 package org.deltafi.actionkit.service;
 
 import lombok.SneakyThrows;
+import org.deltafi.common.queue.valkey.SortedSetEntry;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.common.types.ActionExecution;
+import org.deltafi.common.types.ActionInput;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,6 +51,86 @@ class ActionEventQueueTest {
         verify(valkeyKeyedBlockingQueue, times(1)).recordLongRunningTask(anyString(), anyString());
     }
 
+    @Test
+    @SneakyThrows
+    void testTakeActionBatch() {
+        ActionEventQueue actionEventQueue = new ActionEventQueue(valkeyKeyedBlockingQueue);
+        when(valkeyKeyedBlockingQueue.take("TestClass", 2)).thenReturn(List.of(
+                new SortedSetEntry("TestClass", actionInputJson("first"), OffsetDateTime.now()),
+                new SortedSetEntry("TestClass", actionInputJson("second"), OffsetDateTime.now())));
+
+        assertThat(actionEventQueue.takeAction("TestClass", 2).getActionContext().getActionName()).isEqualTo("first");
+        assertThat(actionEventQueue.takeAction("TestClass", 2).getActionContext().getActionName()).isEqualTo("second");
+        verify(valkeyKeyedBlockingQueue, times(1)).take("TestClass", 2);
+    }
+
+    @Test
+    @SneakyThrows
+    void testPollBufferedActionWithActionCreated() {
+        ActionEventQueue actionEventQueue = new ActionEventQueue(valkeyKeyedBlockingQueue);
+        OffsetDateTime created = OffsetDateTime.now().minusSeconds(5);
+        when(valkeyKeyedBlockingQueue.take("TestClass", 2)).thenReturn(List.of(
+                new SortedSetEntry("TestClass", actionInputJson("first"), created),
+                new SortedSetEntry("TestClass", actionInputJson("second"), created)));
+
+        assertThat(actionEventQueue.pollBufferedAction("TestClass")).isNull();
+        assertThat(actionEventQueue.takeAction("TestClass", 2).getActionCreated()).isEqualTo(created);
+        ActionInput buffered = actionEventQueue.pollBufferedAction("TestClass").actionInput();
+        assertThat(buffered.getActionContext().getActionName()).isEqualTo("second");
+        assertThat(buffered.getActionCreated()).isEqualTo(created);
+        assertThat(actionEventQueue.pollBufferedAction("TestClass")).isNull();
+    }
+
+    @Test
+    @SneakyThrows
+    void testReturnBufferedActions() {
+        ActionEventQueue actionEventQueue = new ActionEventQueue(valkeyKeyedBlockingQueue);
+        SortedSetEntry buffered = new SortedSetEntry("TestClass", actionInputJson("second"), OffsetDateTime.now());
+        when(valkeyKeyedBlockingQueue.take("TestClass", 2)).thenReturn(List.of(
+                new SortedSetEntry("TestClass", actionInputJson("first"), OffsetDateTime.now()), buffered));
+
+        actionEventQueue.takeAction("TestClass", 2);
+        actionEventQueue.returnBufferedActions();
+        verify(valkeyKeyedBlockingQueue, times(1)).put(List.of(new SortedSetEntry("TestClass", buffered.getValue(),
+                buffered.getScore(), List.of("action:second"))));
+    }
+
+    @Test
+    @SneakyThrows
+    void testReturnActionPutsTheEntryBackOnItsShard() {
+        ActionEventQueue actionEventQueue = new ActionEventQueue(valkeyKeyedBlockingQueue);
+        UUID flowId = UUID.randomUUID();
+        OffsetDateTime created = OffsetDateTime.now().minusSeconds(5);
+        byte[] value = ("{\"actionContext\":{\"flowId\":\"" + flowId + "\",\"actionName\":\"returned\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+        SortedSetEntry taken = new SortedSetEntry("TestClass#2", value, created);
+        when(valkeyKeyedBlockingQueue.getQueueShards()).thenReturn(Map.of("TestClass", 3));
+        when(valkeyKeyedBlockingQueue.take(List.of("TestClass", "TestClass#1", "TestClass#2"), 1))
+                .thenReturn(List.of(taken));
+
+        ActionEventQueue.QueuedAction queuedAction = actionEventQueue.takeQueuedAction("TestClass", 1);
+        queuedAction.actionInput().getActionContext().setHostname("modified");
+        actionEventQueue.returnAction(queuedAction);
+
+        verify(valkeyKeyedBlockingQueue).put(new SortedSetEntry("TestClass#2", value, created,
+                List.of("flow:" + flowId, "action:returned")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testSyncLongRunningTasks() {
+        ActionExecution finished = new ActionExecution("TestClass", "otherAction", 0, UUID.randomUUID(), OffsetDateTime.now(), "appName");
+        ActionEventQueue actionEventQueue = new ActionEventQueue(valkeyKeyedBlockingQueue);
+        actionEventQueue.syncLongRunningTasks(List.of(ACTION_EXECUTION), List.of(finished));
+        verify(valkeyKeyedBlockingQueue, times(1)).syncLongRunningTasks(
+                argThat(recorded -> recorded.size() == 1 && recorded.containsKey(ACTION_EXECUTION.key())),
+                eq(List.of(finished.key())));
+    }
+
+    private static String actionInputJson(String actionName) {
+        return "{\"actionContext\":{\"actionName\":\"" + actionName + "\"}}";
+    }
+
     @Test
     @SneakyThrows
     void testRemoveLongRunningTask() {
@@ -0,0 +1,119 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.actionkit.service;
+
+import org.deltafi.common.queue.valkey.SortedSetEntry;
+import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResultPublisherTest {
+    @Mock
+    private ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
+
+    @Captor
+    private ArgumentCaptor<List<SortedSetEntry>> entriesCaptor;
+
+    @Test
+    void writesDirectlyWithoutBatching() {
+        ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue);
+        SortedSetEntry entry = entry("a");
+
+        resultPublisher.publish(entry);
+
+        verify(valkeyKeyedBlockingQueue).put(entry);
+        verify(valkeyKeyedBlockingQueue, never()).put(anyList());
+    }
+
+    @Test
+    void batchesResultsFromManyThreads() throws InterruptedException {
+        ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue, 8, Duration.ofMillis(50), true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        IntStream.range(0, 8).forEach(i -> executor.submit(() -> resultPublisher.publish(entry("r" + i))));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        resultPublisher.close();
+
+        // every publisher waited for its flush, so all results were written in fewer round trips than results
+        verify(valkeyKeyedBlockingQueue, atMost(7)).put(entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(8);
+        verify(valkeyKeyedBlockingQueue, never()).put(any(SortedSetEntry.class));
+    }
+
+    @Test
+    void flushesPendingResultsOnClose() {
+        ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue, 100, Duration.ofSeconds(30), false);
+
+        resultPublisher.publish(entry("a"));
+        resultPublisher.publish(entry("b"));
+        resultPublisher.close();
+
+        verify(valkeyKeyedBlockingQueue, atLeastOnce()).put(entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(2);
+    }
+
+    @Test
+    void propagatesFlushFailureToWaitingPublisher() {
+        doThrow(new IllegalStateException("valkey down")).when(valkeyKeyedBlockingQueue).put(anyList());
+        ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue, 10, Duration.ofMillis(1), true);
+
+        assertThatThrownBy(() -> resultPublisher.publish(entry("a"))).hasMessage("valkey down");
+        resultPublisher.close();
+    }
+
+    @Test
+    void closeCompletesPublishersRacingIt() throws InterruptedException {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            ResultPublisher resultPublisher = new ResultPublisher(valkeyKeyedBlockingQueue, 4, Duration.ofMillis(1), true);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            IntStream.range(0, 4).forEach(i -> executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    resultPublisher.publish(entry("r" + i + "-" + j));
+                }
+            }));
+
+            resultPublisher.close();
+            executor.shutdown();
+
+            // a publisher that queued its result after close drained the queue would wait forever
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private static SortedSetEntry entry(String value) {
+        return new SortedSetEntry("dgs", value, OffsetDateTime.now());
+    }
+}
@@ -35,8 +35,11 @@ public class InMemoryObjectStorageService implements ObjectStorageService {
     @Override
     public InputStream getObject(ObjectReference objectReference) {
         byte[] bytes = objects.get(objectReference.getBucket()).get(objectReference.getName());
+        int offset = (int) objectReference.getOffset();
+        int size = objectReference.getSize() == ObjectReference.UNKNOWN_SIZE && bytes != null ?
+                bytes.length - offset : (int) objectReference.getSize();
 
-        return new ByteArrayInputStream(subBytes(bytes, (int) objectReference.getOffset(), (int) objectReference.getSize()));
+        return new ByteArrayInputStream(subBytes(bytes, offset, size));
     }
 
     private static byte[] subBytes(byte[] bytes, int offset, int size) {
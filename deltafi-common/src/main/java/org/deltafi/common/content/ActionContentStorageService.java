@@ -17,21 +17,51 @@
  */
 package org.deltafi.common.content;
 
+import org.deltafi.common.io.Writer;
 import org.deltafi.common.storage.s3.ObjectStorageException;
 import org.deltafi.common.storage.s3.ObjectStorageService;
 import org.deltafi.common.types.ActionEvent;
 import org.deltafi.common.types.Content;
 import org.deltafi.common.types.SaveManyContent;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ActionContentStorageService extends ContentStorageService {
 
     private final List<Content> savedContent;
+    // content fetched ahead of the execution, keyed by segments so copies of the content find it too
+    private final Map<List<Segment>, CompletableFuture<byte[]>> prefetchedContent = new ConcurrentHashMap<>();
+
+    // time and bytes of content storage by the execution, only tracked when metered
+    private boolean metered;
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder loadBytes = new LongAdder();
+    private final LongAdder saveNanos = new LongAdder();
+
+    // segments of content loaded in full or saved by the execution keyed by the SHA-256 digest of their bytes, only
+    // tracked when deduplicating
+    private boolean deduplicating;
+    private final Map<String, List<Segment>> segmentsByDigest = new ConcurrentHashMap<>();
 
     public ActionContentStorageService(ContentStorageService contentStorageService) {
         super(contentStorageService.objectStorageService, contentStorageService.contentBucket);
+        packMaxContentSize = contentStorageService.packMaxContentSize;
+        segmentReadAhead = contentStorageService.segmentReadAhead;
+        segmentCache = contentStorageService.segmentCache;
+        compressContent = contentStorageService.compressContent;
         savedContent = new ArrayList<>();
     }
 
@@ -40,24 +70,211 @@ public class ActionContentStorageService extends ContentStorageService {
         savedContent = new ArrayList<>();
     }
 
+    /**
+     * Register content that is being fetched ahead of the execution that will load it. Loading the content waits for
+     * the fetch instead of reading it from storage again, and falls back to storage if the fetch failed.
+     *
+     * @param content the content being fetched
+     * @param bytes the bytes of the content once fetched
+     */
+    public void addPrefetchedContent(Content content, CompletableFuture<byte[]> bytes) {
+        prefetchedContent.put(List.copyOf(content.getSegments()), bytes);
+    }
+
+    /**
+     * Track the time spent loading and saving content and the bytes read from loaded content until the next
+     * {@link #clear}. Time spent reading a loaded stream counts as load time.
+     *
+     * @param metered true to track content storage
+     */
+    public void setMetered(boolean metered) {
+        this.metered = metered;
+    }
+
+    /**
+     * Reuse the segments of content that was loaded in full or saved earlier in the execution when the execution saves
+     * identical bytes again, instead of storing another copy. Bytes are hashed as they are loaded and saved until the
+     * next {@link #clear}. Content saved from a byte array is checked before it is stored. Content saved from a stream
+     * or Writer is hashed while it is stored, and the new copy is removed if it turns out to be a duplicate.
+     *
+     * @param deduplicating true to reuse identical content
+     */
+    public void setDeduplicating(boolean deduplicating) {
+        this.deduplicating = deduplicating;
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    public long getLoadBytes() {
+        return loadBytes.sum();
+    }
+
+    public long getSaveNanos() {
+        return saveNanos.sum();
+    }
+
+    @Override
+    public InputStream load(Content content) throws ObjectStorageException {
+        if (!metered) {
+            return digestWhenDeduplicating(loadContent(content), content);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return new MeteredInputStream(digestWhenDeduplicating(loadContent(content), content));
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private InputStream digestWhenDeduplicating(InputStream inputStream, Content content) {
+        return deduplicating && content.getSize() > 0 ? new LoadDigestInputStream(inputStream, content) : inputStream;
+    }
+
+    private InputStream loadContent(Content content) throws ObjectStorageException {
+        CompletableFuture<byte[]> prefetched = prefetchedContent.isEmpty() ? null :
+                prefetchedContent.get(content.getSegments());
+        if (prefetched != null) {
+            try {
+                return new ByteArrayInputStream(prefetched.join());
+            } catch (CompletionException | CancellationException e) {
+                // load from storage so the failure is reported the usual way
+            }
+        }
+        return super.load(content);
+    }
+
+    @Override
+    public Content save(UUID did, byte[] content, String name, String mediaType) throws ObjectStorageException {
+        if (deduplicating && content.length > 0) {
+            Content duplicate = findDuplicate(digest(content), name, mediaType);
+            if (duplicate != null) {
+                return duplicate;
+            }
+        }
+        return super.save(did, content, name, mediaType);
+    }
+
     @Override
     public Content save(UUID did, InputStream inputStream, String name, String mediaType) throws ObjectStorageException {
-        Content content = super.save(did, inputStream, name, mediaType);
-        if (!content.getSegments().isEmpty()) {
-            savedContent.add(content);
+        MessageDigest messageDigest = deduplicating ? newMessageDigest() : null;
+        long start = metered ? System.nanoTime() : 0;
+        Content content = super.save(did, messageDigest == null ? inputStream :
+                new DigestInputStream(inputStream, messageDigest), name, mediaType);
+        if (metered) {
+            saveNanos.add(System.nanoTime() - start);
         }
-        return content;
+        return trackSaved(content, messageDigest);
+    }
+
+    @Override
+    public Content save(UUID did, Writer writer, String name, String mediaType) throws ObjectStorageException {
+        MessageDigest messageDigest = deduplicating ? newMessageDigest() : null;
+        long start = metered ? System.nanoTime() : 0;
+        Content content = super.save(did, messageDigest == null ? writer :
+                outputStream -> writer.write(new DigestOutputStream(outputStream, messageDigest)), name, mediaType);
+        if (metered) {
+            saveNanos.add(System.nanoTime() - start);
+        }
+        return trackSaved(content, messageDigest);
     }
 
     @Override
     public List<Content> saveMany(UUID did, List<SaveManyContent> saveManyContentList) throws ObjectStorageException {
+        if (!deduplicating) {
+            return saveManyContent(did, saveManyContentList);
+        }
+
+        // store the first copy of each distinct content and reuse its segments for the other copies
+        List<String> digests = new ArrayList<>();
+        List<Boolean> stored = new ArrayList<>();
+        List<SaveManyContent> toSave = new ArrayList<>();
+        Set<String> batchDigests = new HashSet<>();
+        for (SaveManyContent entry : saveManyContentList) {
+            String digest = entry.content().length == 0 ? null : digest(entry.content());
+            boolean store = digest == null || (!segmentsByDigest.containsKey(digest) && batchDigests.add(digest));
+            digests.add(digest);
+            stored.add(store);
+            if (store) {
+                toSave.add(entry);
+            }
+        }
+
+        Iterator<Content> saved = saveManyContent(did, toSave).iterator();
+        List<Content> contents = new ArrayList<>();
+        for (int i = 0; i < saveManyContentList.size(); i++) {
+            SaveManyContent entry = saveManyContentList.get(i);
+            String digest = digests.get(i);
+            if (!stored.get(i)) {
+                contents.add(findDuplicate(digest, entry.name(), entry.mediaType()));
+                continue;
+            }
+
+            Content content = saved.next();
+            if (digest != null) {
+                segmentsByDigest.put(digest, List.copyOf(content.getSegments()));
+            }
+            contents.add(content);
+        }
+        return contents;
+    }
+
+    private List<Content> saveManyContent(UUID did, List<SaveManyContent> saveManyContentList)
+            throws ObjectStorageException {
+        long start = metered ? System.nanoTime() : 0;
         List<Content> contents = super.saveMany(did, saveManyContentList);
+        if (metered) {
+            saveNanos.add(System.nanoTime() - start);
+        }
         savedContent.addAll(contents);
         return contents;
     }
 
+    private Content trackSaved(Content content, MessageDigest messageDigest) {
+        if (content.getSegments().isEmpty()) {
+            return content;
+        }
+
+        if (messageDigest != null) {
+            String digest = HexFormat.of().formatHex(messageDigest.digest());
+            Content duplicate = findDuplicate(digest, content.getName(), content.getMediaType());
+            if (duplicate != null) {
+                delete(content);
+                return duplicate;
+            }
+            segmentsByDigest.put(digest, List.copyOf(content.getSegments()));
+        }
+
+        savedContent.add(content);
+        return content;
+    }
+
+    private Content findDuplicate(String digest, String name, String mediaType) {
+        List<Segment> segments = segmentsByDigest.get(digest);
+        return segments == null ? null : new Content(name, mediaType, segments.stream().map(Segment::new).toList());
+    }
+
+    private static String digest(byte[] content) {
+        return HexFormat.of().formatHex(newMessageDigest().digest(content));
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     public void clear() {
         savedContent.clear();
+        prefetchedContent.clear();
+        segmentsByDigest.clear();
+        loadNanos.reset();
+        loadBytes.reset();
+        saveNanos.reset();
     }
 
     public int savedContentSize() {
@@ -65,24 +282,30 @@ public class ActionContentStorageService extends ContentStorageService {
     }
 
     public int deleteUnusedContent(ActionEvent event) {
-        int count = 0;
+        List<String> unusedObjectNames = takeUnusedObjectNames(event);
+        if (!unusedObjectNames.isEmpty()) {
+            deleteAllByObjectName(unusedObjectNames);
+        }
+        return unusedObjectNames.size();
+    }
+
+    /**
+     * Get the names of the objects saved during the execution that are not used by its event and clear the tracked
+     * content, leaving the deletion of the objects to the caller
+     *
+     * @param event the event produced by the execution
+     * @return the names of the unused objects
+     */
+    public List<String> takeUnusedObjectNames(ActionEvent event) {
+        List<String> unusedObjectNames = List.of();
         if (!savedContent.isEmpty()) {
             Set<String> segmentsInUse = event.usedSegmentObjectNames();
-            Map<String, Segment> savedSegments = savedSegmentObjectNames();
-
-            List<Segment> toDelete = savedSegments.entrySet()
-                    .stream()
-                    .filter(e -> !segmentsInUse.contains(e.getKey()))
-                    .map(Map.Entry::getValue)
+            unusedObjectNames = savedSegmentObjectNames().keySet().stream()
+                    .filter(objectName -> !segmentsInUse.contains(objectName))
                     .toList();
-
-            if (!toDelete.isEmpty()) {
-                count = toDelete.size();
-                deleteAll(toDelete);
-            }
         }
         clear();
-        return count;
+        return unusedObjectNames;
     }
 
     private Map<String, Segment> savedSegmentObjectNames() {
@@ -98,4 +321,77 @@ public class ActionContentStorageService extends ContentStorageService {
         }
         return objectNames;
     }
-}
\ No newline at end of file
+
+    private class LoadDigestInputStream extends DigestInputStream {
+        private final Content content;
+        private long count;
+        private boolean done;
+
+        LoadDigestInputStream(InputStream inputStream, Content content) {
+            super(inputStream, newMessageDigest());
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = super.read(bytes, offset, length);
+            if (count > 0) {
+                count(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are not digested
+            done = true;
+            return super.skip(n);
+        }
+
+        private void count(int bytes) {
+            count += bytes;
+            if (!done && count == content.getSize()) {
+                done = true;
+                segmentsByDigest.putIfAbsent(HexFormat.of().formatHex(getMessageDigest().digest()),
+                        List.copyOf(content.getSegments()));
+            }
+        }
+    }
+
+    private class MeteredInputStream extends FilterInputStream {
+        MeteredInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int value = super.read();
+            loadNanos.add(System.nanoTime() - start);
+            if (value != -1) {
+                loadBytes.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int count = super.read(bytes, offset, length);
+            loadNanos.add(System.nanoTime() - start);
+            if (count > 0) {
+                loadBytes.add(count);
+            }
+            return count;
+        }
+    }
+}
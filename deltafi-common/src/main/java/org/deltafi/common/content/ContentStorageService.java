@@ -17,6 +17,8 @@
  */
 package org.deltafi.common.content;
 
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.io.Writer;
 import org.deltafi.common.storage.s3.MissingContentException;
 import org.deltafi.common.storage.s3.ObjectReference;
 import org.deltafi.common.storage.s3.ObjectStorageException;
@@ -27,15 +29,65 @@ import org.deltafi.common.types.SaveManyContent;
 import java.io.*;
 import java.util.*;
 
+@Slf4j
 public class ContentStorageService {
     final ObjectStorageService objectStorageService;
     final String contentBucket;
+    // contents saved together that are no larger than this are packed into one object, 0 disables packing
+    long packMaxContentSize;
+    // segments opened ahead of the one being read when loading content with several segments
+    int segmentReadAhead = StorageProperties.DEFAULT_SEGMENT_READ_AHEAD;
+    // local copies of segments read from storage, null when segments are always read from storage
+    SegmentCache segmentCache;
+    // content saved by this service is compressed, compressed segments are read whether or not this is set
+    boolean compressContent;
 
     public ContentStorageService(ObjectStorageService objectStorageService, String bucketName) {
         this.objectStorageService = objectStorageService;
         this.contentBucket = bucketName == null || bucketName.isBlank() ? StorageProperties.STORAGE : bucketName;
     }
 
+    /**
+     * Pack contents saved together by {@link #saveMany} that are no larger than the given size into one object, each
+     * content getting a segment at its own offset in the object. The packed object is named like any other object of
+     * the did and is removed with the rest of the did's content.
+     *
+     * @param packMaxContentSize the largest content in bytes to pack, 0 to store each content in its own object
+     */
+    public void setPackMaxContentSize(long packMaxContentSize) {
+        this.packMaxContentSize = packMaxContentSize;
+    }
+
+    /**
+     * Open up to the given number of segments ahead of the segment being read when loading content made of several
+     * segments. Each segment is otherwise opened only when the read reaches it.
+     *
+     * @param segmentReadAhead the number of segments to open ahead, 0 to open each segment when it is reached
+     */
+    public void setSegmentReadAhead(int segmentReadAhead) {
+        this.segmentReadAhead = segmentReadAhead;
+    }
+
+    /**
+     * Serve loaded segments from the given cache when present and add segments read from storage to it
+     *
+     * @param segmentCache the cache, null to always read from storage
+     */
+    public void setSegmentCache(SegmentCache segmentCache) {
+        this.segmentCache = segmentCache;
+    }
+
+    /**
+     * Compress content saved by this service in blocks that can be read independently, so ranges of compressed
+     * content can be loaded without reading the whole object. Contents packed by {@link #saveMany} are not
+     * compressed. Compressed segments are decompressed when loaded regardless of this setting.
+     *
+     * @param compressContent true to compress saved content
+     */
+    public void setCompressContent(boolean compressContent) {
+        this.compressContent = compressContent;
+    }
+
     public InputStream load(Content content) throws ObjectStorageException {
         if (content.getSize() == 0) {
             return InputStream.nullInputStream();
@@ -43,26 +95,7 @@ public class ContentStorageService {
 
         return content.getSegments().size() == 1 ?
                 getObject(content.getSegments().getFirst()) :
-                getObjects(content.getSegments());
-    }
-
-    private InputStream getObjects(List<Segment> segments) throws ObjectStorageException {
-        try {
-            return new SequenceInputStream(Collections.enumeration(segments.stream()
-                    .map(this::getObjectWrapExceptions).toList()));
-        } catch (ObjectStorageRuntimeException e) {
-            throw e.objectStorageException;
-        } catch (RuntimeException e) {
-            throw new ObjectStorageException(e);
-        }
-    }
-
-    private InputStream getObjectWrapExceptions(Segment segment) {
-        try {
-            return getObject(segment);
-        } catch (ObjectStorageException e) {
-            throw new ObjectStorageRuntimeException(e);
-        }
+                new SegmentSequenceInputStream(content.getSegments(), this::getObject, segmentReadAhead);
     }
 
     /*
@@ -70,13 +103,71 @@ public class ContentStorageService {
       object to the exception and rethrow it
      */
     private InputStream getObject(Segment segment) throws ObjectStorageException {
+        if (segmentCache != null) {
+            InputStream cached = segmentCache.get(segment);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         try {
-            return objectStorageService.getObject(buildObjectReference(segment));
+            InputStream inputStream = segment.isCompressed() ? getCompressedObject(segment) :
+                    objectStorageService.getObject(buildObjectReference(segment));
+            return segmentCache == null ? inputStream : segmentCache.cacheWhileReading(segment, inputStream);
         } catch (MissingContentException e) {
             throw new MissingContentException(segment, e.getMessage());
         }
     }
 
+    private InputStream getCompressedObject(Segment segment) throws ObjectStorageException {
+        String objectName = segment.objectName();
+        if (segment.getOffset() < SegmentCompression.BLOCK_SIZE) {
+            // the range starts in the first block, stream from the start of the object without fetching its size or
+            // index, decompression stops once the segment has been read
+            return new SegmentCompression.DecompressingInputStream(objectStorageService.getObject(
+                    new ObjectReference(contentBucket, objectName, 0, ObjectReference.UNKNOWN_SIZE)),
+                    segment.getOffset(), segment.getSize());
+        }
+
+        long objectSize = objectStorageService.getTotalSize(new ObjectReference(contentBucket, objectName));
+        if (objectSize < 0) {
+            throw new MissingContentException("Unable to get the size of compressed object " + objectName);
+        }
+
+        SegmentCompression.Index index = readIndex(objectName, objectSize);
+        int firstBlock = (int) (segment.getOffset() / index.blockSize());
+        int lastBlock = (int) ((segment.getOffset() + segment.getSize() - 1) / index.blockSize());
+        if (lastBlock >= index.blockCount()) {
+            throw new ObjectStorageException("Segment " + segment + " extends past the end of compressed object " +
+                    objectName);
+        }
+
+        long start = index.blockStart(firstBlock);
+        return new SegmentCompression.DecompressingInputStream(objectStorageService.getObject(
+                new ObjectReference(contentBucket, objectName, start, index.blockEnd(lastBlock) - start)),
+                segment.getOffset() - (long) firstBlock * index.blockSize(), segment.getSize());
+    }
+
+    private SegmentCompression.Index readIndex(String objectName, long objectSize) throws ObjectStorageException {
+        try {
+            byte[] tail = readTail(objectName, objectSize, Math.min(objectSize, SegmentCompression.INDEX_READ_SIZE));
+            int indexSize = SegmentCompression.indexSize(tail);
+            if (indexSize > tail.length) {
+                tail = readTail(objectName, objectSize, indexSize);
+            }
+            return SegmentCompression.readIndex(tail, objectSize);
+        } catch (IOException e) {
+            throw new ObjectStorageException("Failed to read the index of compressed object " + objectName, e);
+        }
+    }
+
+    private byte[] readTail(String objectName, long objectSize, long length) throws ObjectStorageException, IOException {
+        try (InputStream inputStream = objectStorageService.getObject(
+                new ObjectReference(contentBucket, objectName, objectSize - length, length))) {
+            return inputStream.readAllBytes();
+        }
+    }
+
     public Content save(UUID did, byte[] content, String name, String mediaType) throws ObjectStorageException {
         if (content.length == 0) {
             return new Content(name, mediaType, Collections.emptyList());
@@ -89,14 +180,30 @@ public class ContentStorageService {
         List<Content> updatedContent = new ArrayList<>();
 
         Map<ObjectReference, InputStream> objectsToSave = new LinkedHashMap<>();
+        UUID packUuid = UUID.randomUUID();
+        long packSize = 0;
+        List<InputStream> packedContent = new ArrayList<>();
         for (SaveManyContent entry : saveManyContentList) {
             List<Segment> segments = new ArrayList<>();
 
             if (entry.content().length > 0) {
-                Segment segment = new Segment(did);
-                segment.setSize(entry.content().length);
+                Segment segment;
+                if (entry.content().length <= packMaxContentSize) {
+                    segment = new Segment(packUuid, packSize, entry.content().length, did);
+                    packSize += entry.content().length;
+                    packedContent.add(new ByteArrayInputStream(entry.content()));
+                } else {
+                    segment = new Segment(did);
+                    segment.setSize(entry.content().length);
+                    byte[] object = entry.content();
+                    if (compressContent) {
+                        object = SegmentCompression.compress(object);
+                        segment.setCompressed(true);
+                    }
+                    objectsToSave.put(new ObjectReference(contentBucket, segment.objectName(), 0, object.length),
+                            new ByteArrayInputStream(object));
+                }
                 segments.add(segment);
-                objectsToSave.put(buildObjectReference(segment), new ByteArrayInputStream(entry.content()));
             }
 
             Content content = new Content(entry.name(), entry.mediaType(), segments);
@@ -104,6 +211,11 @@ public class ContentStorageService {
             updatedContent.add(content);
         }
 
+        if (!packedContent.isEmpty()) {
+            objectsToSave.put(new ObjectReference(contentBucket, Segment.objectName(did, packUuid), 0, packSize),
+                    new SequenceInputStream(Collections.enumeration(packedContent)));
+        }
+
         objectStorageService.putObjects(contentBucket, objectsToSave);
         return updatedContent;
     }
@@ -119,6 +231,10 @@ public class ContentStorageService {
             }
             pushbackInputStream.unread(byTe);
 
+            if (compressContent) {
+                return saveCompressed(segment, pushbackInputStream::transferTo, name, mediaType);
+            }
+
             ObjectReference objectReference = objectStorageService.putObject(buildObjectReference(segment), pushbackInputStream);
             segment.setSize(objectReference.getSize());
             return new Content(name, mediaType, List.of(segment));
@@ -127,6 +243,47 @@ public class ContentStorageService {
         }
     }
 
+    /**
+     * Save the output of the Writer, streaming it to storage on the calling thread
+     * @param did the did the content belongs to
+     * @param writer the Writer producing the content
+     * @param name the content name
+     * @param mediaType the content media type
+     * @return the saved content, without segments if the Writer wrote nothing
+     * @throws ObjectStorageException if the Writer fails or saving the content fails
+     */
+    public Content save(UUID did, Writer writer, String name, String mediaType) throws ObjectStorageException {
+        Segment segment = new Segment(did);
+        if (compressContent) {
+            return saveCompressed(segment, writer, name, mediaType);
+        }
+
+        ObjectReference objectReference = objectStorageService.writeObject(buildObjectReference(segment), writer);
+        if (objectReference.getSize() == 0) {
+            return new Content(name, mediaType);
+        }
+        segment.setSize(objectReference.getSize());
+        return new Content(name, mediaType, List.of(segment));
+    }
+
+    private Content saveCompressed(Segment segment, Writer writer, String name, String mediaType)
+            throws ObjectStorageException {
+        long[] uncompressedSize = new long[1];
+        objectStorageService.writeObject(buildObjectReference(segment), outputStream -> {
+            SegmentCompression.CompressingOutputStream compressingOutputStream =
+                    new SegmentCompression.CompressingOutputStream(outputStream);
+            writer.write(compressingOutputStream);
+            compressingOutputStream.finish();
+            uncompressedSize[0] = compressingOutputStream.getUncompressedSize();
+        });
+        if (uncompressedSize[0] == 0) {
+            return new Content(name, mediaType);
+        }
+        segment.setSize(uncompressedSize[0]);
+        segment.setCompressed(true);
+        return new Content(name, mediaType, List.of(segment));
+    }
+
     public void delete(Content content) {
         if (content.getSegments().size() == 1) {
             objectStorageService.removeObject(buildObjectReference(content.getSegments().getFirst()));
@@ -148,20 +305,28 @@ public class ContentStorageService {
         }
     }
 
+    /**
+     * Get the size of the whole object holding the segment, the uncompressed size if the segment is compressed
+     *
+     * @param segment the segment
+     * @return the size of the object, or -1 if it cannot be determined
+     */
     public long getTotalSize(Segment segment) {
-        return objectStorageService.getTotalSize(buildObjectReference(segment));
+        long objectSize = objectStorageService.getTotalSize(buildObjectReference(segment));
+        if (!segment.isCompressed() || objectSize < 0) {
+            return objectSize;
+        }
+
+        try {
+            return readIndex(segment.objectName(), objectSize).uncompressedSize();
+        } catch (ObjectStorageException e) {
+            log.error("Failed to read the size of compressed object {}", segment.objectName(), e);
+            return -1;
+        }
     }
 
     private ObjectReference buildObjectReference(Segment segment) {
         return new ObjectReference(contentBucket, segment.objectName(),
                 segment.getOffset(), segment.getSize());
     }
-
-    private static class ObjectStorageRuntimeException extends RuntimeException {
-        private final ObjectStorageException objectStorageException;
-
-        ObjectStorageRuntimeException(ObjectStorageException objectStorageException) {
-            this.objectStorageException = objectStorageException;
-        }
-    }
-}
\ No newline at end of file
+}
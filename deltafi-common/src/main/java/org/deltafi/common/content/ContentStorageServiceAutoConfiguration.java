@@ -29,6 +29,11 @@ public class ContentStorageServiceAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public ContentStorageService contentStorageService(ObjectStorageService objectStorageService, StorageProperties storageProperties) {
-        return new ContentStorageService(objectStorageService, storageProperties.bucketName());
+        ContentStorageService contentStorageService = new ContentStorageService(objectStorageService,
+                storageProperties.bucketName());
+        contentStorageService.setPackMaxContentSize(storageProperties.packMaxContentSize());
+        contentStorageService.setSegmentReadAhead(storageProperties.segmentReadAhead());
+        contentStorageService.setCompressContent(storageProperties.compressContent());
+        return contentStorageService;
     }
 }
@@ -17,6 +17,7 @@
  */
 package org.deltafi.common.content;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import org.deltafi.common.storage.s3.ObjectReference;
 
@@ -30,13 +31,20 @@ public class Segment {
     private long offset;
     private long size;
     private UUID did;
+    // the object is stored in the SegmentCompression format, offset and size refer to the uncompressed bytes
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean compressed;
+
+    public Segment(UUID uuid, long offset, long size, UUID did) {
+        this(uuid, offset, size, did, false);
+    }
 
     public Segment(UUID did) {
         this(UUID.randomUUID(), did);
     }
 
     public Segment(Segment other) {
-        this(other.getUuid(), other.getOffset(), other.getSize(), other.getDid());
+        this(other.getUuid(), other.getOffset(), other.getSize(), other.getDid(), other.isCompressed());
     }
 
     public Segment(UUID uuid, UUID did) {
@@ -103,7 +111,7 @@ public class Segment {
             } else {
                 // Merge overlapping segments
                 long endPosition = Math.max(mergedSegment.getOffset() + mergedSegment.getSize(), segment.getOffset() + segment.getSize());
-                mergedSegment = new Segment(mergedSegment.getUuid(), mergedSegment.getOffset(), endPosition - mergedSegment.getOffset(), mergedSegment.getDid());
+                mergedSegment = new Segment(mergedSegment.getUuid(), mergedSegment.getOffset(), endPosition - mergedSegment.getOffset(), mergedSegment.getDid(), mergedSegment.isCompressed());
             }
         }
         totalSize += mergedSegment.getSize();
@@ -0,0 +1,251 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.content;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Least recently used cache of segment content in a local directory, bounded by the total bytes cached. Entries are
+ * keyed by object name and range. Content is never modified once it is stored, so cached entries are never
+ * invalidated, only evicted. A range is copied into the cache while it is read from storage and only kept once it has
+ * been read in full.
+ */
+@Slf4j
+public class SegmentCache {
+    private final Path directory;
+    private final long maxBytes;
+
+    // cached file names to their sizes in access order, guarded by this
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Create a cache in the given directory, removing anything left in it by a previous run
+     * @param directory the directory to cache content in
+     * @param maxBytes the maximum total bytes to cache
+     * @throws IOException if the directory cannot be created or cleared
+     */
+    public SegmentCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Get a stream reading the cached content of the segment
+     * @param segment the segment to read
+     * @return the stream or null if the segment is not cached
+     */
+    public InputStream get(Segment segment) {
+        String fileName = fileName(segment);
+        synchronized (this) {
+            if (entries.get(fileName) == null) {
+                return null;
+            }
+        }
+
+        try {
+            return Channels.newInputStream(FileChannel.open(directory.resolve(fileName), StandardOpenOption.READ));
+        } catch (IOException e) {
+            // evicted since the lookup
+            remove(fileName);
+            return null;
+        }
+    }
+
+    /**
+     * Wrap a stream reading the segment from storage so the content is cached once the stream has been read in full.
+     * Segments of unknown size or larger than the cache are not cached.
+     * @param segment the segment being read
+     * @param inputStream the stream reading the segment from storage
+     * @return the wrapped stream, or the given stream if the segment will not be cached
+     */
+    public InputStream cacheWhileReading(Segment segment, InputStream inputStream) {
+        if (segment.getSize() <= 0 || segment.getSize() > maxBytes) {
+            return inputStream;
+        }
+
+        try {
+            Path tempFile = Files.createTempFile(directory, "segment", ".tmp");
+            return new CachingInputStream(inputStream, fileName(segment), tempFile, segment.getSize());
+        } catch (IOException e) {
+            log.warn("Unable to cache segment {}", segment.objectName(), e);
+            return inputStream;
+        }
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void add(String fileName, Path tempFile, long size) {
+        try {
+            Files.move(tempFile, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Unable to cache segment file {}", fileName, e);
+            deleteQuietly(tempFile);
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(fileName, size);
+            cachedBytes += size - (previous == null ? 0 : previous);
+
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                cachedBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+
+        evicted.forEach(evictedFileName -> deleteQuietly(directory.resolve(evictedFileName)));
+    }
+
+    private void remove(String fileName) {
+        synchronized (this) {
+            Long size = entries.remove(fileName);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+        deleteQuietly(directory.resolve(fileName));
+    }
+
+    private static String fileName(Segment segment) {
+        String key = segment.objectName() + "@" + segment.getOffset() + "+" + segment.getSize();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete cached segment file {}", file, e);
+        }
+    }
+
+    private class CachingInputStream extends FilterInputStream {
+        private final String fileName;
+        private final Path tempFile;
+        private final long size;
+        private OutputStream cacheOutputStream;
+        private long count;
+
+        CachingInputStream(InputStream inputStream, String fileName, Path tempFile, long size) throws IOException {
+            super(inputStream);
+            this.fileName = fileName;
+            this.tempFile = tempFile;
+            this.size = size;
+            cacheOutputStream = Files.newOutputStream(tempFile);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                cache(new byte[] { (byte) value }, 0, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                cache(bytes, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are never seen, so the content cannot be cached
+            abandon();
+            return super.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            abandon();
+            super.close();
+        }
+
+        private void cache(byte[] bytes, int offset, int length) {
+            if (cacheOutputStream == null) {
+                return;
+            }
+
+            try {
+                cacheOutputStream.write(bytes, offset, length);
+                count += length;
+                if (count == size) {
+                    cacheOutputStream.close();
+                    cacheOutputStream = null;
+                    add(fileName, tempFile, size);
+                } else if (count > size) {
+                    abandon();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to cache segment file {}", fileName, e);
+                abandon();
+            }
+        }
+
+        private void abandon() {
+            if (cacheOutputStream == null) {
+                return;
+            }
+
+            try {
+                cacheOutputStream.close();
+            } catch (IOException ignored) {
+                // the file is deleted either way
+            }
+            cacheOutputStream = null;
+            deleteQuietly(tempFile);
+        }
+    }
+}
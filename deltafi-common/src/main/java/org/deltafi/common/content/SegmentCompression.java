@@ -0,0 +1,339 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.content;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format of compressed segment objects. Content is split into blocks of {@link #BLOCK_SIZE} bytes that are compressed
+ * independently with LZ4, so reads can start at any block. Each block is written as a header (type, uncompressed
+ * length, stored length) followed by the stored bytes, which are left uncompressed when LZ4 does not shrink them. The
+ * blocks are followed by an index holding the object offset of each block, then a footer with the block size, the
+ * block count, the uncompressed size, and a magic number.
+ */
+final class SegmentCompression {
+    static final int BLOCK_SIZE = 256 * 1024;
+    // bytes read from the end of an object to find its index, larger indexes take a second read
+    static final int INDEX_READ_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x44465a31; // DFZ1
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+    private static final int BLOCK_HEADER_SIZE = 1 + Integer.BYTES + Integer.BYTES;
+    private static final int FOOTER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    private SegmentCompression() {}
+
+    /**
+     * Compress the bytes into the segment object format
+     *
+     * @param bytes the bytes to compress
+     * @return the compressed object
+     */
+    static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length / 2);
+        try (CompressingOutputStream compressingOutputStream = new CompressingOutputStream(byteArrayOutputStream)) {
+            compressingOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Get the size of the index and footer at the end of a compressed object
+     *
+     * @param tail bytes read from the end of the object, at least the footer
+     * @return the number of bytes at the end of the object holding the index and footer
+     * @throws IOException if the tail does not end with a compressed segment footer
+     */
+    static int indexSize(byte[] tail) throws IOException {
+        ByteBuffer footer = footer(tail);
+        int blockCount = footer.getInt(Integer.BYTES);
+        return blockCount * Long.BYTES + FOOTER_SIZE;
+    }
+
+    /**
+     * Read the index of a compressed object
+     *
+     * @param tail bytes read from the end of the object, at least {@link #indexSize} bytes
+     * @param objectSize the size of the object
+     * @return the index
+     * @throws IOException if the tail does not hold the index
+     */
+    static Index readIndex(byte[] tail, long objectSize) throws IOException {
+        ByteBuffer footer = footer(tail);
+        int blockSize = footer.getInt(0);
+        int blockCount = footer.getInt(Integer.BYTES);
+        long uncompressedSize = footer.getLong(Integer.BYTES * 2);
+        int indexSize = blockCount * Long.BYTES + FOOTER_SIZE;
+        if (blockSize <= 0 || blockCount <= 0 || indexSize > tail.length) {
+            throw new IOException("Invalid compressed segment index");
+        }
+
+        ByteBuffer index = ByteBuffer.wrap(tail, tail.length - indexSize, blockCount * Long.BYTES);
+        long[] blockOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = index.getLong();
+        }
+        return new Index(blockSize, blockOffsets, objectSize - indexSize, uncompressedSize);
+    }
+
+    private static ByteBuffer footer(byte[] tail) throws IOException {
+        if (tail.length < FOOTER_SIZE) {
+            throw new IOException("Compressed segment is too short");
+        }
+        ByteBuffer footer = ByteBuffer.wrap(tail, tail.length - FOOTER_SIZE, FOOTER_SIZE).slice();
+        if (footer.getInt(FOOTER_SIZE - Integer.BYTES) != MAGIC) {
+            throw new IOException("Compressed segment footer not found");
+        }
+        return footer;
+    }
+
+    /**
+     * The object offsets of the blocks of a compressed object
+     *
+     * @param blockSize the uncompressed size of each block except the last
+     * @param blockOffsets the object offset of each block
+     * @param indexOffset the object offset of the index, where the last block ends
+     * @param uncompressedSize the uncompressed size of the object
+     */
+    record Index(int blockSize, long[] blockOffsets, long indexOffset, long uncompressedSize) {
+        int blockCount() {
+            return blockOffsets.length;
+        }
+
+        long blockStart(int block) {
+            return blockOffsets[block];
+        }
+
+        long blockEnd(int block) {
+            return block + 1 < blockOffsets.length ? blockOffsets[block + 1] : indexOffset;
+        }
+    }
+
+    /**
+     * Compresses everything written to it into the segment object format. The index and footer are written by
+     * {@link #finish}, which leaves the underlying stream open, or by {@link #close}. Nothing is written if no bytes
+     * were written.
+     */
+    static class CompressingOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+        private final List<Long> blockOffsets = new ArrayList<>();
+        private int blockLength;
+        private long position;
+        private long uncompressedSize;
+        private boolean finished;
+
+        CompressingOutputStream(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (blockLength == BLOCK_SIZE) {
+                writeBlock();
+            }
+            block[blockLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (blockLength == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                int count = Math.min(length, BLOCK_SIZE - blockLength);
+                System.arraycopy(bytes, offset, block, blockLength, count);
+                blockLength += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int compressedLength = compressor.compress(block, 0, blockLength, compressed, 0, compressed.length);
+            boolean stored = compressedLength < blockLength;
+            int storedLength = stored ? compressedLength : blockLength;
+
+            blockOffsets.add(position);
+            out.writeByte(stored ? LZ4 : RAW);
+            out.writeInt(blockLength);
+            out.writeInt(storedLength);
+            out.write(stored ? compressed : block, 0, storedLength);
+            position += BLOCK_HEADER_SIZE + storedLength;
+            uncompressedSize += blockLength;
+            blockLength = 0;
+        }
+
+        long getUncompressedSize() {
+            return uncompressedSize + blockLength;
+        }
+
+        /**
+         * Write the remaining block, the index, and the footer without closing the underlying stream
+         *
+         * @throws IOException if writing to the underlying stream fails
+         */
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            if (blockLength > 0) {
+                writeBlock();
+            }
+            if (!blockOffsets.isEmpty()) {
+                for (long blockOffset : blockOffsets) {
+                    out.writeLong(blockOffset);
+                }
+                out.writeInt(BLOCK_SIZE);
+                out.writeInt(blockOffsets.size());
+                out.writeLong(uncompressedSize);
+                out.writeInt(MAGIC);
+            }
+            out.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+    }
+
+    /**
+     * Decompresses blocks of a compressed object, starting at the beginning of a block. Whole blocks before the
+     * requested range are skipped without being decompressed.
+     */
+    static class DecompressingInputStream extends InputStream {
+        private final DataInputStream in;
+        private long skip;
+        private long remaining;
+        private byte[] block = new byte[0];
+        private byte[] stored = new byte[0];
+        private int blockPosition;
+        private int blockLength;
+
+        /**
+         * @param in the compressed object, positioned at the start of a block
+         * @param skip the number of uncompressed bytes to skip
+         * @param size the number of uncompressed bytes to read after skipping
+         */
+        DecompressingInputStream(InputStream in, long skip, long size) {
+            this.in = new DataInputStream(in);
+            this.skip = skip;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            remaining--;
+            return block[blockPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(length, blockLength - blockPosition), remaining);
+            System.arraycopy(block, blockPosition, bytes, offset, count);
+            blockPosition += count;
+            remaining -= count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            while (remaining > 0 && blockPosition == blockLength) {
+                int type = in.read();
+                if (type == -1) {
+                    throw new EOFException("Compressed segment ended before the requested range");
+                }
+                int uncompressedLength = in.readInt();
+                int storedLength = in.readInt();
+                if ((type != RAW && type != LZ4) || uncompressedLength <= 0 || storedLength <= 0 ||
+                        (type == RAW && storedLength != uncompressedLength)) {
+                    throw new IOException("Invalid compressed segment block");
+                }
+
+                if (skip >= uncompressedLength) {
+                    in.skipNBytes(storedLength);
+                    skip -= uncompressedLength;
+                    continue;
+                }
+
+                if (block.length < uncompressedLength) {
+                    block = new byte[uncompressedLength];
+                }
+                if (type == RAW) {
+                    in.readFully(block, 0, uncompressedLength);
+                } else {
+                    if (stored.length < storedLength) {
+                        stored = new byte[storedLength];
+                    }
+                    in.readFully(stored, 0, storedLength);
+                    decompress(storedLength, uncompressedLength);
+                }
+                blockLength = uncompressedLength;
+                blockPosition = (int) skip;
+                skip = 0;
+            }
+            return remaining > 0;
+        }
+
+        private void decompress(int storedLength, int uncompressedLength) throws IOException {
+            try {
+                if (LZ4_FACTORY.safeDecompressor().decompress(stored, 0, storedLength, block, 0, uncompressedLength) !=
+                        uncompressedLength) {
+                    throw new IOException("Compressed segment block is shorter than its header states");
+                }
+            } catch (LZ4Exception e) {
+                throw new IOException("Invalid compressed segment block", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.content;
+
+import org.deltafi.common.storage.s3.ObjectStorageException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads the segments of a content in order, opening each segment only as the read approaches it instead of opening
+ * every segment up front. Up to readAhead segments after the one being read are opened on virtual threads so reading
+ * does not stall at segment boundaries. Failures to open a segment after the first are reported as IOExceptions when
+ * the read reaches that segment.
+ */
+class SegmentSequenceInputStream extends InputStream {
+    interface SegmentOpener {
+        InputStream open(Segment segment) throws ObjectStorageException;
+    }
+
+    private final List<Segment> segments;
+    private final SegmentOpener segmentOpener;
+    private final int readAhead;
+    private final Deque<CompletableFuture<InputStream>> opening = new ArrayDeque<>();
+    private int nextToOpen;
+    private InputStream current;
+    // reported again by every read once a segment fails to open so the content is never silently truncated
+    private IOException failure;
+
+    /**
+     * Open the first segment, reporting a failure to open it to the caller
+     * @param segments the segments of the content, at least one
+     * @param segmentOpener opens the stream of a segment
+     * @param readAhead the number of segments to open ahead of the one being read, 0 to open each segment when the
+     * previous one is finished
+     * @throws ObjectStorageException if the first segment cannot be opened
+     */
+    SegmentSequenceInputStream(List<Segment> segments, SegmentOpener segmentOpener, int readAhead)
+            throws ObjectStorageException {
+        this.segments = segments;
+        this.segmentOpener = segmentOpener;
+        this.readAhead = readAhead;
+
+        current = segmentOpener.open(segments.getFirst());
+        nextToOpen = 1;
+        openAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkFailure();
+        while (current != null) {
+            int value = current.read();
+            if (value != -1) {
+                return value;
+            }
+            nextSegment();
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+
+        checkFailure();
+        while (current != null) {
+            int count = current.read(bytes, offset, length);
+            if (count != -1) {
+                return count;
+            }
+            nextSegment();
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // streams still being opened are closed once they arrive
+        opening.forEach(future -> future.thenAccept(SegmentSequenceInputStream::closeQuietly));
+        opening.clear();
+        nextToOpen = segments.size();
+
+        if (current != null) {
+            InputStream toClose = current;
+            current = null;
+            toClose.close();
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        current.close();
+        current = null;
+
+        try {
+            if (!opening.isEmpty()) {
+                current = await(opening.poll());
+            } else if (nextToOpen < segments.size()) {
+                current = open(segments.get(nextToOpen++));
+            }
+        } catch (IOException e) {
+            failure = e;
+            close();
+            throw e;
+        }
+        openAhead();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void openAhead() {
+        while (opening.size() < readAhead && nextToOpen < segments.size()) {
+            Segment segment = segments.get(nextToOpen++);
+            opening.add(CompletableFuture.supplyAsync(() -> openUnchecked(segment),
+                    runnable -> Thread.ofVirtual().start(runnable)));
+        }
+    }
+
+    private InputStream open(Segment segment) throws IOException {
+        try {
+            return segmentOpener.open(segment);
+        } catch (ObjectStorageException e) {
+            throw new IOException("Unable to open segment " + segment.objectName(), e);
+        }
+    }
+
+    private InputStream openUnchecked(Segment segment) {
+        try {
+            return open(segment);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static InputStream await(CompletableFuture<InputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.thenAccept(SegmentSequenceInputStream::closeQuietly);
+            throw new IOException("Interrupted while opening segment", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+            // nothing was read from it
+        }
+    }
+}
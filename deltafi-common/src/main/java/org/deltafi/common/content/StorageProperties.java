@@ -18,13 +18,31 @@
 package org.deltafi.common.content;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
+/**
+ * @param bucketName the bucket content is stored in
+ * @param packMaxContentSize contents saved together that are no larger than this many bytes are packed into one
+ * object, 0 stores each content in its own object
+ * @param segmentReadAhead the number of segments opened ahead of the one being read when loading content made of
+ * several segments
+ * @param compressContent compress content saved by this process, compressed content is always readable
+ */
 @ConfigurationProperties("storage")
-public record StorageProperties(String bucketName) {
+public record StorageProperties(String bucketName, long packMaxContentSize,
+        @DefaultValue("2") int segmentReadAhead, boolean compressContent) {
     public static final String STORAGE = "storage";
+    public static final int DEFAULT_SEGMENT_READ_AHEAD = 2;
+
+    @ConstructorBinding
     public StorageProperties {
         if (bucketName == null || bucketName.isBlank()) {
             bucketName = STORAGE;
         }
     }
+
+    public StorageProperties(String bucketName) {
+        this(bucketName, 0, DEFAULT_SEGMENT_READ_AHEAD, false);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+/**
+ * Optional queue entry encodings that a queue consumer can advertise support for. Each consumer instance advertises
+ * its capabilities with a heartbeat per queue, and a capability is only used for a queue when every live consumer of
+ * the queue advertises it.
+ */
+public enum QueueCapability {
+    /**
+     * The consumer can read Smile encoded entries
+     */
+    SMILE,
+    /**
+     * The consumer can read LZ4 compressed entries
+     */
+    LZ4,
+    /**
+     * The consumer reads every shard of the queue listed in the shard count hash
+     */
+    SHARDS
+}
@@ -0,0 +1,71 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+import org.deltafi.common.types.ActionContext;
+import org.deltafi.common.types.ActionInput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Naming of the index keys that action inputs are put into their queues with, so the core can check whether a queue
+ * holds an action input for a flow or an action without scanning it.
+ */
+public class QueueIndexKeys {
+    private QueueIndexKeys() {}
+
+    /**
+     * Get the index key of action inputs for the action
+     *
+     * @param actionName the name of the action
+     * @return the index key
+     */
+    public static String actionKey(String actionName) {
+        return "action:" + actionName;
+    }
+
+    /**
+     * Get the index key of action inputs for the flow
+     *
+     * @param flowId the id of the flow
+     * @return the index key
+     */
+    public static String flowKey(UUID flowId) {
+        return "flow:" + flowId;
+    }
+
+    /**
+     * Get the index keys to put the action input into its queue with
+     *
+     * @param actionInput the action input
+     * @return the index keys of its flow and action
+     */
+    public static List<String> forActionInput(ActionInput actionInput) {
+        ActionContext context = actionInput.getActionContext();
+        List<String> indexKeys = new ArrayList<>(2);
+        if (context.getFlowId() != null) {
+            indexKeys.add(flowKey(context.getFlowId()));
+        }
+        if (context.getActionName() != null) {
+            indexKeys.add(actionKey(context.getActionName()));
+        }
+        return indexKeys;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Encodes and decodes queue entries. Entries are written as JSON or as Smile. Smile entries always start with the Smile
+ * header, which carries the format version, so readers can tell the two formats apart without any out-of-band
+ * information. Large entries may additionally be LZ4 compressed, which is marked by a prefix that neither JSON nor
+ * Smile can start with. Readers accept every combination regardless of how they are configured to write.
+ */
+public class QueuePayloadCodec {
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    // marker followed by the uncompressed length as a big-endian int, then the LZ4 block
+    private static final byte[] LZ4_MARKER = {(byte) 0xDF, 'L', 'Z', '4'};
+    private static final int LZ4_HEADER_LENGTH = LZ4_MARKER.length + Integer.BYTES;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    public static final ObjectMapper JSON_MAPPER = configure(new ObjectMapper());
+    private static final ObjectMapper SMILE_MAPPER = configure(new SmileMapper());
+
+    static {
+        // keep UUIDs as strings in Smile so they remain searchable in the raw queue entries
+        SMILE_MAPPER.configOverride(UUID.class).setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.STRING));
+    }
+
+    private QueuePayloadCodec() {}
+
+    private static ObjectMapper configure(ObjectMapper objectMapper) {
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.USE_LONG_FOR_INTS, true)
+                .registerModule(new JavaTimeModule());
+        objectMapper.getFactory().setStreamReadConstraints(StreamReadConstraints.builder()
+                .maxStringLength(MAX_STRING_LENGTH)
+                .build());
+        return objectMapper;
+    }
+
+    /**
+     * Encode the value in the given format
+     *
+     * @param value the value to encode
+     * @param format the format to write
+     * @return the encoded bytes
+     * @throws JsonProcessingException if the value cannot be serialized
+     */
+    public static byte[] encode(Object value, QueuePayloadFormat format) throws JsonProcessingException {
+        return (format == QueuePayloadFormat.SMILE ? SMILE_MAPPER : JSON_MAPPER).writeValueAsBytes(value);
+    }
+
+    /**
+     * Encode the value in the given format, compressing the result if it is at least compressionThreshold bytes
+     *
+     * @param value the value to encode
+     * @param format the format to write
+     * @param compressionThreshold the minimum encoded size to compress, compression is disabled if 0 or less
+     * @return the encoded bytes
+     * @throws JsonProcessingException if the value cannot be serialized
+     */
+    public static byte[] encode(Object value, QueuePayloadFormat format, int compressionThreshold)
+            throws JsonProcessingException {
+        byte[] encoded = encode(value, format);
+        return (compressionThreshold > 0 && encoded.length >= compressionThreshold) ? compress(encoded) : encoded;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+        int maxCompressedLength = compressor.maxCompressedLength(bytes.length);
+        byte[] compressed = new byte[LZ4_HEADER_LENGTH + maxCompressedLength];
+        ByteBuffer.wrap(compressed).put(LZ4_MARKER).putInt(bytes.length);
+        int compressedLength = compressor.compress(bytes, 0, bytes.length, compressed, LZ4_HEADER_LENGTH,
+                maxCompressedLength);
+
+        // not worth storing in compressed form if it didn't shrink
+        if (LZ4_HEADER_LENGTH + compressedLength >= bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOf(compressed, LZ4_HEADER_LENGTH + compressedLength);
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        int length = ByteBuffer.wrap(bytes, LZ4_MARKER.length, Integer.BYTES).getInt();
+        return LZ4_FACTORY.safeDecompressor().decompress(bytes, LZ4_HEADER_LENGTH, bytes.length - LZ4_HEADER_LENGTH,
+                length);
+    }
+
+    /**
+     * Decode an entry written in either format, compressed or not
+     *
+     * @param bytes the encoded entry
+     * @param type the class to decode into
+     * @return the decoded value
+     * @param <T> the type to decode into
+     * @throws JsonProcessingException if the entry cannot be deserialized
+     */
+    public static <T> T decode(byte[] bytes, Class<T> type) throws JsonProcessingException {
+        if (isCompressed(bytes)) {
+            bytes = decompress(bytes);
+        }
+
+        try {
+            return (isSmile(bytes) ? SMILE_MAPPER : JSON_MAPPER).readValue(bytes, type);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check if the entry starts with the LZ4 compression marker
+     *
+     * @param bytes the encoded entry
+     * @return true if the entry was compressed
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes != null && bytes.length >= LZ4_HEADER_LENGTH &&
+                Arrays.equals(bytes, 0, LZ4_MARKER.length, LZ4_MARKER, 0, LZ4_MARKER.length);
+    }
+
+    /**
+     * Check if the entry starts with the Smile header
+     *
+     * @param bytes the encoded entry
+     * @return true if the entry was written as Smile
+     */
+    public static boolean isSmile(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == SmileConstants.HEADER_BYTE_1 &&
+                bytes[1] == SmileConstants.HEADER_BYTE_2 && bytes[2] == SmileConstants.HEADER_BYTE_3;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Naming of the keys of sharded action queues. Shard 0 of a queue is stored under the queue name itself so an
+ * unsharded queue and its consumers are unaffected, and every other shard is stored under the queue name followed by
+ * the shard separator and the shard number.
+ */
+public class QueueShards {
+    public static final char SHARD_SEPARATOR = '#';
+
+    private QueueShards() {}
+
+    /**
+     * Get the key of a shard of the queue
+     *
+     * @param queueName the name of the queue
+     * @param shard the shard number
+     * @return the key of the shard
+     */
+    public static String shardKey(String queueName, int shard) {
+        return shard == 0 ? queueName : queueName + SHARD_SEPARATOR + shard;
+    }
+
+    /**
+     * Get the keys of all shards of the queue
+     *
+     * @param queueName the name of the queue
+     * @param shards the number of shards
+     * @return the keys of the shards, starting with the queue name
+     */
+    public static List<String> shardKeys(String queueName, int shards) {
+        List<String> keys = new ArrayList<>(Math.max(shards, 1));
+        for (int shard = 0; shard < Math.max(shards, 1); shard++) {
+            keys.add(shardKey(queueName, shard));
+        }
+        return keys;
+    }
+
+    /**
+     * Get the shard of the queue that entries for the DeltaFile are written to
+     *
+     * @param did the id of the DeltaFile
+     * @param shards the number of shards
+     * @return the shard number
+     */
+    public static int shardFor(UUID did, int shards) {
+        return (did == null || shards <= 1) ? 0 : Math.floorMod(did.hashCode(), shards);
+    }
+
+    /**
+     * Get the name of the queue that the key belongs to
+     *
+     * @param key a queue name or shard key
+     * @return the key with any shard suffix removed
+     */
+    public static String queueName(String key) {
+        int separator = key.lastIndexOf(SHARD_SEPARATOR);
+        if (separator <= 0 || separator == key.length() - 1) {
+            return key;
+        }
+        for (int i = separator + 1; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return key;
+            }
+        }
+        return key.substring(0, separator);
+    }
+}
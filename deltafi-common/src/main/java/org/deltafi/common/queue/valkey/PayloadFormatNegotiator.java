@@ -0,0 +1,137 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue.valkey;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.deltafi.common.queue.QueueCapability;
+import org.deltafi.common.queue.QueuePayloadCodec;
+import org.deltafi.common.queue.QueuePayloadFormat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Chooses how entries are written to a queue. Entries are only written as Smile when the writer prefers Smile and every
+ * live consumer of the queue has recently advertised that it can read Smile. Likewise, large entries are only
+ * compressed when compression is enabled and every live consumer has advertised that it can decompress them. While any
+ * consumer of the queue lacks a capability, such as during a rolling upgrade, writers fall back to plain JSON, which
+ * keeps older and non-Java consumers working. Other advertised capabilities, such as reading from
+ * sharded queues, can be checked with {@link #supports(String, QueueCapability)}.
+ */
+public class PayloadFormatNegotiator {
+    private static final Duration REFRESH_INTERVAL = Duration.ofSeconds(10);
+
+    private final ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
+    private final Supplier<QueuePayloadFormat> preferredFormat;
+    private final IntSupplier compressionThreshold;
+    private final Clock clock;
+
+    private volatile Map<QueueCapability, Set<String>> capableQueues = Map.of();
+    private volatile Instant nextRefresh = Instant.MIN;
+
+    public PayloadFormatNegotiator(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue,
+            Supplier<QueuePayloadFormat> preferredFormat, Clock clock) {
+        this(valkeyKeyedBlockingQueue, preferredFormat, () -> 0, clock);
+    }
+
+    public PayloadFormatNegotiator(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue,
+            Supplier<QueuePayloadFormat> preferredFormat, IntSupplier compressionThreshold, Clock clock) {
+        this.valkeyKeyedBlockingQueue = valkeyKeyedBlockingQueue;
+        this.preferredFormat = preferredFormat;
+        this.compressionThreshold = compressionThreshold;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the format to use when writing to the given queue
+     *
+     * @param queueName the name of the queue that will be written to
+     * @return the negotiated format
+     */
+    public QueuePayloadFormat formatFor(String queueName) {
+        if (preferredFormat.get() != QueuePayloadFormat.SMILE) {
+            return QueuePayloadFormat.JSON;
+        }
+
+        return supports(queueName, QueueCapability.SMILE) ? QueuePayloadFormat.SMILE : QueuePayloadFormat.JSON;
+    }
+
+    /**
+     * Get the minimum encoded size at which entries written to the given queue are compressed
+     *
+     * @param queueName the name of the queue that will be written to
+     * @return the compression threshold in bytes, or 0 if entries to the queue must not be compressed
+     */
+    public int compressionThresholdFor(String queueName) {
+        int threshold = compressionThreshold.getAsInt();
+        if (threshold <= 0) {
+            return 0;
+        }
+
+        return supports(queueName, QueueCapability.LZ4) ? threshold : 0;
+    }
+
+    /**
+     * Check if every consumer of the given queue has recently advertised the capability
+     *
+     * @param queueName the name of the queue that will be written to
+     * @param capability the capability to check
+     * @return true if all consumers support the capability
+     */
+    public boolean supports(String queueName, QueueCapability capability) {
+        refresh();
+        return capableQueues.getOrDefault(capability, Set.of()).contains(queueName);
+    }
+
+    /**
+     * Encode the value using the format and compression negotiated for the given queue
+     *
+     * @param value the value to encode
+     * @param queueName the name of the queue that will be written to
+     * @return the encoded bytes
+     * @throws JsonProcessingException if the value cannot be serialized
+     */
+    public byte[] encode(Object value, String queueName) throws JsonProcessingException {
+        return QueuePayloadCodec.encode(value, formatFor(queueName), compressionThresholdFor(queueName));
+    }
+
+    private void refresh() {
+        Instant now = clock.instant();
+        if (now.isAfter(nextRefresh)) {
+            Map<QueueCapability, Set<String>> refreshed = new EnumMap<>(QueueCapability.class);
+            for (QueueCapability capability : QueueCapability.values()) {
+                refreshed.put(capability, new HashSet<>());
+            }
+            valkeyKeyedBlockingQueue.getConsumerCapabilities().forEach((queueName, consumers) -> {
+                Set<QueueCapability> shared = EnumSet.allOf(QueueCapability.class);
+                consumers.forEach(shared::retainAll);
+                shared.forEach(capability -> refreshed.get(capability).add(queueName));
+            });
+            capableQueues = refreshed;
+            nextRefresh = now.plus(REFRESH_INTERVAL);
+        }
+    }
+}
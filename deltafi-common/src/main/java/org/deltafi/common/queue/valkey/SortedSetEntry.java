@@ -20,14 +20,26 @@ package org.deltafi.common.queue.valkey;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @AllArgsConstructor
 @Data
 public class SortedSetEntry {
     private String key;
-    private String value;
+    private byte[] value;
     private OffsetDateTime score;
+    // fields to point at this entry in the queue's index, see ValkeyKeyedBlockingQueue#containsIndexed
+    private List<String> indexKeys;
+
+    public SortedSetEntry(String key, byte[] value, OffsetDateTime score) {
+        this(key, value, score, List.of());
+    }
+
+    public SortedSetEntry(String key, String value, OffsetDateTime score) {
+        this(key, value.getBytes(StandardCharsets.UTF_8), score);
+    }
 
     /**
      * Converts the score to milliseconds since the epoch.
@@ -37,4 +49,13 @@ public class SortedSetEntry {
     public long getScoreEpochMilli() {
         return score.toInstant().toEpochMilli();
     }
+
+    /**
+     * Get the value decoded as a UTF-8 string. Only meaningful for entries that were not written in a binary format.
+     *
+     * @return the value as a string
+     */
+    public String getValueAsString() {
+        return new String(value, StandardCharsets.UTF_8);
+    }
 }
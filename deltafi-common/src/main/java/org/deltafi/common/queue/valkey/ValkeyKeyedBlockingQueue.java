@@ -23,14 +23,20 @@ import io.valkey.params.ZAddParams;
 import io.valkey.resps.ScanResult;
 import io.valkey.resps.Tuple;
 import io.valkey.util.KeyValue;
+import io.valkey.util.SafeEncoder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.deltafi.common.action.EventQueueProperties;
+import org.deltafi.common.queue.QueueCapability;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Predicate;
 
 /**
@@ -42,6 +48,71 @@ public class ValkeyKeyedBlockingQueue {
     public static final String HEARTBEAT_HASH = "org.deltafi.action-queue.heartbeat";
     public static final String LONG_RUNNING_TASKS_HASH = "org.deltafi.action-queue.long-running-tasks";
     public static final String MONITOR_STATUS_HASH = "org.deltafi.monitor.status";
+    public static final String INDEX_HASH_PREFIX = "org.deltafi.action-queue.index.";
+    public static final String QUEUE_SHARDS_HASH = "org.deltafi.action-queue.shard-counts";
+    public static final String INSTANCE_HEARTBEAT_HASH = "org.deltafi.action-queue.instances";
+
+    private static final String INSTANCE_SEPARATOR = "#";
+    private static final String LEGACY_INSTANCE = "legacy";
+
+    /*
+     * The index of a queue is a hash mapping each index field to the score and value of the queued entry with the
+     * highest score that was put with it. Consumers pop the lowest scores first, so while any entry put with a field is
+     * queued, the one the field points at is too. The field is only moved to a new entry when that entry scores at
+     * least as high or the entry it points at is gone, which keeps a late entry with an old score from being missed.
+     */
+    private static final byte[] PUT_INDEXED_SCRIPT = SafeEncoder.encode("""
+            local added = redis.call('ZADD', KEYS[1], 'NX', ARGV[1], ARGV[2])
+            if added == 1 then
+                for i = 3, #ARGV do
+                    local current = redis.call('HGET', KEYS[2], ARGV[i])
+                    local replace = true
+                    if current then
+                        local separator = string.find(current, '\\n', 1, true)
+                        replace = tonumber(string.sub(current, 1, separator - 1)) <= tonumber(ARGV[1]) or
+                                not redis.call('ZSCORE', KEYS[1], string.sub(current, separator + 1))
+                    end
+                    if replace then
+                        redis.call('HSET', KEYS[2], ARGV[i], ARGV[1] .. '\\n' .. ARGV[2])
+                    end
+                end
+            end
+            return added
+            """);
+
+    // 1 when the entry the index field points at is still queued, otherwise the field is dropped and 0 is returned
+    private static final byte[] CONTAINS_INDEXED_SCRIPT = SafeEncoder.encode("""
+            local current = redis.call('HGET', KEYS[2], ARGV[1])
+            if not current then
+                return 0
+            end
+            local separator = string.find(current, '\\n', 1, true)
+            if redis.call('ZSCORE', KEYS[1], string.sub(current, separator + 1)) then
+                return 1
+            end
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            return 0
+            """);
+
+    // drop the index of a queue that no longer exists, otherwise drop the given fields whose entries are gone
+    private static final byte[] PRUNE_INDEX_SCRIPT = SafeEncoder.encode("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                redis.call('DEL', KEYS[2])
+                return 0
+            end
+            local removed = 0
+            for i = 1, #ARGV do
+                local current = redis.call('HGET', KEYS[2], ARGV[i])
+                if current then
+                    local separator = string.find(current, '\\n', 1, true)
+                    if not redis.call('ZSCORE', KEYS[1], string.sub(current, separator + 1)) then
+                        redis.call('HDEL', KEYS[2], ARGV[i])
+                        removed = removed + 1
+                    end
+                end
+            end
+            return removed
+            """);
 
     private final JedisPool jedisPool;
 
@@ -107,6 +178,71 @@ public class ValkeyKeyedBlockingQueue {
         }
     }
 
+    /**
+     * Check whether the queue holds an entry that was put with the given index key. The index points the key at a
+     * queued entry, so this is a hash read and a sorted set lookup regardless of the size of the queue. Entries put
+     * without index keys, such as those queued by a previous version, are not found.
+     *
+     * @param key the key for the queue
+     * @param indexKey the index key given when the entry was put
+     * @return true if an entry put with the index key is queued
+     */
+    public boolean containsIndexed(String key, String indexKey) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object contains = jedis.eval(CONTAINS_INDEXED_SCRIPT,
+                    List.of(SafeEncoder.encode(key), SafeEncoder.encode(indexKey(key))),
+                    List.of(SafeEncoder.encode(indexKey)));
+            return Long.valueOf(1).equals(contains);
+        }
+    }
+
+    /**
+     * Remove index fields whose entries have been taken from their queues. Consumers pop entries without maintaining
+     * the index, so fields that are not looked up again are cleaned up here. The index is dropped entirely when its
+     * queue no longer exists.
+     */
+    public void pruneIndexes() {
+        ScanParams indexScanParams = new ScanParams().match(INDEX_HASH_PREFIX + "*").count(100);
+        try (Jedis jedis = jedisPool.getResource()) {
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> indexes = jedis.scan(cursor, indexScanParams);
+                for (String index : indexes.getResult()) {
+                    pruneIndex(jedis, index.substring(INDEX_HASH_PREFIX.length()), index);
+                }
+                cursor = indexes.getCursor();
+            } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+        }
+    }
+
+    private void pruneIndex(Jedis jedis, String key, String index) {
+        List<byte[]> keys = List.of(SafeEncoder.encode(key), SafeEncoder.encode(index));
+        ScanParams fieldScanParams = new ScanParams().count(1000);
+        byte[] binaryIndex = SafeEncoder.encode(index);
+        int removed = 0;
+        byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+        do {
+            ScanResult<Map.Entry<byte[], byte[]>> fields = jedis.hscan(binaryIndex, cursor, fieldScanParams);
+            List<byte[]> fieldNames = fields.getResult().stream().map(Map.Entry::getKey).toList();
+            Object result = jedis.eval(PRUNE_INDEX_SCRIPT, keys, fieldNames);
+            if (result instanceof Long count) {
+                removed += count.intValue();
+            }
+            cursor = fields.getCursorAsBytes();
+        } while (!Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY));
+        log.debug("Pruned {} index fields of queue {}", removed, key);
+    }
+
+    /**
+     * Get the name of the hash holding the index for the given queue
+     *
+     * @param key the key for the queue
+     * @return the name of the index hash
+     */
+    public static String indexKey(String key) {
+        return INDEX_HASH_PREFIX + key;
+    }
+
     /**
      * Drop all queues in key list.
      *
@@ -119,22 +255,49 @@ public class ValkeyKeyedBlockingQueue {
     }
 
     private void drop(Jedis jedis, Collection<String> keys) {
-        keys.forEach(jedis::del);
+        keys.forEach(key -> jedis.del(key, indexKey(key)));
     }
 
     private void put(Jedis jedis, SortedSetEntry entry) {
-        jedis.zadd(entry.getKey(), entry.getScoreEpochMilli(), entry.getValue(), ZAddParams.zAddParams().nx());
+        if (isIndexed(entry)) {
+            jedis.eval(PUT_INDEXED_SCRIPT, indexedScriptKeys(entry), indexedScriptArgs(entry));
+        } else {
+            jedis.zadd(SafeEncoder.encode(entry.getKey()), entry.getScoreEpochMilli(), entry.getValue(), ZAddParams.zAddParams().nx());
+        }
+    }
+
+    private static boolean isIndexed(SortedSetEntry entry) {
+        return entry.getIndexKeys() != null && !entry.getIndexKeys().isEmpty();
+    }
+
+    private static List<byte[]> indexedScriptKeys(SortedSetEntry entry) {
+        return List.of(SafeEncoder.encode(entry.getKey()), SafeEncoder.encode(indexKey(entry.getKey())));
+    }
+
+    private static List<byte[]> indexedScriptArgs(SortedSetEntry entry) {
+        List<byte[]> args = new ArrayList<>();
+        args.add(SafeEncoder.encode(Long.toString(entry.getScoreEpochMilli())));
+        args.add(entry.getValue());
+        entry.getIndexKeys().forEach(indexKey -> args.add(SafeEncoder.encode(indexKey)));
+        return args;
     }
 
     /**
-     * Puts multiple objects into the queue.
+     * Puts multiple objects into the queue. Entries with index keys are added to the queue's index in the same atomic
+     * step, see {@link #containsIndexed(String, String)}.
      *
      * @param items a list of SortedSetEntry to put into the queue
      */
     public void put(List<SortedSetEntry> items) {
         try (Jedis jedis = jedisPool.getResource()) {
             Pipeline p = jedis.pipelined();
-            items.forEach(item -> p.zadd(item.getKey(), item.getScoreEpochMilli(), item.getValue(), ZAddParams.zAddParams().nx()));
+            items.forEach(item -> {
+                if (isIndexed(item)) {
+                    p.eval(PUT_INDEXED_SCRIPT, indexedScriptKeys(item), indexedScriptArgs(item));
+                } else {
+                    p.zadd(SafeEncoder.encode(item.getKey()), item.getScoreEpochMilli(), item.getValue(), ZAddParams.zAddParams().nx());
+                }
+            });
             p.sync();
         }
     }
@@ -167,6 +330,36 @@ public class ValkeyKeyedBlockingQueue {
         }
     }
 
+    /**
+     * Set a key value pair in valkey and publish the value on the channel with the same name as the key. The stored
+     * value lets new subscribers start from the latest value, and the message lets existing subscribers react without
+     * polling.
+     *
+     * @param key to use as the key and the channel
+     * @param value to store and publish
+     */
+    public void setAndPublish(String key, String value) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline p = jedis.pipelined();
+            p.set(key, value);
+            p.publish(key, value);
+            p.sync();
+        }
+    }
+
+    /**
+     * Subscribe to all channels matching the pattern. This holds a pooled connection and blocks until the subscriber
+     * unsubscribes or the connection fails.
+     *
+     * @param jedisPubSub the subscriber receiving the messages
+     * @param pattern the channel pattern to subscribe to
+     */
+    public void psubscribe(JedisPubSub jedisPubSub, String pattern) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.psubscribe(jedisPubSub, pattern);
+        }
+    }
+
     /**
      * Publish a heartbeat in the form of a timestamp
      *
@@ -178,6 +371,41 @@ public class ValkeyKeyedBlockingQueue {
         }
     }
 
+    /**
+     * Publish heartbeats for several components, advertising the capabilities of this instance for each of them, in a
+     * single round trip
+     *
+     * @param keys the names of the components publishing heartbeats
+     * @param instanceId the unique identifier of the instance consuming from the components
+     * @param capabilities the capabilities supported by the instance
+     */
+    public void setHeartbeats(Collection<String> keys, String instanceId, Collection<QueueCapability> capabilities) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        String now = OffsetDateTime.now().toString();
+        String instanceHeartbeat = instanceHeartbeat(now, capabilities);
+        Map<String, String> heartbeats = new HashMap<>();
+        Map<String, String> instanceHeartbeats = new HashMap<>();
+        keys.forEach(key -> {
+            heartbeats.put(key, now);
+            instanceHeartbeats.put(key + INSTANCE_SEPARATOR + instanceId, instanceHeartbeat);
+        });
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline p = jedis.pipelined();
+            p.hset(HEARTBEAT_HASH, heartbeats);
+            p.hset(INSTANCE_HEARTBEAT_HASH, instanceHeartbeats);
+            p.sync();
+        }
+    }
+
+    private String instanceHeartbeat(String now, Collection<QueueCapability> capabilities) {
+        StringJoiner joiner = new StringJoiner(",", now + " ", "");
+        capabilities.forEach(capability -> joiner.add(capability.name()));
+        return joiner.toString();
+    }
+
     /**
      * Get the list of action queue names that have a heartbeat
      * older than 1 minute
@@ -185,16 +413,140 @@ public class ValkeyKeyedBlockingQueue {
      */
     public Set<String> getRecentQueues() {
         OffsetDateTime staleMarker = OffsetDateTime.now().minusMinutes(1);
-        return heartbeats(null, heartbeat -> heartbeat.isAfter(staleMarker));
+        return heartbeats(HEARTBEAT_HASH, null, heartbeat -> heartbeat.isAfter(staleMarker));
+    }
+
+    /**
+     * Publish the number of shards of each sharded queue. Queues missing from the map are no longer sharded.
+     *
+     * @param queueShards map of queue names to their number of shards
+     */
+    public void setQueueShards(Map<String, Integer> queueShards) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Set<String> stale = new HashSet<>(jedis.hkeys(QUEUE_SHARDS_HASH));
+            stale.removeAll(queueShards.keySet());
+
+            Pipeline p = jedis.pipelined();
+            if (!queueShards.isEmpty()) {
+                Map<String, String> values = new HashMap<>();
+                queueShards.forEach((queueName, shards) -> values.put(queueName, shards.toString()));
+                p.hset(QUEUE_SHARDS_HASH, values);
+            }
+            if (!stale.isEmpty()) {
+                p.hdel(QUEUE_SHARDS_HASH, stale.toArray(new String[0]));
+            }
+            p.sync();
+        }
+    }
+
+    /**
+     * Get the number of shards of each sharded queue
+     *
+     * @return map of queue names to their number of shards, queues that are not sharded are absent
+     */
+    public Map<String, Integer> getQueueShards() {
+        Map<String, Integer> queueShards = new HashMap<>();
+        hgetAll(QUEUE_SHARDS_HASH).forEach((queueName, shards) -> {
+            try {
+                queueShards.put(queueName, Integer.parseInt(shards));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid shard count {} for queue {}", shards, queueName);
+            }
+        });
+        return queueShards;
+    }
+
+    /**
+     * Get the capabilities advertised by each instance that has consumed from a queue within the last minute. Instance
+     * heartbeats older than five minutes are removed.
+     * <p>
+     * Consumers that predate capability negotiation only write the per-queue heartbeat. Instances that advertise
+     * capabilities write the same timestamp to both heartbeats, so a live per-queue heartbeat that matches none of the
+     * instance heartbeats of its queue was written by an older consumer. It is recorded as an instance without
+     * capabilities, which keeps the queue on plain JSON for as long as that heartbeat stays live even after a newer
+     * consumer overwrites the per-queue heartbeat.
+     *
+     * @return map of queue names to the capabilities of each of their live consumers
+     */
+    public Map<String, List<Set<QueueCapability>>> getConsumerCapabilities() {
+        OffsetDateTime staleMarker = OffsetDateTime.now().minusMinutes(1);
+        OffsetDateTime expiredMarker = OffsetDateTime.now().minusMinutes(5);
+        Map<String, List<Set<QueueCapability>>> consumerCapabilities = new HashMap<>();
+        Map<String, Set<String>> instanceTimestamps = new HashMap<>();
+        List<String> expired = new ArrayList<>();
+        hgetAll(INSTANCE_HEARTBEAT_HASH).forEach((field, value) -> {
+            int separator = field.lastIndexOf(INSTANCE_SEPARATOR);
+            String[] parts = value.split(" ", 2);
+            OffsetDateTime heartbeat = parseHeartbeat(parts[0]);
+
+            if (separator < 0 || heartbeat == null || heartbeat.isBefore(expiredMarker)) {
+                expired.add(field);
+                return;
+            }
+
+            String queueName = field.substring(0, separator);
+            instanceTimestamps.computeIfAbsent(queueName, k -> new HashSet<>()).add(parts[0]);
+            if (heartbeat.isAfter(staleMarker)) {
+                consumerCapabilities.computeIfAbsent(queueName, k -> new ArrayList<>())
+                        .add(parseCapabilities(parts.length > 1 ? parts[1] : ""));
+            }
+        });
+
+        Map<String, String> legacyHeartbeats = new HashMap<>();
+        hgetAll(HEARTBEAT_HASH).forEach((queueName, value) -> {
+            OffsetDateTime heartbeat = parseHeartbeat(value);
+            if (heartbeat != null && heartbeat.isAfter(staleMarker) &&
+                    !instanceTimestamps.getOrDefault(queueName, Set.of()).contains(value)) {
+                consumerCapabilities.computeIfAbsent(queueName, k -> new ArrayList<>())
+                        .add(EnumSet.noneOf(QueueCapability.class));
+                legacyHeartbeats.put(queueName + INSTANCE_SEPARATOR + LEGACY_INSTANCE,
+                        instanceHeartbeat(value, List.of()));
+            }
+        });
+
+        if (!legacyHeartbeats.isEmpty() || !expired.isEmpty()) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                Pipeline p = jedis.pipelined();
+                if (!legacyHeartbeats.isEmpty()) {
+                    p.hset(INSTANCE_HEARTBEAT_HASH, legacyHeartbeats);
+                }
+                if (!expired.isEmpty()) {
+                    p.hdel(INSTANCE_HEARTBEAT_HASH, expired.toArray(new String[0]));
+                }
+                p.sync();
+            }
+        }
+
+        return consumerCapabilities;
+    }
+
+    private OffsetDateTime parseHeartbeat(String heartbeat) {
+        try {
+            return OffsetDateTime.parse(heartbeat);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private Set<QueueCapability> parseCapabilities(String capabilities) {
+        Set<QueueCapability> parsed = EnumSet.noneOf(QueueCapability.class);
+        for (String capability : capabilities.split(",")) {
+            try {
+                parsed.add(QueueCapability.valueOf(capability));
+            } catch (IllegalArgumentException e) {
+                // capabilities added by newer consumers are unknown to this reader and cannot be negotiated
+            }
+        }
+        return parsed;
     }
 
     public Set<String> getOldDgsQueues() {
-        return heartbeats("dgs-", heartbeat -> heartbeat.isBefore(OffsetDateTime.now().minusMinutes(5)));
+        return heartbeats(HEARTBEAT_HASH, "dgs-", heartbeat -> heartbeat.isBefore(OffsetDateTime.now().minusMinutes(5)));
     }
 
-    private Set<String> heartbeats(String prefix, Predicate<OffsetDateTime> heartbeatCheck) {
+    private Set<String> heartbeats(String hash, String prefix, Predicate<OffsetDateTime> heartbeatCheck) {
         Set<String> queueNames = new HashSet<>();
-        Map<String,String> heartbeats = hgetAll(HEARTBEAT_HASH);
+        Map<String,String> heartbeats = hgetAll(hash);
         for (Map.Entry<String,String> entry : heartbeats.entrySet()) {
             if (prefix != null && !entry.getKey().startsWith(prefix)) {
                 continue;
@@ -233,6 +585,79 @@ public class ValkeyKeyedBlockingQueue {
         }
     }
 
+    /**
+     * Takes up to maxItems objects out of the queue for a single key.
+     * <p>
+     * This method will block until at least one object is available. Any additional objects that are already waiting,
+     * up to maxItems in total, are popped using the same pooled connection. Values are returned as raw bytes so entries
+     * written in a binary format survive the round trip.
+     *
+     * @param key the key for the objects
+     * @param maxItems the maximum number of objects to take
+     * @return the entries in the order they were put into the queue, empty if the blocking pop returned nothing
+     */
+    public List<SortedSetEntry> take(String key, int maxItems) {
+        return take(List.of(key), maxItems);
+    }
+
+    /**
+     * Takes up to maxItems objects out of any of the given keys, such as the shards of a queue.
+     * <p>
+     * This method will block on all keys at once until at least one object is available. The keys are tried starting
+     * from a random one so that no key is favored. Additional objects that are already waiting, up to maxItems in
+     * total, are popped using the same pooled connection.
+     *
+     * @param keys the keys for the objects
+     * @param maxItems the maximum number of objects to take
+     * @return the entries, each carrying the key it was taken from, empty if the blocking pop returned nothing
+     */
+    public List<SortedSetEntry> take(List<String> keys, int maxItems) {
+        int start = keys.size() > 1 ? ThreadLocalRandom.current().nextInt(keys.size()) : 0;
+        byte[][] binaryKeys = new byte[keys.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            binaryKeys[i] = SafeEncoder.encode(keys.get((start + i) % keys.size()));
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<SortedSetEntry> entries = new ArrayList<>();
+            if (maxItems > 1) {
+                for (byte[] binaryKey : binaryKeys) {
+                    popAvailable(jedis, binaryKey, maxItems - entries.size(), entries);
+                    if (entries.size() >= maxItems) {
+                        break;
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    return entries;
+                }
+            }
+
+            KeyValue<byte[], Tuple> keyValue;
+            try {
+                keyValue = jedis.bzpopmin(0, binaryKeys);
+                entries.add(toSortedSetEntry(SafeEncoder.encode(keyValue.getKey()), keyValue.getValue()));
+            } catch (NullPointerException npe) {
+                // Workaround for bug fixed in redis/jedis but not pulled into valkey/jedis
+                return entries;
+            }
+
+            if (maxItems > 1) {
+                popAvailable(jedis, keyValue.getKey(), maxItems - 1, entries);
+            }
+            return entries;
+        }
+    }
+
+    private static void popAvailable(Jedis jedis, byte[] binaryKey, int count, List<SortedSetEntry> entries) {
+        String key = SafeEncoder.encode(binaryKey);
+        jedis.zpopmin(binaryKey, count).forEach(tuple -> entries.add(toSortedSetEntry(key, tuple)));
+    }
+
+    private static SortedSetEntry toSortedSetEntry(String key, Tuple tuple) {
+        return new SortedSetEntry(key, tuple.getBinaryElement(),
+                OffsetDateTime.ofInstant(Instant.ofEpochMilli((long) tuple.getScore()), ZoneOffset.UTC));
+    }
+
     /**
      * Get a list of unique keys from valkey
      * @return the set of keys
@@ -297,6 +722,29 @@ public class ValkeyKeyedBlockingQueue {
         }
     }
 
+    /**
+     * Record and remove long-running tasks in a single round trip
+     *
+     * @param recorded map of keys to values of the tasks to record
+     * @param removed the keys of the tasks to remove
+     */
+    public void syncLongRunningTasks(Map<String, String> recorded, Collection<String> removed) {
+        if (recorded.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline p = jedis.pipelined();
+            if (!recorded.isEmpty()) {
+                p.hset(LONG_RUNNING_TASKS_HASH, recorded);
+            }
+            if (!removed.isEmpty()) {
+                p.hdel(LONG_RUNNING_TASKS_HASH, removed.toArray(new String[0]));
+            }
+            p.sync();
+        }
+    }
+
     /**
      * Remove a long-running task with the specified key
      *
@@ -335,11 +783,21 @@ public class ValkeyKeyedBlockingQueue {
 
         try (Jedis jedis = jedisPool.getResource()) {
             ScanParams scanParams = new ScanParams().match(prefix + "*").count(100);
-            boolean completed = false;
-            while (!completed){
-                ScanResult<String> scanResult = jedis.scan(ScanParams.SCAN_POINTER_START, scanParams);
-                scanResult.getResult().forEach(key -> result.put(key, jedis.get(key)));
-                completed = scanResult.isCompleteIteration();
+            List<String> keys = new ArrayList<>();
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> scanResult = jedis.scan(cursor, scanParams);
+                keys.addAll(scanResult.getResult());
+                cursor = scanResult.getCursor();
+            } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+
+            if (!keys.isEmpty()) {
+                List<String> values = jedis.mget(keys.toArray(new String[0]));
+                for (int i = 0; i < keys.size(); i++) {
+                    if (values.get(i) != null) {
+                        result.put(keys.get(i), values.get(i));
+                    }
+                }
             }
         }
 
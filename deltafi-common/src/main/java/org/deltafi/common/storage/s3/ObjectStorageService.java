@@ -17,7 +17,10 @@
  */
 package org.deltafi.common.storage.s3;
 
+import org.deltafi.common.io.Writer;
+
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -33,6 +36,29 @@ public interface ObjectStorageService {
 
     ObjectReference putObject(ObjectReference objectReference, InputStream inputStream) throws ObjectStorageException;
 
+    /**
+     * Writes the output of the Writer to object storage on the calling thread. Nothing is stored if the Writer writes
+     * nothing. This default collects the output in memory before storing it, implementations should stream it.
+     * @param objectReference the bucket and name of the object to store
+     * @param writer the Writer producing the content of the object
+     * @return the stored object, with a size of 0 if nothing was stored
+     * @throws ObjectStorageException when the Writer fails or storing the object fails
+     */
+    default ObjectReference writeObject(ObjectReference objectReference, Writer writer) throws ObjectStorageException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writer.write(outputStream);
+        } catch (IOException e) {
+            throw new ObjectStorageException("Failed to write object " + objectReference.getName(), e);
+        }
+
+        if (outputStream.size() == 0) {
+            return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, 0);
+        }
+        return putObjectAsByteArray(new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0,
+                outputStream.size()), outputStream.toByteArray());
+    }
+
     /**
      * Writes the InputStream to object storage for each ObjectReference
      * @param bucket where each ObjectReference should be stored
@@ -0,0 +1,40 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.storage.s3.filesystem;
+
+import org.deltafi.common.storage.s3.minio.MinioAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@AutoConfiguration(before = MinioAutoConfiguration.class)
+@ConditionalOnProperty(prefix = "storage.filesystem", name = "path")
+@EnableConfigurationProperties(FilesystemStorageProperties.class)
+public class FilesystemObjectStorageAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    public FilesystemObjectStorageService filesystemObjectStorageService(
+            FilesystemStorageProperties filesystemStorageProperties) throws IOException {
+        return new FilesystemObjectStorageService(Path.of(filesystemStorageProperties.path()));
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.storage.s3.filesystem;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.io.Writer;
+import org.deltafi.common.storage.s3.MissingContentException;
+import org.deltafi.common.storage.s3.ObjectReference;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.deltafi.common.storage.s3.ObjectStorageService;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stores objects as files under a base directory in the same {bucket}/{did prefix}/{did}/{uuid} layout used by the
+ * S3 endpoint's filesystem backend, so content written here is readable there and deleted by fast delete. Ranges are
+ * read with positional reads and copied with FileChannel transfers. Objects are written to a temporary file and
+ * renamed into place, so a partially written object is never visible.
+ */
+@Slf4j
+public class FilesystemObjectStorageService implements ObjectStorageService {
+    private static final String TEMP_DIRECTORY = ".tmp";
+    private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    private final Path baseDirectory;
+    private final Path tempDirectory;
+
+    public FilesystemObjectStorageService(Path baseDirectory) throws IOException {
+        this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+        // temporary files are kept on the same filesystem so they can be renamed into place atomically
+        this.tempDirectory = Files.createDirectories(this.baseDirectory.resolve(TEMP_DIRECTORY));
+    }
+
+    @Override
+    public InputStream getObject(ObjectReference objectReference) throws ObjectStorageException {
+        Path path = path(objectReference);
+        try {
+            FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+            long end = objectReference.getSize() == ObjectReference.UNKNOWN_SIZE ? fileChannel.size() :
+                    Math.min(fileChannel.size(), objectReference.getOffset() + objectReference.getSize());
+            return new RangeInputStream(fileChannel, objectReference.getOffset(), end);
+        } catch (NoSuchFileException e) {
+            throw new MissingContentException("Object " + objectReference.getName() + " does not exist in bucket " +
+                    objectReference.getBucket());
+        } catch (IOException e) {
+            throw new ObjectStorageException("Failed to read object " + objectReference.getName(), e);
+        }
+    }
+
+    @Override
+    public ObjectReference putObject(ObjectReference objectReference, InputStream inputStream)
+            throws ObjectStorageException {
+        Path path = path(objectReference);
+        Path tempFile = createTempFile();
+        try {
+            long size;
+            try (FileChannel fileChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                size = inputStream instanceof FileInputStream fileInputStream ?
+                        transferFrom(fileChannel, fileInputStream.getChannel()) :
+                        transferFrom(fileChannel, Channels.newChannel(inputStream));
+            }
+            moveIntoPlace(tempFile, path);
+            return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, size);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new ObjectStorageException("Failed to write object " + objectReference.getName(), e);
+        }
+    }
+
+    @Override
+    public ObjectReference writeObject(ObjectReference objectReference, Writer writer) throws ObjectStorageException {
+        Path path = path(objectReference);
+        Path tempFile = createTempFile();
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                writer.write(outputStream);
+            }
+
+            long size = Files.size(tempFile);
+            if (size == 0) {
+                deleteQuietly(tempFile);
+                return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, 0);
+            }
+
+            moveIntoPlace(tempFile, path);
+            return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, size);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            throw new ObjectStorageException("Failed to write object " + objectReference.getName(), e);
+        }
+    }
+
+    @Override
+    public void putObjects(String bucket, Map<ObjectReference, InputStream> objectsToSave)
+            throws ObjectStorageException {
+        List<ObjectReference> completed = new ArrayList<>();
+        try {
+            for (Map.Entry<ObjectReference, InputStream> entry : objectsToSave.entrySet()) {
+                putObject(entry.getKey(), entry.getValue());
+                completed.add(entry.getKey());
+            }
+        } catch (ObjectStorageException e) {
+            log.error("Failed to write many objects in bucket {}, removing {} of {} items that did complete",
+                    bucket, completed.size(), objectsToSave.size(), e);
+            completed.forEach(this::removeObject);
+            throw e;
+        }
+    }
+
+    @Override
+    public void removeObject(ObjectReference objectReference) {
+        try {
+            Files.deleteIfExists(path(objectReference));
+        } catch (IOException e) {
+            log.error("Failed to remove object {} from bucket {}", objectReference.getName(),
+                    objectReference.getBucket());
+        }
+    }
+
+    @Override
+    public boolean removeObjects(String bucket, List<String> objectNames) {
+        boolean hasError = false;
+        for (String objectName : objectNames) {
+            try {
+                Files.deleteIfExists(path(bucket, objectName));
+            } catch (IOException e) {
+                log.error("Failed to remove object {} with an error of {}", objectName, e.getMessage());
+                hasError = true;
+            }
+        }
+        return !hasError;
+    }
+
+    @Override
+    public long getTotalSize(ObjectReference objectReference) {
+        try {
+            return Files.size(path(objectReference));
+        } catch (IOException e) {
+            log.error("Failed to stat object {} in bucket {}", objectReference.getName(), objectReference.getBucket());
+            return -1;
+        }
+    }
+
+    private Path path(ObjectReference objectReference) {
+        return path(objectReference.getBucket(), objectReference.getName());
+    }
+
+    private Path path(String bucket, String objectName) {
+        Path bucketDirectory = baseDirectory.resolve(bucket).normalize();
+        Path path = bucketDirectory.resolve(objectName).normalize();
+        if (!bucketDirectory.startsWith(baseDirectory) || !path.startsWith(bucketDirectory)) {
+            throw new IllegalArgumentException("Invalid object " + bucket + "/" + objectName);
+        }
+        return path;
+    }
+
+    private Path createTempFile() throws ObjectStorageException {
+        try {
+            return Files.createFile(tempDirectory.resolve(UUID.randomUUID().toString()));
+        } catch (IOException e) {
+            throw new ObjectStorageException("Failed to create temporary file in " + tempDirectory, e);
+        }
+    }
+
+    private static void moveIntoPlace(Path tempFile, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long transferFrom(FileChannel fileChannel, ReadableByteChannel source) throws IOException {
+        long size = 0;
+        long transferred;
+        // a channel over a stream may return fewer bytes than requested before the end, 0 means the end was reached
+        while ((transferred = fileChannel.transferFrom(source, size, TRANSFER_CHUNK_SIZE)) > 0) {
+            size += transferred;
+        }
+        return size;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to remove temporary file {}", path);
+        }
+    }
+
+    /*
+      Reads a range of a file with positional reads, leaving the channel position untouched, and transfers the range
+      to file and socket channels without copying it through the heap
+     */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel fileChannel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel fileChannel, long position, long end) {
+            this.fileChannel = fileChannel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+
+            int count = fileChannel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)),
+                    position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+
+        @Override
+        public long transferTo(OutputStream outputStream) throws IOException {
+            if (!(outputStream instanceof FileOutputStream fileOutputStream)) {
+                return super.transferTo(outputStream);
+            }
+
+            long total = 0;
+            FileChannel target = fileOutputStream.getChannel();
+            while (position < end) {
+                long transferred = fileChannel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                total += transferred;
+            }
+            return total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileChannel.close();
+        }
+    }
+}
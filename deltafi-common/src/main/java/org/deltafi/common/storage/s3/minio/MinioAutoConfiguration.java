@@ -17,10 +17,12 @@
  */
 package org.deltafi.common.storage.s3.minio;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 import org.apache.commons.lang3.StringUtils;
+import org.deltafi.common.storage.s3.filesystem.FilesystemObjectStorageService;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -34,13 +36,9 @@ public class MinioAutoConfiguration {
 
     @Bean
     public MinioClient minioClient(MinioProperties minioProperties) {
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                .connectionPool(new ConnectionPool(32, 5, TimeUnit.MINUTES))
-                .build();
-
         MinioClient.Builder builder = MinioClient.builder()
                 .endpoint(minioProperties.getUrl())
-                .httpClient(okHttpClient);
+                .httpClient(httpClient());
 
         if (!StringUtils.isAllBlank(minioProperties.getAccessKey(), minioProperties.getSecretKey())) {
             builder.credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey());
@@ -50,9 +48,29 @@ public class MinioAutoConfiguration {
     }
 
     @Bean
-    @ConditionalOnMissingBean
+    public MultipartUploadClient multipartUploadClient(MinioProperties minioProperties) {
+        MinioAsyncClient.Builder builder = MinioAsyncClient.builder()
+                .endpoint(minioProperties.getUrl())
+                .httpClient(httpClient());
+
+        if (!StringUtils.isAllBlank(minioProperties.getAccessKey(), minioProperties.getSecretKey())) {
+            builder.credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey());
+        }
+
+        return new MultipartUploadClient(builder.build());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean({MinioObjectStorageService.class, FilesystemObjectStorageService.class})
     public MinioObjectStorageService minioObjectStorageService(MinioClient minioClient,
-                                                               MinioProperties minioProperties) {
-        return new MinioObjectStorageService(minioClient, minioProperties);
+                                                               MinioProperties minioProperties,
+                                                               MultipartUploadClient multipartUploadClient) {
+        return new MinioObjectStorageService(minioClient, minioProperties, multipartUploadClient);
+    }
+
+    private static OkHttpClient httpClient() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(32, 5, TimeUnit.MINUTES))
+                .build();
     }
 }
@@ -25,6 +25,7 @@ import io.minio.messages.ErrorResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.BoundedInputStream;
+import org.deltafi.common.io.Writer;
 import org.deltafi.common.storage.s3.MissingContentException;
 import org.deltafi.common.storage.s3.ObjectReference;
 import org.deltafi.common.storage.s3.ObjectStorageException;
@@ -35,8 +36,14 @@ import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RequiredArgsConstructor
 @Slf4j
@@ -45,16 +52,19 @@ public class MinioObjectStorageService implements ObjectStorageService {
     public static final String FAILED_TO_SAVE_INCOMING_OBJECT = "Failed to save incoming object";
     protected final MinioClient minioClient;
     protected final MinioProperties minioProperties;
+    protected final MultipartUploadClient multipartUploadClient;
 
     @Override
     public InputStream getObject(ObjectReference objectReference) throws ObjectStorageException {
         try {
-            return minioClient.getObject(GetObjectArgs.builder()
+            GetObjectArgs.Builder getObjectArgs = GetObjectArgs.builder()
                     .bucket(objectReference.getBucket())
                     .object(objectReference.getName())
-                    .offset(objectReference.getOffset())
-                    .length(objectReference.getSize())
-                    .build());
+                    .offset(objectReference.getOffset());
+            if (objectReference.getSize() != ObjectReference.UNKNOWN_SIZE) {
+                getObjectArgs.length(objectReference.getSize());
+            }
+            return minioClient.getObject(getObjectArgs.build());
         } catch (ErrorResponseException e) {
             ErrorResponse errorResponse = e.errorResponse();
             // MinioClient maps 404 responses to an ErrorResponse with NoSuchKey as the code
@@ -92,8 +102,32 @@ public class MinioObjectStorageService implements ObjectStorageService {
         }
     }
 
+    /**
+     * Writes the output of the Writer to minio on the calling thread, uploading a part of a multipart upload each time
+     * the part size is reached instead of piping the output through another thread. The upload is aborted if the
+     * write fails. Parts are never smaller than the 5 MiB minimum that S3 requires of all but the last part.
+     */
+    @Override
+    public ObjectReference writeObject(ObjectReference objectReference, Writer writer) throws ObjectStorageException {
+        PartUploadOutputStream outputStream = new PartUploadOutputStream(this, multipartUploadClient, objectReference,
+                (int) Math.max(minioProperties.getPartSize(), ObjectWriteArgs.MIN_MULTIPART_SIZE));
+        try {
+            writer.write(outputStream);
+        } catch (IOException | RuntimeException e) {
+            outputStream.abort();
+            log.error(FAILED_TO_SAVE_INCOMING_OBJECT, e);
+            throw new ObjectStorageException("Failed to send incoming data to minio", e);
+        }
+        return outputStream.complete();
+    }
+
     @Override
     public void putObjects(String bucket, Map<ObjectReference, InputStream> inputStreamMap) throws ObjectStorageException {
+        if (minioProperties.getPutObjectsConcurrency() > 1 && inputStreamMap.size() > 1) {
+            putObjectsInParallel(bucket, inputStreamMap);
+            return;
+        }
+
         List<ObjectReference> completed = new ArrayList<>();
         try {
             for (Map.Entry<ObjectReference, InputStream> entry : inputStreamMap.entrySet()) {
@@ -108,6 +142,41 @@ public class MinioObjectStorageService implements ObjectStorageService {
         }
     }
 
+    /*
+      Upload the objects on up to putObjectsConcurrency virtual threads. Once an upload fails no more are started, and
+      the objects that were uploaded are removed after the uploads in flight finish, as in the sequential path.
+     */
+    private void putObjectsInParallel(String bucket, Map<ObjectReference, InputStream> inputStreamMap)
+            throws ObjectStorageException {
+        Queue<Map.Entry<ObjectReference, InputStream>> pending = new ConcurrentLinkedQueue<>(inputStreamMap.entrySet());
+        List<ObjectReference> completed = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        int concurrency = Math.min(minioProperties.getPutObjectsConcurrency(), inputStreamMap.size());
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                executorService.execute(() -> {
+                    Map.Entry<ObjectReference, InputStream> entry;
+                    while (failure.get() == null && (entry = pending.poll()) != null) {
+                        try {
+                            putObject(entry.getKey(), entry.getValue());
+                            completed.add(entry.getKey());
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                });
+            }
+        }
+
+        if (failure.get() != null) {
+            log.error("Failed to upload many objects in bucket {}, removing {} of {} items that did complete",
+                    bucket, completed.size(), inputStreamMap.size(), failure.get());
+            rollbackPartialFailure(completed);
+            throw new ObjectStorageException("Failed to send incoming data to minio", failure.get());
+        }
+    }
+
     @Override
     public void removeObject(ObjectReference objectReference) {
         try {
@@ -27,4 +27,6 @@ public class MinioProperties {
     String accessKey;
     String secretKey;
     long partSize = 5242880L;
+    // maximum number of objects uploaded at once when saving many objects together, 1 uploads them one at a time
+    int putObjectsConcurrency = 1;
 }
@@ -0,0 +1,123 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.storage.s3.minio;
+
+import io.minio.MinioAsyncClient;
+import io.minio.errors.MinioException;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exposes the S3 multipart upload calls that MinioAsyncClient only offers to subclasses, so an object can be uploaded
+ * part by part as it is produced. Each call waits for its response on the calling thread.
+ */
+@Slf4j
+public class MultipartUploadClient extends MinioAsyncClient {
+    public MultipartUploadClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * Start a multipart upload
+     *
+     * @param bucket the bucket of the object
+     * @param object the name of the object
+     * @return the id of the upload
+     * @throws ObjectStorageException if the upload cannot be started
+     */
+    public String createMultipartUpload(String bucket, String object) throws ObjectStorageException {
+        return execute(() -> createMultipartUploadAsync(bucket, null, object, null, null),
+                "Failed to start multipart upload of " + object).result().uploadId();
+    }
+
+    /**
+     * Upload a part of a multipart upload
+     *
+     * @param bucket the bucket of the object
+     * @param object the name of the object
+     * @param uploadId the id of the upload
+     * @param partNumber the number of the part, starting at 1
+     * @param data the buffer holding the part
+     * @param length the number of bytes at the start of the buffer that make up the part
+     * @return the uploaded part
+     * @throws ObjectStorageException if the part cannot be uploaded
+     */
+    public Part uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] data, int length)
+            throws ObjectStorageException {
+        String etag = execute(() -> uploadPartAsync(bucket, null, object, data, length, uploadId, partNumber, null,
+                null), "Failed to upload part " + partNumber + " of " + object).etag();
+        return new Part(partNumber, etag);
+    }
+
+    /**
+     * Assemble the object from the uploaded parts
+     *
+     * @param bucket the bucket of the object
+     * @param object the name of the object
+     * @param uploadId the id of the upload
+     * @param parts the uploaded parts in order
+     * @throws ObjectStorageException if the upload cannot be completed
+     */
+    public void completeMultipartUpload(String bucket, String object, String uploadId, List<Part> parts)
+            throws ObjectStorageException {
+        execute(() -> completeMultipartUploadAsync(bucket, null, object, uploadId, parts.toArray(Part[]::new), null,
+                null), "Failed to complete multipart upload of " + object);
+    }
+
+    /**
+     * Abort a multipart upload so storage discards its parts. Failures are logged and otherwise ignored.
+     *
+     * @param bucket the bucket of the object
+     * @param object the name of the object
+     * @param uploadId the id of the upload
+     */
+    public void abortMultipartUpload(String bucket, String object, String uploadId) {
+        try {
+            execute(() -> abortMultipartUploadAsync(bucket, null, object, uploadId, null, null),
+                    "Failed to abort multipart upload of " + object);
+        } catch (ObjectStorageException e) {
+            log.error("Failed to abort multipart upload {} of object {} in bucket {}", uploadId, object, bucket, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+        CompletableFuture<T> send() throws MinioException, InvalidKeyException, IOException, NoSuchAlgorithmException;
+    }
+
+    private static <T> T execute(Request<T> request, String failure) throws ObjectStorageException {
+        try {
+            return request.send().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectStorageException(failure, e);
+        } catch (ExecutionException e) {
+            throw new ObjectStorageException(failure, e.getCause());
+        } catch (MinioException | InvalidKeyException | IOException | NoSuchAlgorithmException e) {
+            throw new ObjectStorageException(failure, e);
+        }
+    }
+}
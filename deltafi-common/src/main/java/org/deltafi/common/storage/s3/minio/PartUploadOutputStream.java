@@ -0,0 +1,147 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.storage.s3.minio;
+
+import io.minio.messages.Part;
+import org.deltafi.common.storage.s3.ObjectReference;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An OutputStream that uploads an object with a multipart upload as it is written. The part buffer grows up to the
+ * part size, and each time it fills, the part is uploaded on the writing thread. The multipart upload is only started
+ * when the first part fills, so an object that fits in one part is stored with a single put.
+ */
+class PartUploadOutputStream extends OutputStream {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final MinioObjectStorageService objectStorageService;
+    private final MultipartUploadClient multipartUploadClient;
+    private final ObjectReference objectReference;
+    private final int partSize;
+    private final List<Part> parts = new ArrayList<>();
+
+    private String uploadId;
+    private byte[] buffer;
+    private int count;
+    private long size;
+
+    PartUploadOutputStream(MinioObjectStorageService objectStorageService, MultipartUploadClient multipartUploadClient,
+            ObjectReference objectReference, int partSize) {
+        this.objectStorageService = objectStorageService;
+        this.multipartUploadClient = multipartUploadClient;
+        this.objectReference = objectReference;
+        this.partSize = partSize;
+        this.buffer = new byte[Math.min(partSize, INITIAL_BUFFER_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        makeRoom();
+        buffer[count++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        while (length > 0) {
+            makeRoom();
+            int chunk = Math.min(length, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, chunk);
+            count += chunk;
+            size += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Store whatever has not been uploaded yet and complete the object
+     *
+     * @return the stored object, with a size of 0 if nothing was written and nothing was stored
+     * @throws ObjectStorageException if storing the object fails
+     */
+    ObjectReference complete() throws ObjectStorageException {
+        if (size == 0) {
+            return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, 0);
+        }
+
+        if (uploadId == null) {
+            objectStorageService.putObject(new ObjectReference(objectReference.getBucket(), objectReference.getName(),
+                    0, count), new ByteArrayInputStream(buffer, 0, count));
+        } else {
+            try {
+                if (count > 0) {
+                    uploadPart();
+                }
+                multipartUploadClient.completeMultipartUpload(objectReference.getBucket(), objectReference.getName(),
+                        uploadId, parts);
+                uploadId = null;
+            } finally {
+                abort();
+            }
+        }
+        return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, size);
+    }
+
+    /**
+     * Abort the multipart upload if one was started so storage discards the parts uploaded so far
+     */
+    void abort() {
+        if (uploadId != null) {
+            multipartUploadClient.abortMultipartUpload(objectReference.getBucket(), objectReference.getName(),
+                    uploadId);
+            uploadId = null;
+            parts.clear();
+        }
+    }
+
+    private void makeRoom() throws IOException {
+        if (count < buffer.length) {
+            return;
+        }
+        if (buffer.length < partSize) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, partSize));
+            return;
+        }
+        try {
+            uploadPart();
+        } catch (ObjectStorageException e) {
+            throw new IOException("Failed to upload part " + (parts.size() + 1) + " of " + objectReference.getName(),
+                    e);
+        }
+    }
+
+    private void uploadPart() throws ObjectStorageException {
+        if (uploadId == null) {
+            uploadId = multipartUploadClient.createMultipartUpload(objectReference.getBucket(),
+                    objectReference.getName());
+        }
+        parts.add(multipartUploadClient.uploadPart(objectReference.getBucket(), objectReference.getName(), uploadId,
+                parts.size() + 1, buffer, count));
+        count = 0;
+    }
+}
@@ -24,6 +24,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +42,9 @@ public class ActionInput {
     private boolean templated;
     @JsonIgnore
     private JsonNode parameterSchema;
+    // when the action was queued, carried by the queue entry's score instead of the payload
+    @JsonIgnore
+    private OffsetDateTime actionCreated;
 
     public boolean needsResolved() {
         return templated && (actionParams != null && !actionParams.isEmpty()) && (deltaFileMessages != null && !deltaFileMessages.isEmpty());
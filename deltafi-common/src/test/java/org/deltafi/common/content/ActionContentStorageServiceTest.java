@@ -27,6 +27,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.ws.rs.core.MediaType;
@@ -34,6 +35,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,6 +91,29 @@ public class ActionContentStorageServiceTest {
         assertArrayEquals(bytes, loadedContent);
     }
 
+    @Test
+    public void loadsPrefetchedContent() throws ObjectStorageException, IOException {
+        byte[] bytes = "test".getBytes();
+        Content content = new Content("name", "mediaType", new Segment(UUID.randomUUID(), 0, bytes.length,
+                UUID.randomUUID()));
+        actionStorageService.addPrefetchedContent(content, CompletableFuture.completedFuture(bytes));
+
+        assertArrayEquals(bytes, actionStorageService.load(content.copy()).readAllBytes());
+        Mockito.verifyNoInteractions(objectStorageService);
+    }
+
+    @Test
+    public void loadsFromStorageWhenPrefetchFailed() throws ObjectStorageException, IOException {
+        byte[] bytes = "test".getBytes();
+        Content content = new Content("name", "mediaType", new Segment(UUID.randomUUID(), 0, bytes.length,
+                UUID.randomUUID()));
+        actionStorageService.addPrefetchedContent(content,
+                CompletableFuture.failedFuture(new ObjectStorageException("failed")));
+        Mockito.when(objectStorageService.getObject(Mockito.any())).thenReturn(new ByteArrayInputStream(bytes));
+
+        assertArrayEquals(bytes, actionStorageService.load(content).readAllBytes());
+    }
+
     @Test
     public void loadsZeroLengthContent() throws ObjectStorageException, IOException {
         InputStream inputStream = actionStorageService.load(new Content("name", "mediaType"));
@@ -146,6 +171,67 @@ public class ActionContentStorageServiceTest {
         assertEquals(1, actionStorageService.savedContentSize());
     }
 
+    @Test
+    public void reusesDuplicateByteArrayContent() throws ObjectStorageException {
+        byte[] bytes = "test".getBytes();
+        Mockito.when(objectStorageService.putObject(Mockito.any(), Mockito.any())).thenAnswer(this::consumePut);
+        actionStorageService.setDeduplicating(true);
+
+        UUID did = UUID.randomUUID();
+        Content first = actionStorageService.save(did, bytes, "first", "mediaType");
+        Content second = actionStorageService.save(did, bytes, "second", "mediaType");
+
+        assertEquals("second", second.getName());
+        assertEquals(first.getSegments(), second.getSegments());
+        assertEquals(1, actionStorageService.savedContentSize());
+        Mockito.verify(objectStorageService, Mockito.times(1)).putObject(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void reusesLoadedContentSavedFromStream() throws ObjectStorageException, IOException {
+        byte[] bytes = "test".getBytes();
+        Content input = new Content("input", "mediaType", new Segment(UUID.randomUUID(), 0, bytes.length,
+                UUID.randomUUID()));
+        Mockito.when(objectStorageService.getObject(Mockito.any())).thenReturn(new ByteArrayInputStream(bytes));
+        Mockito.when(objectStorageService.putObject(Mockito.any(), Mockito.any())).thenAnswer(this::consumePut);
+        actionStorageService.setDeduplicating(true);
+
+        try (InputStream inputStream = actionStorageService.load(input)) {
+            inputStream.readAllBytes();
+        }
+        Content saved = actionStorageService.save(UUID.randomUUID(), new ByteArrayInputStream(bytes), "output",
+                "mediaType");
+
+        assertEquals(input.getSegments(), saved.getSegments());
+        assertEquals(0, actionStorageService.savedContentSize());
+        // the copy written while hashing is removed again
+        Mockito.verify(objectStorageService).removeObject(Mockito.any());
+    }
+
+    @Test
+    public void storesDistinctContentOnceInSaveMany() throws ObjectStorageException {
+        actionStorageService.setDeduplicating(true);
+        List<SaveManyContent> saveManyContentList = List.of(
+                new SaveManyContent("a", MediaType.APPLICATION_OCTET_STREAM, "same".getBytes()),
+                new SaveManyContent("b", MediaType.APPLICATION_OCTET_STREAM, "other".getBytes()),
+                new SaveManyContent("c", MediaType.APPLICATION_OCTET_STREAM, "same".getBytes()));
+
+        List<Content> contents = actionStorageService.saveMany(UUID.randomUUID(), saveManyContentList);
+
+        assertEquals(List.of("a", "b", "c"), contents.stream().map(Content::getName).toList());
+        assertEquals(contents.get(0).getSegments(), contents.get(2).getSegments());
+        assertNotEquals(contents.get(0).getSegments(), contents.get(1).getSegments());
+        Mockito.verify(objectStorageService).putObjects(Mockito.eq("storage"), contentMapCaptor.capture());
+        assertEquals(2, contentMapCaptor.getValue().size());
+        assertEquals(2, actionStorageService.savedContentSize());
+    }
+
+    private ObjectReference consumePut(InvocationOnMock invocation) throws IOException {
+        ObjectReference objectReference = invocation.getArgument(0);
+        long size = invocation.getArgument(1, InputStream.class).readAllBytes().length;
+        return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, size);
+    }
+
     @Test
     public void saveAndClearTracking() throws ObjectStorageException {
         byte[] bytes = "test".getBytes();
@@ -253,6 +339,30 @@ public class ActionContentStorageServiceTest {
         assertEquals(0, actionStorageService.savedContentSize());
     }
 
+    @Test
+    void testDeleteUnusedContent_TransformUsesPackedContent() throws ObjectStorageException {
+        contentStorageService.setPackMaxContentSize(1024);
+        actionStorageService = new ActionContentStorageService(contentStorageService);
+
+        UUID did = UUID.randomUUID();
+        List<Content> contents = actionStorageService.saveMany(did, getSaveManyContents());
+        Content first = contents.getFirst();
+        Content second = contents.get(1);
+        assertEquals(first.getSegments().getFirst().objectName(), second.getSegments().getFirst().objectName());
+
+        ActionEvent event = ActionEvent.builder()
+                .did(did)
+                .type(ActionEventType.TRANSFORM)
+                .transform(List.of(
+                        TransformEvent.builder()
+                                .content(List.of(second))
+                                .build()))
+                .build();
+
+        assertEquals(0, actionStorageService.deleteUnusedContent(event));
+        Mockito.verify(objectStorageService, Mockito.never()).removeObjects(Mockito.any(), Mockito.any());
+    }
+
     @Test
     void testDeleteUnusedContent_ErrorHasOrphaned() throws ObjectStorageException {
         byte[] bytes = "test".getBytes();
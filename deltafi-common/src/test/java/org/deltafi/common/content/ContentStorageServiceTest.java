@@ -18,6 +18,7 @@
 package org.deltafi.common.content;
 
 import org.assertj.core.api.Assertions;
+import org.deltafi.common.io.Writer;
 import org.deltafi.common.storage.s3.ObjectReference;
 import org.deltafi.common.storage.s3.ObjectStorageException;
 import org.deltafi.common.storage.s3.ObjectStorageService;
@@ -31,11 +32,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.ws.rs.core.MediaType;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -120,6 +120,33 @@ public class ContentStorageServiceTest {
         assertEquals("mediaType", content.getMediaType());
     }
 
+    @Test
+    public void savesWriterContent() throws ObjectStorageException {
+        byte[] bytes = "test".getBytes();
+
+        Mockito.when(objectStorageService.writeObject(Mockito.any(), Mockito.any()))
+                .thenReturn(new ObjectReference("storage", "did/uuid", 0, bytes.length));
+
+        UUID did = UUID.randomUUID();
+        Content content = contentStorageService.save(did, outputStream -> outputStream.write(bytes), "name", "mediaType");
+
+        assertEquals(1, content.getSegments().size());
+        assertEquals(did, content.getSegments().getFirst().getDid());
+        assertEquals(bytes.length, content.getSize());
+        assertEquals("mediaType", content.getMediaType());
+    }
+
+    @Test
+    public void savesEmptyWriterContent() throws ObjectStorageException {
+        Mockito.when(objectStorageService.writeObject(Mockito.any(), Mockito.any()))
+                .thenReturn(new ObjectReference("storage", "did/uuid", 0, 0));
+
+        Content content = contentStorageService.save(UUID.randomUUID(), outputStream -> {}, "name", "mediaType");
+
+        assertEquals(0, content.getSegments().size());
+        assertEquals(0, content.getSize());
+    }
+
     @Test
     void saveContentMap() throws ObjectStorageException {
         List<SaveManyContent> saveManyContentList = getSaveManyContents();
@@ -141,6 +168,134 @@ public class ContentStorageServiceTest {
         Assertions.assertThat(contentMap).hasSize(2);
     }
 
+    @Test
+    void saveContentMapPacked() throws ObjectStorageException, IOException {
+        contentStorageService.setPackMaxContentSize(5);
+        UUID did = UUID.randomUUID();
+
+        List<Content> content = contentStorageService.saveMany(did, getSaveManyContents());
+
+        Assertions.assertThat(content).hasSize(3);
+        Segment first = content.get(0).getSegments().getFirst();
+        Segment second = content.get(1).getSegments().getFirst();
+        Assertions.assertThat(content.get(2).getSegments()).isEmpty();
+        Assertions.assertThat(first.getOffset()).isZero();
+        Assertions.assertThat(first.getSize()).isEqualTo(5);
+        Assertions.assertThat(second.getUuid()).isNotEqualTo(first.getUuid());
+
+        Mockito.verify(objectStorageService).putObjects(Mockito.eq("storage"), contentMapCaptor.capture());
+        Map<ObjectReference, InputStream> contentMap = contentMapCaptor.getValue();
+        Assertions.assertThat(contentMap).hasSize(2);
+        ObjectReference packed = new ObjectReference("storage", first.objectName(), 0, 5);
+        Assertions.assertThat(contentMap.get(packed).readAllBytes()).isEqualTo("first".getBytes());
+    }
+
+    @Test
+    void saveContentMapPacksSmallContent() throws ObjectStorageException, IOException {
+        contentStorageService.setPackMaxContentSize(1024);
+        UUID did = UUID.randomUUID();
+
+        List<Content> content = contentStorageService.saveMany(did, getSaveManyContents());
+
+        Segment first = content.get(0).getSegments().getFirst();
+        Segment second = content.get(1).getSegments().getFirst();
+        Assertions.assertThat(second.getUuid()).isEqualTo(first.getUuid());
+        Assertions.assertThat(second.getDid()).isEqualTo(did);
+        Assertions.assertThat(second.getOffset()).isEqualTo(5);
+        Assertions.assertThat(second.getSize()).isEqualTo(6);
+
+        Mockito.verify(objectStorageService).putObjects(Mockito.eq("storage"), contentMapCaptor.capture());
+        Map<ObjectReference, InputStream> contentMap = contentMapCaptor.getValue();
+        Assertions.assertThat(contentMap).hasSize(1);
+        Map.Entry<ObjectReference, InputStream> packed = contentMap.entrySet().iterator().next();
+        Assertions.assertThat(packed.getKey()).isEqualTo(new ObjectReference("storage", first.objectName(), 0, 11));
+        Assertions.assertThat(packed.getValue().readAllBytes()).isEqualTo("firstsecond".getBytes());
+    }
+
+    @Test
+    void savesAndLoadsCompressedContent() throws ObjectStorageException, IOException {
+        Map<String, byte[]> objects = storeObjectsInMemory();
+        contentStorageService.setCompressContent(true);
+        byte[] bytes = "compressible text ".repeat(50_000).getBytes();
+
+        Content content = contentStorageService.save(UUID.randomUUID(), new ByteArrayInputStream(bytes), "name",
+                "mediaType");
+
+        Segment segment = content.getSegments().getFirst();
+        Assertions.assertThat(segment.isCompressed()).isTrue();
+        Assertions.assertThat(segment.getSize()).isEqualTo(bytes.length);
+        Assertions.assertThat(objects.get(segment.objectName()).length).isLessThan(bytes.length / 5);
+        Assertions.assertThat(contentStorageService.load(content).readAllBytes()).isEqualTo(bytes);
+        Assertions.assertThat(contentStorageService.getTotalSize(segment)).isEqualTo(bytes.length);
+    }
+
+    @Test
+    void loadsRangesOfCompressedContent() throws ObjectStorageException, IOException {
+        storeObjectsInMemory();
+        contentStorageService.setCompressContent(true);
+        byte[] bytes = new byte[SegmentCompression.BLOCK_SIZE * 3 + 100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i / 1000);
+        }
+
+        Content content = contentStorageService.save(UUID.randomUUID(), bytes, "name", "mediaType");
+
+        // within the first block, read without fetching the object size or index
+        assertLoadsRange(content, bytes, 10L);
+        Mockito.verify(objectStorageService, Mockito.never()).getTotalSize(Mockito.any());
+
+        // starting in a later block and crossing into the last
+        assertLoadsRange(content, bytes, SegmentCompression.BLOCK_SIZE * 2L + 5);
+    }
+
+    private void assertLoadsRange(Content content, byte[] bytes, long offset) throws ObjectStorageException, IOException {
+        Content range = content.subcontent(offset, SegmentCompression.BLOCK_SIZE);
+        Assertions.assertThat(contentStorageService.load(range).readAllBytes())
+                .isEqualTo(Arrays.copyOfRange(bytes, (int) offset, (int) offset + SegmentCompression.BLOCK_SIZE));
+    }
+
+    @Test
+    void saveContentMapCompressesUnpackedContent() throws ObjectStorageException, IOException {
+        Map<String, byte[]> objects = storeObjectsInMemory();
+        contentStorageService.setCompressContent(true);
+        contentStorageService.setPackMaxContentSize(5);
+        UUID did = UUID.randomUUID();
+
+        List<Content> content = contentStorageService.saveMany(did, getSaveManyContents());
+
+        Segment first = content.get(0).getSegments().getFirst();
+        Segment second = content.get(1).getSegments().getFirst();
+        Assertions.assertThat(first.isCompressed()).isFalse();
+        Assertions.assertThat(second.isCompressed()).isTrue();
+        Assertions.assertThat(second.getSize()).isEqualTo(6);
+        Mockito.verify(objectStorageService).putObjects(Mockito.eq("storage"), contentMapCaptor.capture());
+        for (Map.Entry<ObjectReference, InputStream> entry : contentMapCaptor.getValue().entrySet()) {
+            objects.put(entry.getKey().getName(), entry.getValue().readAllBytes());
+        }
+        Assertions.assertThat(contentStorageService.load(content.get(1)).readAllBytes()).isEqualTo("second".getBytes());
+    }
+
+    private Map<String, byte[]> storeObjectsInMemory() throws ObjectStorageException {
+        Map<String, byte[]> objects = new HashMap<>();
+        Mockito.lenient().when(objectStorageService.writeObject(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            ObjectReference objectReference = invocation.getArgument(0);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            invocation.getArgument(1, Writer.class).write(outputStream);
+            objects.put(objectReference.getName(), outputStream.toByteArray());
+            return new ObjectReference(objectReference.getBucket(), objectReference.getName(), 0, outputStream.size());
+        });
+        Mockito.lenient().when(objectStorageService.getTotalSize(Mockito.any())).thenAnswer(invocation ->
+                (long) objects.get(invocation.getArgument(0, ObjectReference.class).getName()).length);
+        Mockito.lenient().when(objectStorageService.getObject(Mockito.any())).thenAnswer(invocation -> {
+            ObjectReference objectReference = invocation.getArgument(0);
+            byte[] bytes = objects.get(objectReference.getName());
+            int offset = (int) objectReference.getOffset();
+            return new ByteArrayInputStream(bytes, offset, objectReference.getSize() == ObjectReference.UNKNOWN_SIZE ?
+                    bytes.length - offset : (int) objectReference.getSize());
+        });
+        return objects;
+    }
+
     private static @NotNull List<SaveManyContent> getSaveManyContents() {
         byte[] firstContentBytes = "first".getBytes();
         byte[] secondContentBytes = "second".getBytes();
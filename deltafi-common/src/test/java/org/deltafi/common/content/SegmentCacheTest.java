@@ -0,0 +1,117 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.content;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void cachesSegmentReadInFull() throws IOException {
+        SegmentCache segmentCache = new SegmentCache(directory, 100);
+        Segment segment = new Segment(UUID.randomUUID(), 10, 5, UUID.randomUUID());
+
+        assertThat(segmentCache.get(segment)).isNull();
+        try (InputStream inputStream = segmentCache.cacheWhileReading(segment, stream("hello"))) {
+            assertThat(inputStream.readAllBytes()).isEqualTo("hello".getBytes());
+        }
+
+        assertThat(segmentCache.getCachedBytes()).isEqualTo(5);
+        try (InputStream inputStream = segmentCache.get(segment)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo("hello".getBytes());
+        }
+        assertThat(segmentCache.get(new Segment(segment.getUuid(), 0, 5, segment.getDid()))).isNull();
+    }
+
+    @Test
+    void doesNotCachePartialRead() throws IOException {
+        SegmentCache segmentCache = new SegmentCache(directory, 100);
+        Segment segment = new Segment(UUID.randomUUID(), 0, 5, UUID.randomUUID());
+
+        try (InputStream inputStream = segmentCache.cacheWhileReading(segment, stream("hello"))) {
+            assertThat(inputStream.readNBytes(2)).isEqualTo("he".getBytes());
+        }
+
+        assertThat(segmentCache.get(segment)).isNull();
+        assertThat(segmentCache.getCachedBytes()).isZero();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        SegmentCache segmentCache = new SegmentCache(directory, 10);
+        Segment first = new Segment(UUID.randomUUID(), 0, 4, UUID.randomUUID());
+        Segment second = new Segment(UUID.randomUUID(), 0, 4, UUID.randomUUID());
+        Segment third = new Segment(UUID.randomUUID(), 0, 4, UUID.randomUUID());
+
+        read(segmentCache.cacheWhileReading(first, stream("aaaa")));
+        read(segmentCache.cacheWhileReading(second, stream("bbbb")));
+        read(segmentCache.get(first));
+        read(segmentCache.cacheWhileReading(third, stream("cccc")));
+
+        assertThat(segmentCache.size()).isEqualTo(2);
+        assertThat(segmentCache.getCachedBytes()).isEqualTo(8);
+        assertThat(segmentCache.get(second)).isNull();
+        read(segmentCache.get(first));
+        read(segmentCache.get(third));
+    }
+
+    @Test
+    void skipsSegmentsLargerThanCache() throws IOException {
+        SegmentCache segmentCache = new SegmentCache(directory, 4);
+        Segment segment = new Segment(UUID.randomUUID(), 0, 5, UUID.randomUUID());
+        InputStream inputStream = stream("hello");
+
+        assertThat(segmentCache.cacheWhileReading(segment, inputStream)).isSameAs(inputStream);
+    }
+
+    @Test
+    void clearsDirectoryOnStart() throws IOException {
+        Files.writeString(directory.resolve("leftover"), "old");
+
+        new SegmentCache(directory, 100);
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    private static void read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            inputStream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.content;
+
+import org.deltafi.common.storage.s3.MissingContentException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentSequenceInputStreamTest {
+    private final UUID did = UUID.randomUUID();
+    private final Map<Segment, Boolean> opened = new ConcurrentHashMap<>();
+    private List<Segment> segments;
+
+    @Test
+    void opensSegmentsAsTheyAreReached() throws Exception {
+        List<Segment> segments = segments(4);
+
+        try (InputStream inputStream = new SegmentSequenceInputStream(segments, this::open, 0)) {
+            assertThat(opened).containsOnlyKeys(segments.getFirst());
+            assertThat(inputStream.readNBytes(2)).isEqualTo("01".getBytes());
+            assertThat(opened).containsOnlyKeys(segments.get(0), segments.get(1));
+            assertThat(inputStream.readAllBytes()).isEqualTo("23".getBytes());
+        }
+    }
+
+    @Test
+    void opensReadAheadSegments() throws Exception {
+        List<Segment> segments = segments(10);
+
+        try (InputStream inputStream = new SegmentSequenceInputStream(segments, this::open, 2)) {
+            assertThat(inputStream.read()).isEqualTo('0');
+            assertThat(opened.size()).isLessThanOrEqualTo(3);
+            assertThat(inputStream.readAllBytes()).isEqualTo("123456789".getBytes());
+        }
+        assertThat(opened).hasSize(10);
+    }
+
+    @Test
+    void reportsFailureToOpenLaterSegment() throws Exception {
+        List<Segment> segments = segments(3);
+        InputStream inputStream = new SegmentSequenceInputStream(segments,
+                segment -> {
+                    if (segment == segments.get(1)) {
+                        throw new MissingContentException(segment, "missing");
+                    }
+                    return open(segment);
+                }, 1);
+
+        assertThat(inputStream.read()).isEqualTo('0');
+        assertThatThrownBy(inputStream::read).isInstanceOf(IOException.class)
+                .hasCauseInstanceOf(MissingContentException.class);
+        assertThatThrownBy(inputStream::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void reportsFailureToOpenFirstSegment() {
+        List<Segment> segments = segments(2);
+
+        assertThatThrownBy(() -> new SegmentSequenceInputStream(segments,
+                segment -> { throw new MissingContentException(segment, "missing"); }, 1))
+                .isInstanceOf(MissingContentException.class);
+    }
+
+    private List<Segment> segments(int count) {
+        segments = IntStream.range(0, count)
+                .mapToObj(i -> new Segment(UUID.randomUUID(), 0, 1, did))
+                .toList();
+        return segments;
+    }
+
+    private InputStream open(Segment segment) {
+        opened.put(segment, true);
+        return new ByteArrayInputStream(String.valueOf(segments.indexOf(segment)).getBytes());
+    }
+}
@@ -60,5 +60,11 @@ public class SegmentTest {
         Segment segment7 = new Segment(uuid2, 15, 10, did);
         Set<Segment> multipleSegmentsList = new HashSet<>(Arrays.asList(segment1, segment2, segment3, segment4, segment5, segment6, segment7));
         assertEquals(55, Segment.calculateTotalSize(multipleSegmentsList));
+
+        // Test case 7: List with adjacent segments packed into one object
+        UUID packUuid = UUID.randomUUID();
+        Set<Segment> packedSegmentsList = new HashSet<>(List.of(new Segment(packUuid, 0, 5, did),
+                new Segment(packUuid, 5, 6, did), new Segment(packUuid, 11, 1, did)));
+        assertEquals(12, Segment.calculateTotalSize(packedSegmentsList));
     }
 }
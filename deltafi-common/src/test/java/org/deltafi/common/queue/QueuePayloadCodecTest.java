@@ -0,0 +1,86 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+import org.deltafi.common.types.ActionContext;
+import org.deltafi.common.types.ActionInput;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueuePayloadCodecTest {
+    private static final UUID FLOW_ID = UUID.fromString("d5b41c6b-7fce-43b7-b6bf-5cd0a3aa1111");
+
+    private static final ActionInput ACTION_INPUT = ActionInput.builder()
+            .queueName("org.deltafi.SomeAction")
+            .actionContext(ActionContext.builder().flowId(FLOW_ID).actionName("the-action-name").build())
+            .actionParams(Map.of("key", "value"))
+            .build();
+
+    private static final ActionInput LARGE_ACTION_INPUT = ActionInput.builder()
+            .queueName("org.deltafi.SomeAction")
+            .actionContext(ActionContext.builder().flowId(FLOW_ID).actionName("the-action-name").build())
+            .actionParams(Map.of("key", "value ".repeat(1000)))
+            .build();
+
+    @Test
+    void roundTripsJson() throws Exception {
+        byte[] encoded = QueuePayloadCodec.encode(ACTION_INPUT, QueuePayloadFormat.JSON);
+
+        assertThat(QueuePayloadCodec.isSmile(encoded)).isFalse();
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).contains("\"actionName\":\"the-action-name\"");
+        assertThat(QueuePayloadCodec.decode(encoded, ActionInput.class)).isEqualTo(ACTION_INPUT);
+    }
+
+    @Test
+    void roundTripsSmile() throws Exception {
+        byte[] encoded = QueuePayloadCodec.encode(ACTION_INPUT, QueuePayloadFormat.SMILE);
+
+        assertThat(QueuePayloadCodec.isSmile(encoded)).isTrue();
+        assertThat(QueuePayloadCodec.decode(encoded, ActionInput.class)).isEqualTo(ACTION_INPUT);
+    }
+
+    @Test
+    void smileKeepsSearchableStrings() throws Exception {
+        String raw = new String(QueuePayloadCodec.encode(ACTION_INPUT, QueuePayloadFormat.SMILE), StandardCharsets.ISO_8859_1);
+
+        assertThat(raw).contains(FLOW_ID.toString()).contains("the-action-name");
+    }
+
+    @Test
+    void compressesAtThreshold() throws Exception {
+        byte[] plain = QueuePayloadCodec.encode(ACTION_INPUT, QueuePayloadFormat.JSON);
+        byte[] compressed = QueuePayloadCodec.encode(LARGE_ACTION_INPUT, QueuePayloadFormat.SMILE, plain.length);
+
+        assertThat(QueuePayloadCodec.isCompressed(compressed)).isTrue();
+        assertThat(QueuePayloadCodec.isSmile(compressed)).isFalse();
+        assertThat(QueuePayloadCodec.decode(compressed, ActionInput.class)).isEqualTo(LARGE_ACTION_INPUT);
+    }
+
+    @Test
+    void skipsCompressionBelowThreshold() throws Exception {
+        byte[] plain = QueuePayloadCodec.encode(LARGE_ACTION_INPUT, QueuePayloadFormat.JSON);
+
+        assertThat(QueuePayloadCodec.encode(LARGE_ACTION_INPUT, QueuePayloadFormat.JSON, plain.length + 1)).isEqualTo(plain);
+        assertThat(QueuePayloadCodec.encode(LARGE_ACTION_INPUT, QueuePayloadFormat.JSON, 0)).isEqualTo(plain);
+    }
+}
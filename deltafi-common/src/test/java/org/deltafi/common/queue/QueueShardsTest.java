@@ -0,0 +1,51 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueueShardsTest {
+    @Test
+    void firstShardIsQueueName() {
+        assertThat(QueueShards.shardKey("org.deltafi.SomeAction", 0)).isEqualTo("org.deltafi.SomeAction");
+        assertThat(QueueShards.shardKeys("org.deltafi.SomeAction", 3))
+                .containsExactly("org.deltafi.SomeAction", "org.deltafi.SomeAction#1", "org.deltafi.SomeAction#2");
+        assertThat(QueueShards.shardKeys("org.deltafi.SomeAction", 0)).containsExactly("org.deltafi.SomeAction");
+    }
+
+    @Test
+    void shardForIsStableAndInRange() {
+        UUID did = UUID.randomUUID();
+
+        assertThat(QueueShards.shardFor(did, 4)).isBetween(0, 3).isEqualTo(QueueShards.shardFor(did, 4));
+        assertThat(QueueShards.shardFor(did, 1)).isZero();
+        assertThat(QueueShards.shardFor(null, 4)).isZero();
+    }
+
+    @Test
+    void queueNameStripsShardSuffix() {
+        assertThat(QueueShards.queueName("org.deltafi.SomeAction#3")).isEqualTo("org.deltafi.SomeAction");
+        assertThat(QueueShards.queueName("org.deltafi.SomeAction")).isEqualTo("org.deltafi.SomeAction");
+        assertThat(QueueShards.queueName("org.deltafi.SomeAction#")).isEqualTo("org.deltafi.SomeAction#");
+        assertThat(QueueShards.queueName("org.deltafi.Some#Action")).isEqualTo("org.deltafi.Some#Action");
+    }
+}
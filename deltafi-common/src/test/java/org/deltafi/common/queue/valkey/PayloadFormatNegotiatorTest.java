@@ -0,0 +1,117 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.queue.valkey;
+
+import io.valkey.Jedis;
+import io.valkey.JedisPool;
+import io.valkey.Pipeline;
+import org.deltafi.common.queue.QueueCapability;
+import org.deltafi.common.queue.QueuePayloadFormat;
+import org.deltafi.common.test.time.TestClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PayloadFormatNegotiatorTest {
+    private static final Set<QueueCapability> ALL = EnumSet.allOf(QueueCapability.class);
+
+    private final ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue = mock(ValkeyKeyedBlockingQueue.class);
+    private final TestClock clock = new TestClock();
+    private final PayloadFormatNegotiator negotiator = new PayloadFormatNegotiator(valkeyKeyedBlockingQueue,
+            () -> QueuePayloadFormat.SMILE, () -> 64, clock);
+
+    @Test
+    void negotiatesCapabilitiesSharedByEveryConsumer() {
+        when(valkeyKeyedBlockingQueue.getConsumerCapabilities()).thenReturn(Map.of(
+                "upgraded", List.of(ALL, ALL),
+                "partial", List.of(ALL, Set.of(QueueCapability.SMILE))));
+
+        assertThat(negotiator.formatFor("upgraded")).isEqualTo(QueuePayloadFormat.SMILE);
+        assertThat(negotiator.compressionThresholdFor("upgraded")).isEqualTo(64);
+        assertThat(negotiator.supports("upgraded", QueueCapability.SHARDS)).isTrue();
+
+        assertThat(negotiator.formatFor("partial")).isEqualTo(QueuePayloadFormat.SMILE);
+        assertThat(negotiator.compressionThresholdFor("partial")).isZero();
+        assertThat(negotiator.supports("partial", QueueCapability.SHARDS)).isFalse();
+
+        assertThat(negotiator.formatFor("unknown")).isEqualTo(QueuePayloadFormat.JSON);
+    }
+
+    @Test
+    void fallsBackWhileAnyConsumerOfAMixedVersionQueueLacksTheCapability() {
+        when(valkeyKeyedBlockingQueue.getConsumerCapabilities())
+                .thenReturn(Map.of("queue", List.of(ALL, Set.of())))
+                .thenReturn(Map.of("queue", List.of(ALL, ALL)));
+
+        assertThat(negotiator.formatFor("queue")).isEqualTo(QueuePayloadFormat.JSON);
+        assertThat(negotiator.compressionThresholdFor("queue")).isZero();
+        assertThat(negotiator.supports("queue", QueueCapability.SHARDS)).isFalse();
+
+        clock.setInstant(clock.getInstant().plus(Duration.ofSeconds(11)));
+
+        assertThat(negotiator.formatFor("queue")).isEqualTo(QueuePayloadFormat.SMILE);
+        assertThat(negotiator.compressionThresholdFor("queue")).isEqualTo(64);
+        assertThat(negotiator.supports("queue", QueueCapability.SHARDS)).isTrue();
+        verify(valkeyKeyedBlockingQueue, times(2)).getConsumerCapabilities();
+    }
+
+    @Test
+    void treatsConsumersOnlyInTheLegacyHeartbeatAsLackingEveryCapability() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        String upgraded = OffsetDateTime.now().minusSeconds(5).toString();
+        String legacy = OffsetDateTime.now().minusSeconds(2).toString();
+        when(jedis.hgetAll(ValkeyKeyedBlockingQueue.INSTANCE_HEARTBEAT_HASH)).thenReturn(Map.of(
+                "upgraded#instance", upgraded + " SMILE,LZ4,SHARDS",
+                "mixed#instance", upgraded + " SMILE,LZ4,SHARDS"));
+        when(jedis.hgetAll(ValkeyKeyedBlockingQueue.HEARTBEAT_HASH)).thenReturn(Map.of(
+                "upgraded", upgraded,
+                "mixed", legacy,
+                "legacy", legacy));
+
+        PayloadFormatNegotiator legacyAwareNegotiator = new PayloadFormatNegotiator(
+                new ValkeyKeyedBlockingQueue(jedisPool), () -> QueuePayloadFormat.SMILE, () -> 64, clock);
+
+        assertThat(legacyAwareNegotiator.formatFor("upgraded")).isEqualTo(QueuePayloadFormat.SMILE);
+        assertThat(legacyAwareNegotiator.compressionThresholdFor("upgraded")).isEqualTo(64);
+        assertThat(legacyAwareNegotiator.supports("upgraded", QueueCapability.SHARDS)).isTrue();
+
+        for (String queueName : List.of("mixed", "legacy")) {
+            assertThat(legacyAwareNegotiator.formatFor(queueName)).isEqualTo(QueuePayloadFormat.JSON);
+            assertThat(legacyAwareNegotiator.compressionThresholdFor(queueName)).isZero();
+            assertThat(legacyAwareNegotiator.supports(queueName, QueueCapability.SHARDS)).isFalse();
+        }
+
+        // the older consumers are remembered after newer consumers overwrite the per-queue heartbeat
+        verify(pipeline).hset(ValkeyKeyedBlockingQueue.INSTANCE_HEARTBEAT_HASH, Map.of(
+                "mixed#legacy", legacy + " ",
+                "legacy#legacy", legacy + " "));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.common.storage.s3.filesystem;
+
+import org.deltafi.common.storage.s3.MissingContentException;
+import org.deltafi.common.storage.s3.ObjectReference;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FilesystemObjectStorageServiceTest {
+    private static final String BUCKET = "storage";
+    private static final String OBJECT_NAME = "abc/abcdef/1234";
+
+    @TempDir
+    Path baseDirectory;
+
+    private FilesystemObjectStorageService filesystemObjectStorageService;
+
+    @BeforeEach
+    void setup() throws IOException {
+        filesystemObjectStorageService = new FilesystemObjectStorageService(baseDirectory);
+    }
+
+    @Test
+    void putsAndGetsObject() throws ObjectStorageException, IOException {
+        ObjectReference objectReference = filesystemObjectStorageService.putObject(
+                new ObjectReference(BUCKET, OBJECT_NAME), new ByteArrayInputStream("hello world".getBytes()));
+
+        assertThat(objectReference).isEqualTo(new ObjectReference(BUCKET, OBJECT_NAME, 0, 11));
+        assertThat(baseDirectory.resolve(BUCKET).resolve(OBJECT_NAME)).hasContent("hello world");
+        assertThat(filesystemObjectStorageService.getTotalSize(objectReference)).isEqualTo(11);
+        try (InputStream inputStream = filesystemObjectStorageService.getObject(objectReference)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo("hello world".getBytes());
+        }
+        try (var files = Files.list(baseDirectory.resolve(".tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void getsRange() throws ObjectStorageException, IOException {
+        filesystemObjectStorageService.putObjectAsByteArray(new ObjectReference(BUCKET, OBJECT_NAME),
+                "hello world".getBytes());
+
+        try (InputStream inputStream = filesystemObjectStorageService.getObject(
+                new ObjectReference(BUCKET, OBJECT_NAME, 6, 3))) {
+            assertThat(inputStream.read()).isEqualTo('w');
+            assertThat(inputStream.readAllBytes()).isEqualTo("or".getBytes());
+        }
+    }
+
+    @Test
+    void transfersRangeToFile() throws ObjectStorageException, IOException {
+        filesystemObjectStorageService.putObjectAsByteArray(new ObjectReference(BUCKET, OBJECT_NAME),
+                "hello world".getBytes());
+        Path target = baseDirectory.resolve("target");
+
+        try (InputStream inputStream = filesystemObjectStorageService.getObject(
+                new ObjectReference(BUCKET, OBJECT_NAME, 0, 5));
+             FileOutputStream outputStream = new FileOutputStream(target.toFile())) {
+            assertThat(inputStream.transferTo(outputStream)).isEqualTo(5);
+        }
+        assertThat(target).hasContent("hello");
+    }
+
+    @Test
+    void missingObject() {
+        assertThatThrownBy(() -> filesystemObjectStorageService.getObject(new ObjectReference(BUCKET, OBJECT_NAME)))
+                .isInstanceOf(MissingContentException.class);
+        assertThat(filesystemObjectStorageService.getTotalSize(new ObjectReference(BUCKET, OBJECT_NAME))).isEqualTo(-1);
+    }
+
+    @Test
+    void writesObject() throws ObjectStorageException {
+        ObjectReference objectReference = filesystemObjectStorageService.writeObject(
+                new ObjectReference(BUCKET, OBJECT_NAME), outputStream -> outputStream.write("written".getBytes()));
+
+        assertThat(objectReference.getSize()).isEqualTo(7);
+        assertThat(baseDirectory.resolve(BUCKET).resolve(OBJECT_NAME)).hasContent("written");
+    }
+
+    @Test
+    void failedWriterLeavesNoObject() throws IOException {
+        assertThatThrownBy(() -> filesystemObjectStorageService.writeObject(new ObjectReference(BUCKET, OBJECT_NAME),
+                outputStream -> {
+                    outputStream.write("partial".getBytes());
+                    throw new IOException("failed");
+                })).isInstanceOf(ObjectStorageException.class);
+
+        assertThat(baseDirectory.resolve(BUCKET).resolve(OBJECT_NAME)).doesNotExist();
+        try (var files = Files.list(baseDirectory.resolve(".tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void putsAndRemovesObjects() throws ObjectStorageException {
+        Map<ObjectReference, InputStream> objects = new LinkedHashMap<>();
+        objects.put(new ObjectReference(BUCKET, "abc/abcdef/1"), new ByteArrayInputStream("1".getBytes()));
+        objects.put(new ObjectReference(BUCKET, "abc/abcdef/2"), new ByteArrayInputStream("2".getBytes()));
+
+        filesystemObjectStorageService.putObjects(BUCKET, objects);
+        assertThat(baseDirectory.resolve(BUCKET).resolve("abc/abcdef/1")).exists();
+        assertThat(baseDirectory.resolve(BUCKET).resolve("abc/abcdef/2")).exists();
+
+        assertThat(filesystemObjectStorageService.removeObjects(BUCKET, List.of("abc/abcdef/1", "abc/abcdef/2")))
+                .isTrue();
+        assertThat(baseDirectory.resolve(BUCKET).resolve("abc/abcdef/1")).doesNotExist();
+        assertThat(baseDirectory.resolve(BUCKET).resolve("abc/abcdef/2")).doesNotExist();
+    }
+
+    @Test
+    void rejectsObjectOutsideBucket() {
+        assertThatThrownBy(() -> filesystemObjectStorageService.putObject(new ObjectReference(BUCKET, "../escape"),
+                new ByteArrayInputStream("x".getBytes()))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -20,12 +20,14 @@ package org.deltafi.common.storage.s3.minio;
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.messages.DeleteError;
+import io.minio.messages.Part;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import org.assertj.core.api.Assertions;
 import org.deltafi.common.storage.s3.ObjectReference;
 import org.deltafi.common.storage.s3.ObjectStorageException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 
@@ -44,7 +46,9 @@ import static org.junit.jupiter.api.Assertions.*;
 class MinioObjectStorageServiceTest {
     private static final String BUCKET = "bucket";
     private final MinioClient minioClient = Mockito.mock(MinioClient.class);
-    private final MinioObjectStorageService minioObjectStorageService = new MinioObjectStorageService(minioClient, new MinioProperties());
+    private final MultipartUploadClient multipartUploadClient = Mockito.mock(MultipartUploadClient.class);
+    private final MinioObjectStorageService minioObjectStorageService =
+            new MinioObjectStorageService(minioClient, new MinioProperties(), multipartUploadClient);
     private final AtomicInteger putManyCount = new AtomicInteger(0);
 
     @Test
@@ -62,6 +66,18 @@ class MinioObjectStorageServiceTest {
                 () -> minioObjectStorageService.getObject(new ObjectReference(BUCKET, "objectName", 0, 10)));
     }
 
+    @Test
+    void testGetObjectOfUnknownSize() throws ObjectStorageException, IOException, ServerException,
+            InsufficientDataException, ErrorResponseException, NoSuchAlgorithmException, InvalidKeyException,
+            InvalidResponseException, XmlParserException, InternalException {
+        GetObjectResponse getObjectResponse = new GetObjectResponse(null, null, null, null, null);
+        Mockito.when(minioClient.getObject(GetObjectArgs.builder().bucket(BUCKET).object("objectName").offset(0L).build()))
+                .thenReturn(getObjectResponse);
+
+        assertEquals(getObjectResponse, minioObjectStorageService.getObject(
+                new ObjectReference(BUCKET, "objectName", 0, ObjectReference.UNKNOWN_SIZE)));
+    }
+
     @Test
     void testPutObject() throws ServerException, InsufficientDataException, ErrorResponseException, IOException,
             NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException,
@@ -81,6 +97,104 @@ class MinioObjectStorageServiceTest {
                 () -> minioObjectStorageService.putObject(new ObjectReference(BUCKET, "objectName", 0, 0), bufferedInputStream));
     }
 
+    @Test
+    @SneakyThrows
+    void testPutObjectFromWriter() {
+        Mockito.when(minioClient.putObject(Mockito.any())).thenReturn(objectWriteResponse("objectName"));
+
+        assertEquals(new ObjectReference(BUCKET, "objectName", 0, 5), minioObjectStorageService.writeObject(
+                new ObjectReference(BUCKET, "objectName"), outputStream -> outputStream.write("input".getBytes())));
+        Mockito.verify(minioClient).putObject(Mockito.argThat(this::putObjectMatch));
+        Mockito.verifyNoInteractions(multipartUploadClient);
+
+        assertEquals(new ObjectReference(BUCKET, "empty", 0, 0),
+                minioObjectStorageService.writeObject(new ObjectReference(BUCKET, "empty"), outputStream -> {}));
+        Mockito.verifyNoMoreInteractions(minioClient);
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutObjectFromWriterInParts() {
+        Mockito.when(multipartUploadClient.createMultipartUpload(BUCKET, "objectName")).thenReturn("uploadId");
+        Mockito.when(multipartUploadClient.uploadPart(Mockito.eq(BUCKET), Mockito.eq("objectName"),
+                        Mockito.eq("uploadId"), Mockito.anyInt(), Mockito.any(), Mockito.anyInt()))
+                .thenAnswer(invocation -> new Part(invocation.getArgument(3), "etag" + invocation.getArgument(3)));
+        int partSize = (int) new MinioProperties().getPartSize();
+
+        ObjectReference objectReference = minioObjectStorageService.writeObject(new ObjectReference(BUCKET, "objectName"),
+                outputStream -> {
+                    outputStream.write(new byte[partSize]);
+                    outputStream.write(new byte[partSize]);
+                    outputStream.write(new byte[500]);
+                });
+
+        assertEquals(new ObjectReference(BUCKET, "objectName", 0, partSize * 2L + 500), objectReference);
+        Mockito.verify(multipartUploadClient, Mockito.times(2)).uploadPart(Mockito.eq(BUCKET),
+                Mockito.eq("objectName"), Mockito.eq("uploadId"), Mockito.anyInt(), Mockito.any(), Mockito.eq(partSize));
+        Mockito.verify(multipartUploadClient).uploadPart(Mockito.eq(BUCKET), Mockito.eq("objectName"),
+                Mockito.eq("uploadId"), Mockito.eq(3), Mockito.any(), Mockito.eq(500));
+        Mockito.verify(multipartUploadClient).completeMultipartUpload(Mockito.eq(BUCKET), Mockito.eq("objectName"),
+                Mockito.eq("uploadId"), Mockito.argThat(parts -> parts.stream().map(Part::partNumber).toList()
+                        .equals(List.of(1, 2, 3))));
+        Mockito.verify(multipartUploadClient, Mockito.never()).abortMultipartUpload(Mockito.any(), Mockito.any(),
+                Mockito.any());
+        Mockito.verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutObjectFromWriterUsesMinimumPartSize() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setPartSize(1024);
+        MinioObjectStorageService smallPartStorageService = new MinioObjectStorageService(minioClient, minioProperties,
+                multipartUploadClient);
+        Mockito.when(minioClient.putObject(Mockito.any())).thenReturn(objectWriteResponse("objectName"));
+
+        smallPartStorageService.writeObject(new ObjectReference(BUCKET, "objectName"),
+                outputStream -> outputStream.write(new byte[4096]));
+
+        Mockito.verify(minioClient).putObject(Mockito.argThat(this::putObjectMatch));
+        Mockito.verifyNoInteractions(multipartUploadClient);
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutObjectFromFailedWriter() {
+        Mockito.when(multipartUploadClient.createMultipartUpload(BUCKET, "objectName")).thenReturn("uploadId");
+        Mockito.when(multipartUploadClient.uploadPart(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(),
+                Mockito.any(), Mockito.anyInt())).thenReturn(new Part(1, "etag"));
+        byte[] part = new byte[(int) new MinioProperties().getPartSize()];
+
+        assertThrows(ObjectStorageException.class, () -> minioObjectStorageService.writeObject(
+                new ObjectReference(BUCKET, "objectName"), outputStream -> {
+                    outputStream.write(part);
+                    outputStream.write(1);
+                    throw new IOException("failed");
+                }));
+        Mockito.verify(multipartUploadClient).abortMultipartUpload(BUCKET, "objectName", "uploadId");
+        Mockito.verify(multipartUploadClient, Mockito.never()).completeMultipartUpload(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any());
+        Mockito.verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutObjectFromWriterAbortsFailedCompletion() {
+        Mockito.when(multipartUploadClient.createMultipartUpload(BUCKET, "objectName")).thenReturn("uploadId");
+        Mockito.when(multipartUploadClient.uploadPart(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(),
+                Mockito.any(), Mockito.anyInt())).thenReturn(new Part(1, "etag"));
+        Mockito.doThrow(new ObjectStorageException("failed")).when(multipartUploadClient)
+                .completeMultipartUpload(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        byte[] part = new byte[(int) new MinioProperties().getPartSize()];
+
+        assertThrows(ObjectStorageException.class, () -> minioObjectStorageService.writeObject(
+                new ObjectReference(BUCKET, "objectName"), outputStream -> {
+                    outputStream.write(part);
+                    outputStream.write(1);
+                }));
+        Mockito.verify(multipartUploadClient).abortMultipartUpload(BUCKET, "objectName", "uploadId");
+    }
+
     private boolean putObjectMatch(PutObjectArgs putObjectArgs) {
         return putObjectArgs.bucket().equals(BUCKET) && putObjectArgs.object().equals("objectName");
     }
@@ -148,6 +262,43 @@ class MinioObjectStorageServiceTest {
         Mockito.verify(minioClient, Mockito.times(1)).removeObject(Mockito.any());
     }
 
+    @Test
+    @SneakyThrows
+    void testPutObjectsInParallel() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setPutObjectsConcurrency(2);
+        MinioObjectStorageService parallelStorageService = new MinioObjectStorageService(minioClient, minioProperties,
+                multipartUploadClient);
+        Mockito.when(minioClient.putObject(Mockito.any()))
+                .thenAnswer(invocation -> objectWriteResponse(invocation.getArgument(0, PutObjectArgs.class).object()));
+
+        parallelStorageService.putObjects(BUCKET, putManyInput());
+
+        ArgumentCaptor<PutObjectArgs> captor = ArgumentCaptor.forClass(PutObjectArgs.class);
+        Mockito.verify(minioClient, Mockito.times(3)).putObject(captor.capture());
+        Assertions.assertThat(captor.getAllValues()).extracting(PutObjectArgs::object)
+                .containsExactlyInAnyOrder("objectName0", "objectName1", "objectName2");
+        Mockito.verify(minioClient, Mockito.never()).removeObject(Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutObjectsInParallel_partialFailure() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setPutObjectsConcurrency(3);
+        MinioObjectStorageService parallelStorageService = new MinioObjectStorageService(minioClient, minioProperties,
+                multipartUploadClient);
+        Mockito.when(minioClient.putObject(Mockito.any())).thenAnswer(this::answerPut);
+        Map<ObjectReference, InputStream> input = putManyInput();
+
+        Assertions.assertThatThrownBy(() -> parallelStorageService.putObjects(BUCKET, input))
+                .isInstanceOf(ObjectStorageException.class)
+                .hasMessage("Failed to send incoming data to minio");
+
+        // the second upload throws, every other upload that was started is removed again
+        Mockito.verify(minioClient, Mockito.times(putManyCount.get() - 1)).removeObject(Mockito.any());
+    }
+
     private ObjectWriteResponse answerPut(InvocationOnMock invocations) {
         int count = putManyCount.incrementAndGet();
         if (count == 2) {
@@ -60,13 +60,14 @@ public class DeltaFiEgress extends HttpEgressBase<DeltaFiEgressParameters> {
                     "Cannot egress to the same flow as the data source");
         }
 
-        if (params.isSendLocal() && params.getUrl() == null) {
-            params.setUrl(localIngressUrl);
-        }
-
         return doEgress(context, params, HttpRequestMethod.POST, input);
     }
 
+    @Override
+    protected String resolveUrl(DeltaFiEgressParameters params) {
+        return params.isSendLocal() && params.getUrl() == null ? localIngressUrl : params.getUrl();
+    }
+
     @Override
     protected Map<String, String> buildHeaders(@NotNull ActionContext context, @NotNull DeltaFiEgressParameters params,
                                                @NotNull EgressInput input) throws JsonProcessingException {
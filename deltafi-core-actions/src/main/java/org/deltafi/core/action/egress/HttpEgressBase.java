@@ -50,6 +50,12 @@ public class HttpEgressBase<P extends ActionParameters & IHttpEgressParameters>
         this.httpClient = httpClient;
     }
 
+    // the HTTP egress actions never modify their parameters, so the conversion is shared by executions of a flow
+    @Override
+    protected boolean reusesParams() {
+        return true;
+    }
+
     public EgressResultType egress(@NotNull ActionContext context, @NotNull P params, @NotNull EgressInput input) {
         return doEgress(context, params, HttpRequestMethod.POST, input);
     }
@@ -117,7 +123,7 @@ public class HttpEgressBase<P extends ActionParameters & IHttpEgressParameters>
 
     private Request buildOkHttpRequest(@NotNull ActionContext context, @NotNull P params, @NotNull EgressInput input, @NotNull HttpRequestMethod method) throws IOException {
         Request.Builder requestBuilder = new Request.Builder()
-                .url(params.getUrl());
+                .url(resolveUrl(params));
 
         Map<String, String> headers = buildHeaders(context, params, input);
         headers.forEach(requestBuilder::addHeader);
@@ -146,6 +152,10 @@ public class HttpEgressBase<P extends ActionParameters & IHttpEgressParameters>
         return new ErrorResult(context, "Unsuccessful HTTP " + method + ": " + response.code(), errorBodyContent).logErrorTo(log);
     }
 
+    protected String resolveUrl(P params) {
+        return params.getUrl();
+    }
+
     protected RequestBody prepareRequestBody(ActionContext context, P params, EgressInput input) {
         return new InputStreamRequestBody(input);
     }
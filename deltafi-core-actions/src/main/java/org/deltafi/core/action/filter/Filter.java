@@ -61,6 +61,13 @@ public class Filter extends TransformAction<FilterParameters> {
                 .build());
     }
 
+    // the filter expressions are only read and are evaluated against the input, so the conversion is shared by
+    // executions of a flow
+    @Override
+    protected boolean reusesParams() {
+        return true;
+    }
+
     @Override
     public TransformResultType transform(@NotNull ActionContext context, @NotNull FilterParameters params, @NotNull TransformInput input) {
         if ((params.getFilterExpressions() == null) || params.getFilterExpressions().isEmpty()) {
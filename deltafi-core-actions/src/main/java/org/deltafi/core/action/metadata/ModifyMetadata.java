@@ -46,6 +46,12 @@ public class ModifyMetadata extends TransformAction<ModifyMetadataParameters> {
                 .build());
     }
 
+    // the metadata of each result is built in its own map, so the conversion is shared by executions of a flow
+    @Override
+    protected boolean reusesParams() {
+        return true;
+    }
+
     @Override
     public TransformResultType transform(@NotNull ActionContext context,
                                          @NotNull ModifyMetadataParameters params,
@@ -53,7 +59,7 @@ public class ModifyMetadata extends TransformAction<ModifyMetadataParameters> {
         TransformResult result = new TransformResult(context);
         result.addContent(input.content());
 
-        result.setMetadata(params.getAddOrModifyMetadata());
+        result.addMetadata(params.getAddOrModifyMetadata());
 
         params.getCopyMetadata().forEach((key, value) -> {
             if (input.getMetadata().containsKey(key)) {
@@ -49,6 +49,8 @@ class DeltaFiEgressTest {
 
         action.egress(getContext(), deltaFiEgressParameters, getEgressInput());
         Mockito.verify(okHttpClient).newCall(Mockito.assertArg(this::verifyRequest));
+        // the parameters may be shared with other executions, so the local URL must not be written back to them
+        Assertions.assertThat(deltaFiEgressParameters.getUrl()).isNull();
     }
 
     @SneakyThrows
@@ -25,9 +25,12 @@ import org.deltafi.test.asserters.FilterResultAssert;
 import org.deltafi.test.asserters.TransformResultAssert;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class FilterTest {
     private static final ActionContext CONTEXT = new ActionContext();
 
@@ -111,6 +114,22 @@ class FilterTest {
         TransformResultAssert.assertThat(result).hasContentCount(1);
     }
 
+    @Test
+    void doesNotModifyParams() {
+        FilterParameters params = new FilterParameters();
+        params.setFilterBehavior(FilterBehavior.ALL);
+        params.setFilterExpressions(new ArrayList<>(List.of("content.size() > 0", "metadata.containsKey('someKey')")));
+        FilterParameters original = new FilterParameters();
+        original.setFilterBehavior(FilterBehavior.ALL);
+        original.setFilterExpressions(new ArrayList<>(params.getFilterExpressions()));
+
+        action.transform(CONTEXT, params, createInput());
+        action.transform(CONTEXT, params, createInput());
+
+        assertThat(params).isEqualTo(original);
+        assertThat(action.reusesParams()).isTrue();
+    }
+
     private TransformInput createInput() {
         return TransformInput.builder()
                 .content(List.of(ActionContent.emptyContent(CONTEXT, "example.json", "application/json")))
@@ -25,6 +25,8 @@ import org.junit.jupiter.api.Test;
 
 import java.util.*;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class ModifyMetadataTest {
 
     ModifyMetadata action = new ModifyMetadata();
@@ -46,4 +48,25 @@ class ModifyMetadataTest {
                 .addedMetadata(Map.of("key1", "value1", "key2", "value2", "key3", "origVal1", "key4", "origVal1"))
                 .deletedMetadataKey("origKey2");
     }
+
+    @Test
+    void testTransformDoesNotModifyParams() {
+        ModifyMetadataParameters params = new ModifyMetadataParameters();
+        params.setAddOrModifyMetadata(new HashMap<>(Map.of("key1", "value1", "key2", "value2")));
+        params.setCopyMetadata(new HashMap<>(Map.of("origKey1", "key3")));
+        params.setDeleteMetadataKeys(new ArrayList<>(List.of("key2")));
+        ModifyMetadataParameters original = new ModifyMetadataParameters();
+        original.setAddOrModifyMetadata(new HashMap<>(params.getAddOrModifyMetadata()));
+        original.setCopyMetadata(new HashMap<>(params.getCopyMetadata()));
+        original.setDeleteMetadataKeys(new ArrayList<>(params.getDeleteMetadataKeys()));
+
+        action.transform(runner.actionContext(), params,
+                TransformInput.builder().metadata(Map.of("origKey1", "origVal1")).build());
+        ResultType result = action.transform(runner.actionContext(), params,
+                TransformInput.builder().metadata(Map.of()).build());
+
+        assertThat(params).isEqualTo(original);
+        assertThat(action.reusesParams()).isTrue();
+        TransformResultAssert.assertThat(result).addedMetadata(Map.of("key1", "value1"));
+    }
 }
@@ -40,7 +40,8 @@ import java.net.URISyntaxException;
 import java.time.Clock;
 
 @Configuration
-@EnableConfigurationProperties({EventQueueProperties.class, SslSecretNames.class, LocalStorageProperties.class})
+@EnableConfigurationProperties({EventQueueProperties.class, SslSecretNames.class, LocalStorageProperties.class,
+        ContentCacheProperties.class})
 public class DeltaFiConfiguration {
 
     @Bean
@@ -72,8 +73,12 @@ public class DeltaFiConfiguration {
     }
 
     @Bean
-    public CoreEventQueue coreEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, Clock clock) {
-        return new CoreEventQueue(valkeyKeyedBlockingQueue, clock);
+    public CoreEventQueue coreEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, Clock clock,
+            DeltaFiPropertiesService deltaFiPropertiesService) {
+        return new CoreEventQueue(valkeyKeyedBlockingQueue, clock,
+                () -> deltaFiPropertiesService.getDeltaFiProperties().getQueuePayloadFormat(),
+                () -> deltaFiPropertiesService.getDeltaFiProperties().getQueueCompressionThreshold(),
+                () -> deltaFiPropertiesService.getDeltaFiProperties().actionQueueShardsMap());
     }
 
     @Bean
@@ -20,6 +20,7 @@ package org.deltafi.core.configuration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.queue.QueuePayloadFormat;
 import org.deltafi.common.types.LogSeverity;
 import org.apache.commons.lang3.StringUtils;
 import org.deltafi.common.types.VariableDataType;
@@ -42,6 +43,7 @@ public class DeltaFiProperties {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private List<MemberConfig> cachedMemberConfigs;
+    private Map<String, Integer> cachedActionQueueShards = Map.of();
 
     @PropertyInfo(group = PropertyGroup.UI_CONTROLS, description = "Name of the DeltaFi system", defaultValue = "DeltaFi")
     private String systemName = "DeltaFi";
@@ -58,6 +60,67 @@ public class DeltaFiProperties {
     @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "The number of incoming events for core to queue internally for processing", defaultValue = "64", dataType = VariableDataType.NUMBER)
     private int coreInternalQueueSize = 64;
 
+    @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "The maximum number of action events core takes from the queue in a single request. The effective value is capped by coreInternalQueueSize.", defaultValue = "1", dataType = VariableDataType.NUMBER)
+    private int coreEventBatchSize = 1;
+
+    @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "Format used when writing action inputs to the action queues. "
+            + "SMILE is only used for queues whose action kit advertises support for it, JSON is used otherwise. Choose: JSON or SMILE", defaultValue = "JSON")
+    private QueuePayloadFormat queuePayloadFormat = QueuePayloadFormat.JSON;
+
+    @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "Minimum encoded size in bytes of an action input before it is LZ4 compressed on the action queues. "
+            + "Compression is only used for queues whose action kit advertises support for it. Set to 0 to disable compression.", defaultValue = "0", dataType = VariableDataType.NUMBER)
+    private int queueCompressionThreshold = 0;
+
+    @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "Comma-separated list of actionClass=shardCount entries. Action inputs for each listed action class are spread across "
+            + "that many queues by DeltaFile id to reduce contention on busy queues. Sharding is only used for queues whose action kit advertises support for it.", dataType = VariableDataType.LIST)
+    private String actionQueueShards;
+
+    public void setActionQueueShards(String actionQueueShards) {
+        this.cachedActionQueueShards = parseActionQueueShards(actionQueueShards);
+        this.actionQueueShards = actionQueueShards;
+    }
+
+    /**
+     * Returns the number of shards of each sharded action queue. Action classes configured with a single shard are
+     * omitted.
+     *
+     * @return map of action class names to their number of shards
+     */
+    public Map<String, Integer> actionQueueShardsMap() {
+        return cachedActionQueueShards;
+    }
+
+    private Map<String, Integer> parseActionQueueShards(String config) {
+        if (config == null || config.isBlank()) {
+            return Map.of();
+        }
+
+        Map<String, Integer> shards = new HashMap<>();
+        for (String entry : config.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] parts = entry.split("=");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalArgumentException("Invalid actionQueueShards entry '" + entry.trim() + "', expected actionClass=shardCount");
+            }
+
+            int shardCount;
+            try {
+                shardCount = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid shard count in actionQueueShards entry '" + entry.trim() + "'");
+            }
+            minCheck(shardCount, 1, "actionQueueShards shard count");
+
+            if (shardCount > 1) {
+                shards.put(parts[0].trim(), shardCount);
+            }
+        }
+        return Map.copyOf(shards);
+    }
+
     @PropertyInfo(group = PropertyGroup.PERFORMANCE_CONTROLS, description = "Maximum allowed number of threads", defaultValue = "8", dataType = VariableDataType.NUMBER)
     private int scheduledServiceThreads = 8;
 
@@ -77,7 +77,7 @@ public class MonitorService {
         MonitorResult monitorResult = MonitorResult.statuses(new ArrayList<>(statuses.values()));
         try {
             String json = OBJECT_MAPPER.writeValueAsString(monitorResult);
-            valkeyQueue.set(SSE_STATUS_CHANNEL, json);
+            valkeyQueue.setAndPublish(SSE_STATUS_CHANNEL, json);
             valkeyQueue.set(ValkeyKeyedBlockingQueue.MONITOR_STATUS_HASH, json);
         } catch (Exception e) {
             log.error("Failed to publish status", e);
@@ -18,6 +18,7 @@
 package org.deltafi.core.monitor.checks;
 
 import org.deltafi.common.lookup.LookupTableEvent;
+import org.deltafi.common.queue.QueueShards;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.core.metrics.MetricService;
 import org.deltafi.core.monitor.MonitorProfile;
@@ -52,8 +53,9 @@ public class ActionQueueCheck extends StatusCheck {
         int threshold = deltaFiPropertiesService.getDeltaFiProperties().getCheckActionQueueSizeThreshold();
 
         Set<String> recentQueueNames = valkeyQueue.getRecentQueues();
-        Map<String, Long> queuesOverThreshold = checkQueueSizes(recentQueueNames, threshold);
-        Map<String, Long> orphans = findOrphans(recentQueueNames);
+        Set<String> allKeys = valkeyQueue.keys();
+        Map<String, Long> queuesOverThreshold = checkQueueSizes(recentQueueNames, allKeys, threshold);
+        Map<String, Long> orphans = findOrphans(recentQueueNames, allKeys);
 
         addOverThresholdMessage(queuesOverThreshold, resultBuilder, threshold);
         addOrphanMessage(orphans, resultBuilder);
@@ -61,8 +63,8 @@ public class ActionQueueCheck extends StatusCheck {
         return result(resultBuilder);
     }
 
-    private Map<String, Long> checkQueueSizes(Set<String> recentQueueNames, int threshold) {
-        Map<String, Long> queuesCounts = valkeyQueue.queuesCounts(recentQueueNames);
+    private Map<String, Long> checkQueueSizes(Set<String> recentQueueNames, Set<String> allKeys, int threshold) {
+        Map<String, Long> queuesCounts = queuesCounts(recentQueueNames, allKeys);
         Map<String, Long> fatQueues = new HashMap<>();
 
         generateQueueSizeMetrics(queuesCounts);
@@ -76,8 +78,22 @@ public class ActionQueueCheck extends StatusCheck {
         return fatQueues;
     }
 
-    private Map<String, Long> findOrphans(Set<String> recentQueueNames) {
-        Set<String> allKeys = valkeyQueue.keys();
+    /**
+     * Count the entries of each recent queue, adding up the shards of sharded queues
+     */
+    private Map<String, Long> queuesCounts(Set<String> recentQueueNames, Set<String> allKeys) {
+        Set<String> queueKeys = new HashSet<>(recentQueueNames);
+        allKeys.stream()
+                .filter(key -> recentQueueNames.contains(QueueShards.queueName(key)))
+                .forEach(queueKeys::add);
+
+        Map<String, Long> queuesCounts = new HashMap<>();
+        valkeyQueue.queuesCounts(queueKeys).forEach((key, count) -> queuesCounts.merge(QueueShards.queueName(key),
+                count != null ? count : 0L, Long::sum));
+        return queuesCounts;
+    }
+
+    private Map<String, Long> findOrphans(Set<String> recentQueueNames, Set<String> allKeys) {
         Set<String> orphans = new HashSet<>();
         for (String queueName : allKeys) {
             if (expectedQueue(queueName, recentQueueNames)) {
@@ -129,6 +145,6 @@ public class ActionQueueCheck extends StatusCheck {
                 queueName.startsWith(ValkeyKeyedBlockingQueue.SSE_VALKEY_CHANNEL_PREFIX) ||
                 queueName.startsWith("gauge.node") ||
                 queueName.startsWith(LookupTableEvent.PREFIX) ||
-                recentQueueNames.contains(queueName);
+                recentQueueNames.contains(QueueShards.queueName(queueName));
     }
 }
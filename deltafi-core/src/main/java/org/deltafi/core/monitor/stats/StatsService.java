@@ -58,7 +58,7 @@ public class StatsService {
         DeltaFileStats deltaFileStats = deltaFilesService.deltaFileStats();
         sendMetrics(deltaFileStats);
         try {
-            valkeyQueue.set(DELTAFILE_STATS_CHANNEL, OBJECT_MAPPER.writeValueAsString(deltaFileStats));
+            valkeyQueue.setAndPublish(DELTAFILE_STATS_CHANNEL, OBJECT_MAPPER.writeValueAsString(deltaFileStats));
         } catch (Exception e) {
             log.error("Failed to publish deltaFileStats to valkey", e);
         }
@@ -86,6 +86,6 @@ public class StatsService {
     }
 
     protected void publishData(String key, long value) {
-        valkeyQueue.set(key, "" + value);
+        valkeyQueue.setAndPublish(key, "" + value);
     }
 }
@@ -62,6 +62,7 @@ public class DockerDeployerService extends BaseDeployerService implements Deploy
 
     private final List<String> environmentVariables;
     private final String dataDir;
+    private final String storageFilesystemPath;
 
     public DockerDeployerService(DockerClient dockerClient, PluginService pluginService, SslSecretNames sslSecretNames,
                                  EventService eventService, EnvironmentVariableHelper environmentVariableHelper,
@@ -71,6 +72,7 @@ public class DockerDeployerService extends BaseDeployerService implements Deploy
         this.sslSecretNames = sslSecretNames;
         this.environmentVariables = environmentVariableHelper.getEnvVars();
         this.dataDir = environmentVariableHelper.getDataDir();
+        this.storageFilesystemPath = environmentVariableHelper.getStorageFilesystemPath();
     }
 
     @Override
@@ -264,9 +266,20 @@ public class DockerDeployerService extends BaseDeployerService implements Deploy
                 .withNetworkMode("deltafi")
                 .withRestartPolicy(RestartPolicy.unlessStoppedRestart());
 
+        List<Bind> binds = new ArrayList<>();
         if (StringUtils.isNotBlank(dataDir) && ensureSecretDirExists()) {
             String bindDir = Path.of(dataDir, "certs", sslSecretNames.pluginsSsl()).toString();
-            hostConfig.withBinds(new Bind(bindDir, new Volume("/certs")));
+            binds.add(new Bind(bindDir, new Volume("/certs")));
+        }
+
+        // plugins read and write local object storage files directly when the core does
+        if (StringUtils.isNotBlank(dataDir) && StringUtils.isNotBlank(storageFilesystemPath)) {
+            String bindDir = Path.of(dataDir, "minio").toString();
+            binds.add(new Bind(bindDir, new Volume(storageFilesystemPath)));
+        }
+
+        if (!binds.isEmpty()) {
+            hostConfig.withBinds(binds);
         }
 
         return hostConfig;
@@ -35,10 +35,12 @@ public class EnvironmentVariableHelper {
     private final String dataDir;
     private final List<String> envVars;
     private final String keyPassphrase;
+    private final String storageFilesystemPath;
 
     public EnvironmentVariableHelper(MinioProperties minioProperties, StorageProperties storageProperties, SslConfigService sslConfigService,
                                      EventQueueProperties eventQueueProperties, Environment environment) {
         this.dataDir = environment.getProperty("DATA_DIR");
+        this.storageFilesystemPath = environment.getProperty("storage.filesystem.path");
         this.envVars = buildEnvVarList(minioProperties, storageProperties, eventQueueProperties, environment);
         this.keyPassphrase = sslConfigService.getPluginKeyPassphrase();
     }
@@ -53,6 +55,7 @@ public class EnvironmentVariableHelper {
                 "MINIO_SECRETKEY=" + minioProperties.getSecretKey(),
                 "MINIO_URL=" + minioProperties.getUrl(),
                 "MINIO_PARTSIZE=" + minioProperties.getPartSize(),
+                "MINIO_PUTOBJECTSCONCURRENCY=" + minioProperties.getPutObjectsConcurrency(),
                 "REDIS_URL=" + eventQueueProperties.getUrl(),
                 "REDIS_PASSWORD=" + (eventQueueProperties.getPassword() == null ? "" : eventQueueProperties.getPassword()),
                 "VALKEY_URL=" + eventQueueProperties.getUrl(),
@@ -60,6 +63,18 @@ public class EnvironmentVariableHelper {
                 "SSL_PROTOCOL=" + sslProtocol,
                 "STORAGE_BUCKET_NAME=" + storageProperties.bucketName()));
 
+        if (storageProperties.packMaxContentSize() > 0) {
+            properties.add("STORAGE_PACK_MAX_CONTENT_SIZE=" + storageProperties.packMaxContentSize());
+        }
+
+        if (storageProperties.compressContent()) {
+            properties.add("STORAGE_COMPRESS_CONTENT=true");
+        }
+
+        if (StringUtils.isNotBlank(this.storageFilesystemPath)) {
+            properties.add("STORAGE_FILESYSTEM_PATH=" + this.storageFilesystemPath);
+        }
+
         // match k8s behavior where this is not injected if it is not set
         if (StringUtils.isNotBlank(this.keyPassphrase)) {
             properties.add("KEY_PASSWORD=" + this.keyPassphrase);
@@ -39,10 +39,12 @@ public class QueueCleanupScheduler {
 
     private static final long INITIAL_DELAY = 5L;
     private static final long PERIOD = 5L;
+    private static final long INDEX_PRUNE_PERIOD = 60L;
 
     @PostConstruct
     public void schedule() {
         taskScheduler.scheduleAtFixedRate(this::cleanupQueues, Instant.now().plusSeconds(INITIAL_DELAY), Duration.ofSeconds(PERIOD));
+        taskScheduler.scheduleAtFixedRate(this::pruneQueueIndexes, Instant.now().plusSeconds(INDEX_PRUNE_PERIOD), Duration.ofSeconds(INDEX_PRUNE_PERIOD));
     }
 
     public void cleanupQueues() {
@@ -57,4 +59,8 @@ public class QueueCleanupScheduler {
     public void removeOrphanedDgsQueues() {
         coreEventQueue.removeOrphanedDgsQueues();
     }
+
+    public void pruneQueueIndexes() {
+        coreEventQueue.pruneQueueIndexes();
+    }
 }
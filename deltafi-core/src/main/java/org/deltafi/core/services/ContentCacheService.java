@@ -0,0 +1,101 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+// ABOUTME: Byte-bounded in-memory cache of small content served by the content endpoints.
+// ABOUTME: Entries are keyed by the segments they were read from and evicted when their DeltaFiles are deleted.
+package org.deltafi.core.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.deltafi.common.content.ContentStorageService;
+import org.deltafi.common.content.Segment;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.deltafi.common.types.Content;
+import org.deltafi.core.configuration.ContentCacheProperties;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class ContentCacheService {
+    private final ContentStorageService contentStorageService;
+    private final long maxContentSize;
+    private final Cache<List<Segment>, byte[]> cache;
+
+    public ContentCacheService(ContentStorageService contentStorageService,
+            ContentCacheProperties contentCacheProperties) {
+        this.contentStorageService = contentStorageService;
+        this.maxContentSize = Math.min(contentCacheProperties.maxContentSize(), contentCacheProperties.maxBytes());
+        this.cache = contentCacheProperties.maxBytes() > 0 ? Caffeine.newBuilder()
+                .maximumWeight(contentCacheProperties.maxBytes())
+                .<List<Segment>, byte[]>weigher((segments, bytes) -> bytes.length)
+                .build() : null;
+    }
+
+    /**
+     * Load the content, serving content no larger than the configured maximum from memory once it has been read
+     * @param content the content to load
+     * @return a stream of the content
+     * @throws ObjectStorageException if the content cannot be read from storage
+     */
+    public InputStream load(Content content) throws ObjectStorageException {
+        if (cache == null || content.getSize() == 0 || content.getSize() > maxContentSize) {
+            return contentStorageService.load(content);
+        }
+
+        List<Segment> key = content.getSegments().stream().map(Segment::new).toList();
+        byte[] bytes = cache.getIfPresent(key);
+        if (bytes == null) {
+            try (InputStream inputStream = contentStorageService.load(content)) {
+                bytes = inputStream.readAllBytes();
+            } catch (IOException e) {
+                throw new ObjectStorageException("Failed to read content from storage", e);
+            }
+            cache.put(key, bytes);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Evict all cached content read from segments owned by the given DeltaFiles
+     * @param dids the dids of the DeltaFiles whose content was deleted
+     */
+    public void evict(Collection<UUID> dids) {
+        if (cache == null || dids.isEmpty() || cache.estimatedSize() == 0) {
+            return;
+        }
+
+        Set<UUID> deleted = new HashSet<>(dids);
+        cache.asMap().keySet().removeIf(segments -> segments.stream().anyMatch(segment -> deleted.contains(segment.getDid())));
+    }
+
+    public long getCachedBytes() {
+        if (cache == null) {
+            return 0;
+        }
+
+        cache.cleanUp();
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+}
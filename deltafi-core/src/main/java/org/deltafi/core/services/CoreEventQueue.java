@@ -17,17 +17,18 @@
  */
 package org.deltafi.core.services;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.deltafi.common.lookup.LookupTableEvent;
 import org.deltafi.common.lookup.LookupTableEventResult;
+import org.deltafi.common.queue.QueueCapability;
+import org.deltafi.common.queue.QueueIndexKeys;
+import org.deltafi.common.queue.QueuePayloadCodec;
+import org.deltafi.common.queue.QueuePayloadFormat;
+import org.deltafi.common.queue.QueueShards;
+import org.deltafi.common.queue.valkey.PayloadFormatNegotiator;
 import org.deltafi.common.queue.valkey.SortedSetEntry;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.common.types.*;
@@ -35,45 +36,116 @@ import org.deltafi.core.types.WrappedActionInput;
 
 import java.time.*;
 import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 /**
  * Service for pushing and popping action events to a valkey queue.
  */
-@RequiredArgsConstructor
 @Slf4j
 public class CoreEventQueue {
 
-    private static final ObjectMapper OBJECT_MAPPER;
-    static {
-        ObjectMapper temp = new ObjectMapper()
-                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                .configure(DeserializationFeature.USE_LONG_FOR_INTS, true)
-                .registerModule(new JavaTimeModule());
-        StreamReadConstraints streamReadConstraints = StreamReadConstraints
-                .builder()
-                .maxStringLength(16 * 1024 * 1024)
-                .build();
-        temp.getFactory().setStreamReadConstraints(streamReadConstraints);
-        OBJECT_MAPPER = temp;
-    }
+    private static final ObjectMapper OBJECT_MAPPER = QueuePayloadCodec.JSON_MAPPER;
 
     public static final String DGS_QUEUE = "dgs";
     private static final Duration LONG_RUNNING_HEARTBEAT_THRESHOLD = Duration.ofSeconds(30);
+    // the core reads results from unsharded queues, so it never advertises SHARDS
+    private static final List<QueueCapability> CAPABILITIES = List.of(QueueCapability.SMILE, QueueCapability.LZ4);
 
     private final ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
     private final Clock clock;
+    private final PayloadFormatNegotiator payloadFormatNegotiator;
+    private final Supplier<Map<String, Integer>> queueShards;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public CoreEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, Clock clock) {
+        this(valkeyKeyedBlockingQueue, clock, () -> QueuePayloadFormat.JSON, () -> 0);
+    }
+
+    /**
+     * Create a CoreEventQueue that writes action inputs in the preferred format to queues whose consumers advertise
+     * support for it
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param clock the clock used for timestamps
+     * @param preferredFormat supplies the format to use when the consumer can read it
+     * @param compressionThreshold supplies the minimum encoded size in bytes of action inputs to compress when the
+     *                             consumer can decompress them, 0 to disable compression
+     */
+    public CoreEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, Clock clock,
+            Supplier<QueuePayloadFormat> preferredFormat, IntSupplier compressionThreshold) {
+        this(valkeyKeyedBlockingQueue, clock, preferredFormat, compressionThreshold, Map::of);
+    }
+
+    /**
+     * Create a CoreEventQueue that also spreads the action inputs of the configured queues across shards when the
+     * consumers of the queue advertise support for sharding
+     *
+     * @param valkeyKeyedBlockingQueue the underlying queue
+     * @param clock the clock used for timestamps
+     * @param preferredFormat supplies the format to use when the consumer can read it
+     * @param compressionThreshold supplies the minimum encoded size in bytes of action inputs to compress when the
+     *                             consumer can decompress them, 0 to disable compression
+     * @param queueShards supplies the number of shards of each sharded queue
+     */
+    public CoreEventQueue(ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue, Clock clock,
+            Supplier<QueuePayloadFormat> preferredFormat, IntSupplier compressionThreshold,
+            Supplier<Map<String, Integer>> queueShards) {
+        this.valkeyKeyedBlockingQueue = valkeyKeyedBlockingQueue;
+        this.clock = clock;
+        this.payloadFormatNegotiator = new PayloadFormatNegotiator(valkeyKeyedBlockingQueue, preferredFormat,
+                compressionThreshold, clock);
+        this.queueShards = queueShards;
+    }
 
     public Set<String> keys() {
         return valkeyKeyedBlockingQueue.keys();
     }
 
+    /**
+     * Drop the queues, including any shards of them
+     *
+     * @param actionNames the names of the queues to drop
+     */
     public void drop(Collection<String> actionNames) {
-        valkeyKeyedBlockingQueue.drop(actionNames);
+        Set<String> keys = new HashSet<>(actionNames);
+        valkeyKeyedBlockingQueue.keys().stream()
+                .filter(key -> actionNames.contains(QueueShards.queueName(key)))
+                .forEach(keys::add);
+        valkeyKeyedBlockingQueue.drop(keys);
+    }
+
+    /**
+     * Publish the configured number of shards of each queue so the consumers of sharded queues know which shard keys
+     * to take from
+     */
+    public void publishQueueShards() {
+        valkeyKeyedBlockingQueue.setQueueShards(queueShards.get());
+    }
+
+    private int shardCount(String queueName, Map<String, Integer> configuredShards) {
+        int shards = configuredShards.getOrDefault(queueName, 1);
+        return shards > 1 && payloadFormatNegotiator.supports(queueName, QueueCapability.SHARDS) ? shards : 1;
     }
 
+    /**
+     * Publish a heartbeat for the given result queue. The heartbeat also advertises that the core can read Smile
+     * encoded and compressed results from the queue.
+     *
+     * @param key the name of the result queue
+     */
     public void setHeartbeat(String key) {
-        valkeyKeyedBlockingQueue.setHeartbeat(key);
+        setHeartbeats(List.of(key));
+    }
+
+    /**
+     * Publish heartbeats for the given result queues in a single round trip, advertising the same capabilities as
+     * {@link #setHeartbeat(String)}
+     *
+     * @param keys the names of the result queues
+     */
+    public void setHeartbeats(Collection<String> keys) {
+        valkeyKeyedBlockingQueue.setHeartbeats(keys, instanceId, CAPABILITIES);
     }
 
     /**
@@ -83,8 +155,16 @@ public class CoreEventQueue {
      * @return true if a tasking for the action exists in the queue, false otherwise
      */
     public boolean queueHasTaskingForAction(ActionInput actionInput) {
-        return valkeyKeyedBlockingQueue.exists(actionInput.getQueueName(), "*\"actionName\":\"" +
-                actionInput.getActionContext().getActionName() + "\"*");
+        String actionName = actionInput.getActionContext().getActionName();
+        String queueName = actionInput.getQueueName();
+        // check every shard in case the entry was written before the number of shards changed
+        int shards = queueShards.get().getOrDefault(queueName, 1);
+        for (String shardKey : QueueShards.shardKeys(queueName, shards)) {
+            if (valkeyKeyedBlockingQueue.containsIndexed(shardKey, QueueIndexKeys.actionKey(actionName))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -92,33 +172,45 @@ public class CoreEventQueue {
      * If the {@code checkUnique} parameter is set to {@code true}, this method will ensure that no other item with the
      * same 'did' field value already exists in the queue before adding an action input.
      * <p>
-     * Note that checking for uniqueness is an expensive operation as it involves scanning the Valkey set, which can be
-     * slow and resource-intensive, particularly for larger sets. Therefore, it's recommended to use this option only in
-     * requeue scenarios.
+     * Every action input is added to the queue's index under its flow id and action name, which makes the uniqueness
+     * check a lookup of the index rather than a scan of the Valkey set.
+     * <p>
+     * Action inputs are written as Smile when the preferred format is Smile and the consumer of the queue has advertised
+     * support for it, otherwise they are written as JSON. Large action inputs are compressed under the same rule. If
+     * the serialization of an action input fails, the method will log an error and skip that input.
      * <p>
-     * If the conversion of an action input to JSON fails, the method will log an error and skip that input.
+     * When a queue is configured with multiple shards and its consumers have advertised support for sharding, each
+     * action input is written to the shard selected by its DeltaFile id. All action inputs for a DeltaFile land in the
+     * same shard, so the uniqueness check only needs to look at that shard.
      *
      * @param actionInputs a list of action inputs to be queued
      * @param checkUnique  if {@code true}, the method will check for uniqueness of 'did' field values before queuing an action input;
      *                     if {@code false}, the method will queue all action inputs without checking for uniqueness
      */
     public void putActions(List<WrappedActionInput> actionInputs, boolean checkUnique) {
+        Map<String, Integer> configuredShards = queueShards.get();
         List<SortedSetEntry> actions = new ArrayList<>();
         for (WrappedActionInput actionInput : actionInputs) {
             if (actionInput.isColdQueued()) {
                 continue;
             }
 
+            String key = QueueShards.shardKey(actionInput.getQueueName(),
+                    QueueShards.shardFor(actionInput.getActionContext().getDid(),
+                            shardCount(actionInput.getQueueName(), configuredShards)));
+
             if (checkUnique) {
-                String pattern = "*\"" + actionInput.getActionContext().getFlowId() + "\"*";
-                if (valkeyKeyedBlockingQueue.exists(actionInput.getQueueName(), pattern)) {
+                UUID flowId = actionInput.getActionContext().getFlowId();
+                if (valkeyKeyedBlockingQueue.containsIndexed(key, QueueIndexKeys.flowKey(flowId))) {
                     log.warn("Skipping queueing for potential duplicate action event: {}", actionInput);
                     continue;
                 }
             }
 
             try {
-                actions.add(new SortedSetEntry(actionInput.getQueueName(), OBJECT_MAPPER.writeValueAsString(actionInput), actionInput.getActionCreated()));
+                actions.add(new SortedSetEntry(key,
+                        payloadFormatNegotiator.encode(actionInput, actionInput.getQueueName()),
+                        actionInput.getActionCreated(), QueueIndexKeys.forActionInput(actionInput)));
             } catch (JsonProcessingException e) {
                 log.error("Unable to convert action to JSON", e);
             }
@@ -137,14 +229,44 @@ public class CoreEventQueue {
     }
 
     public ActionEvent takeResult(String returnAddress) throws JsonProcessingException {
-        return convertEvent(valkeyKeyedBlockingQueue.take(queueName(returnAddress)));
+        List<SortedSetEntry> entries = valkeyKeyedBlockingQueue.take(queueName(returnAddress), 1);
+        return entries.isEmpty() ? null : convertEvent(entries.getFirst().getValue());
+    }
+
+    /**
+     * Takes up to maxResults action events from the result queue in a single request, blocking until at least one is
+     * available. The events are deserialized in parallel when more than one is returned. Entries that cannot be
+     * deserialized are logged and dropped so they do not hold up the rest of the batch.
+     *
+     * @param returnAddress the return address of the queue to take from, or null for the shared queue
+     * @param maxResults the maximum number of events to take
+     * @return the deserialized events in queue order
+     */
+    public List<ActionEvent> takeResults(String returnAddress, int maxResults) {
+        List<SortedSetEntry> entries = valkeyKeyedBlockingQueue.take(queueName(returnAddress), maxResults);
+        return (entries.size() > 1 ? entries.parallelStream() : entries.stream())
+                .map(CoreEventQueue::convertEventOrNull)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
+    private static ActionEvent convertEventOrNull(SortedSetEntry entry) {
+        try {
+            return convertEvent(entry.getValue());
+        } catch (JsonProcessingException e) {
+            log.error("Unable to convert action event from JSON, dropping the event: {}", e.getMessage());
+            return null;
+        }
     }
 
     public static ActionEvent convertEvent(String element) throws JsonProcessingException {
         return OBJECT_MAPPER.readValue(element, ActionEvent.class);
     }
 
+    public static ActionEvent convertEvent(byte[] element) throws JsonProcessingException {
+        return QueuePayloadCodec.decode(element, ActionEvent.class);
+    }
+
     public long size(String key) {
         return valkeyKeyedBlockingQueue.sortedSetSize(key);
     }
@@ -159,7 +281,7 @@ public class CoreEventQueue {
     public void streamQueue(String queueName, java.util.function.Consumer<QueuedActionInfo> consumer) {
         valkeyKeyedBlockingQueue.scanSortedSet(queueName, 100, tuple -> {
             try {
-                ActionInput input = OBJECT_MAPPER.readValue(tuple.getElement(), ActionInput.class);
+                ActionInput input = QueuePayloadCodec.decode(tuple.getBinaryElement(), ActionInput.class);
                 var ctx = input.getActionContext();
                 if (ctx != null) {
                     OffsetDateTime queuedAt = OffsetDateTime.ofInstant(
@@ -282,6 +404,13 @@ public class CoreEventQueue {
         }
     }
 
+    /**
+     * Drop the indexes of queues that no longer exist and index fields of action inputs that have already been taken
+     */
+    public void pruneQueueIndexes() {
+        valkeyKeyedBlockingQueue.pruneIndexes();
+    }
+
     public void removeOrphanedDgsQueues() {
         Set<String> orphans = valkeyKeyedBlockingQueue.getOldDgsQueues();
         if (!orphans.isEmpty()) {
@@ -325,7 +454,7 @@ public class CoreEventQueue {
     }
 
     public void dropLookupTableEvent(LookupTableEvent lookupTableEvent) {
-        drop(List.of(lookupTableEvent.getKey()));
+        valkeyKeyedBlockingQueue.drop(List.of(lookupTableEvent.getKey()));
     }
 
     private static final Duration MAX_RESPONSE_DURATION = Duration.ofMinutes(1);
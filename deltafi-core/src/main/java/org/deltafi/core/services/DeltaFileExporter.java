@@ -149,6 +149,8 @@ public class DeltaFileExporter {
             Segment copy = new Segment(segment);
             // rewrite the segment did so it will be owned by the exported DeltaFile when it is imported
             segment.setDid(deltaFile.getDid());
+            // the content is exported decompressed
+            segment.setCompressed(false);
             if (!segments.containsKey(segment.getUuid())) {
                 Content content = new Content();
                 long size = contentStorageService.getTotalSize(copy);
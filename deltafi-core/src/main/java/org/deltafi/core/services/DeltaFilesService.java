@@ -122,9 +122,11 @@ public class DeltaFilesService {
     private final FlowCacheService flowCacheService;
     private final org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue valkeyQueue;
     private final ErrorCountService errorCountService;
+    private final ContentCacheService contentCacheService;
 
     private ExecutorService executor;
     private Semaphore semaphore;
+    private int internalQueueSize;
 
     private boolean processIncomingEvents = true;
 
@@ -137,7 +139,7 @@ public class DeltaFilesService {
             int threadCount = properties.getCoreServiceThreads() > 0 ? properties.getCoreServiceThreads() : 16;
             executor = Executors.newFixedThreadPool(threadCount);
             log.info("Executors pool size: {}", threadCount);
-            int internalQueueSize = properties.getCoreInternalQueueSize() > 0 ? properties.getCoreInternalQueueSize() : 64;
+            internalQueueSize = properties.getCoreInternalQueueSize() > 0 ? properties.getCoreInternalQueueSize() : 64;
             semaphore = new Semaphore(internalQueueSize);
             log.info("Internal queue size: {}", internalQueueSize);
         }
@@ -1781,6 +1783,7 @@ public class DeltaFilesService {
         } catch (Exception e) {
             log.error("Failed to remove the content for did {}", did, e);
         }
+        contentCacheService.evict(List.of(did));
     }
 
     /**
@@ -1860,6 +1863,7 @@ public class DeltaFilesService {
                     )
                     .toList());
         }
+        contentCacheService.evict(deltaFilesWithContent.stream().map(DeltaFileDeleteDTO::getDid).toList());
 
         if (deleteMetadata) {
             deleteMetadata(deltaFiles);
@@ -2157,9 +2161,14 @@ public class DeltaFilesService {
     public boolean processActionEvents(String uniqueId) {
         try {
             while (!Thread.currentThread().isInterrupted() && processIncomingEvents) {
-                ActionEvent event = coreEventQueue.takeResult(uniqueId);
-                validateActionEventHeader(event);
-                processResult(event);
+                int batchSize = Math.min(getProperties().getCoreEventBatchSize(), internalQueueSize);
+                if (batchSize > 1) {
+                    processResults(coreEventQueue.takeResults(uniqueId, batchSize));
+                } else {
+                    ActionEvent event = coreEventQueue.takeResult(uniqueId);
+                    validateActionEventHeader(event);
+                    processResult(event);
+                }
             }
         } catch (Throwable e) {
             log.error("Error receiving event: {}", e.getMessage());
@@ -2181,39 +2190,75 @@ public class DeltaFilesService {
 
         try {
             semaphore.acquire();
-            executor.submit(() -> {
-                try {
-                    int count = 0;
-                    while (true) {
-                        try {
-                            count += 1;
-                            handleActionEvent(event);
-                            break;
-                        } catch (OptimisticLockingFailureException e) {
-                            if (count > 9) {
-                                throw e;
-                            } else {
-                                log.warn("Retrying after OptimisticLockingFailureException caught processing {} for {}. Error: {}", event.getActionName(), event.getDid(), e.getMessage(), e);
-                                deltaFileCacheService.remove(event.getDid());
-                            }
-                        } catch (Throwable e) {
-                            StringWriter stackWriter = new StringWriter();
-                            e.printStackTrace(new PrintWriter(stackWriter));
-                            log.error("Exception processing incoming action event: \n{}\n{}", e.getMessage(), stackWriter);
-                            deltaFileCacheService.remove(event.getDid());
-                            break;
-                        }
-                    }
-                } finally {
-                    semaphore.release();
-                }
-            });
+            submitActionEvent(event);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Preserve interrupt status
             log.error("Thread interrupted while waiting for a permit to process action event: {}", e.getMessage());
         }
     }
 
+    /**
+     * Process a batch of action events taken from the queue in a single request. Permits for the whole batch are
+     * acquired at once, so the batch must not be larger than the internal queue size. Events with an invalid header
+     * are logged and skipped without affecting the rest of the batch.
+     *
+     * @param events the action events to process
+     */
+    public void processResults(List<ActionEvent> events) {
+        List<ActionEvent> validEvents = new ArrayList<>(events.size());
+        for (ActionEvent event : events) {
+            try {
+                validateActionEventHeader(event);
+                validEvents.add(event);
+            } catch (InvalidActionEventException ignored) {
+                // already logged by validateActionEventHeader
+            }
+        }
+
+        if (validEvents.isEmpty()) {
+            return;
+        }
+
+        try {
+            semaphore.acquire(validEvents.size());
+            validEvents.forEach(this::submitActionEvent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Preserve interrupt status
+            log.error("Thread interrupted while waiting for permits to process action events: {}", e.getMessage());
+        }
+    }
+
+    // the caller must hold a semaphore permit for the event, it is released once the event is handled
+    private void submitActionEvent(ActionEvent event) {
+        executor.submit(() -> {
+            try {
+                int count = 0;
+                while (true) {
+                    try {
+                        count += 1;
+                        handleActionEvent(event);
+                        break;
+                    } catch (OptimisticLockingFailureException e) {
+                        if (count > 9) {
+                            throw e;
+                        } else {
+                            log.warn("Retrying after OptimisticLockingFailureException caught processing {} for {}. Error: {}", event.getActionName(), event.getDid(), e.getMessage(), e);
+                            deltaFileCacheService.remove(event.getDid());
+                        }
+                    } catch (Throwable e) {
+                        StringWriter stackWriter = new StringWriter();
+                        e.printStackTrace(new PrintWriter(stackWriter));
+                        log.error("Exception processing incoming action event: \n{}\n{}", e.getMessage(), stackWriter);
+                        deltaFileCacheService.remove(event.getDid());
+                        break;
+                    }
+                }
+            } finally {
+                semaphore.release();
+            }
+        });
+    }
+
     private void enqueueActions(List<WrappedActionInput> actionInputs) throws EnqueueActionException {
         enqueueActions(actionInputs, false);
     }
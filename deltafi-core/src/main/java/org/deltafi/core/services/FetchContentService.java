@@ -21,7 +21,6 @@ package org.deltafi.core.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.deltafi.common.content.ContentStorageService;
 import org.deltafi.common.storage.s3.MissingContentException;
 import org.deltafi.common.storage.s3.ObjectStorageException;
 import org.deltafi.common.types.Content;
@@ -39,7 +38,7 @@ import java.util.List;
 public class FetchContentService {
 
     private final CoreAuditLogger auditLogger;
-    private final ContentStorageService contentStorageService;
+    private final ContentCacheService contentCacheService;
     private final DeltaFilesService deltaFilesService;
 
     public ContentResult fetchContent(ContentRequest request) throws ObjectStorageException {
@@ -59,7 +58,7 @@ public class FetchContentService {
         auditLogger.audit("viewed content for DID {}", request.did());
 
         try {
-            InputStream stream = contentStorageService.load(trimmedContent);
+            InputStream stream = contentCacheService.load(trimmedContent);
             return new ContentResult(
                     content.getName(),
                     content.getMediaType(),
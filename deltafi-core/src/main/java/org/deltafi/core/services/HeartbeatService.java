@@ -23,6 +23,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 import static org.deltafi.core.services.CoreEventQueue.DGS_QUEUE;
 
 @AllArgsConstructor
@@ -35,7 +37,7 @@ public class HeartbeatService {
 
     @Scheduled(fixedDelay = 10000)
     public void heartbeat() {
-        coreEventQueue.setHeartbeat(DGS_QUEUE + "-" + identityService.getUniqueId());
-        coreEventQueue.setHeartbeat(DGS_QUEUE);
+        coreEventQueue.setHeartbeats(List.of(DGS_QUEUE + "-" + identityService.getUniqueId(), DGS_QUEUE));
+        coreEventQueue.publishQueueShards();
     }
 }
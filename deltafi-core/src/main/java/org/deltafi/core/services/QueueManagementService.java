@@ -19,6 +19,7 @@ package org.deltafi.core.services;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.deltafi.common.queue.QueueShards;
 import org.deltafi.common.types.ActionConfiguration;
 import org.deltafi.common.types.ActionExecution;
 import org.deltafi.common.types.FlowType;
@@ -53,6 +54,9 @@ public class QueueManagementService {
     @Getter
     private final ConcurrentHashMap<String, Long> allQueues = new ConcurrentHashMap<>();
 
+    // the Valkey keys holding each queue, more than one when the queue is sharded
+    private volatile Map<String, List<String>> queueKeys = Map.of();
+
     private final AtomicReference<List<WarmQueueMetrics>> cachedWarmQueueMetrics = new AtomicReference<>(List.of());
     private volatile OffsetDateTime warmQueueMetricsCacheTime = OffsetDateTime.MIN;
 
@@ -88,17 +92,20 @@ public class QueueManagementService {
 
     @Scheduled(fixedDelayString = "${cold.queue.refresh.duration:PT2S}")
     void refreshQueues() {
-        Set<String> keys = coreEventQueue.keys();
         Set<String> actionNames = unifiedFlowService.allActionConfigurations().stream().map(ActionConfiguration::getType).collect(Collectors.toSet());
+        Map<String, List<String>> keysByQueue = coreEventQueue.keys().stream()
+                .filter(key -> actionNames.contains(QueueShards.queueName(key)))
+                .collect(Collectors.groupingBy(QueueShards::queueName));
         int maxQueueSize = maxQueueSize();
 
-        coldQueues.removeIf(q -> !keys.contains(q) || !actionNames.contains(q));
-        allQueues.keySet().removeIf(q -> !keys.contains(q) || !actionNames.contains(q));
+        coldQueues.removeIf(q -> !keysByQueue.containsKey(q));
+        allQueues.keySet().removeIf(q -> !keysByQueue.containsKey(q));
+        queueKeys = keysByQueue;
 
         Set<String> dbColdQueuedActions = new HashSet<>(deltaFileFlowRepo.distinctColdQueuedActions());
 
-        keys.stream().filter(actionNames::contains).forEach(k -> {
-            long size = coreEventQueue.size(k);
+        keysByQueue.forEach((k, shardKeys) -> {
+            long size = shardKeys.stream().mapToLong(coreEventQueue::size).sum();
             allQueues.put(k, size);
             if (coldQueues.contains(k)) {
                 // only move to normal when the backlog in the database is worked off
@@ -199,10 +206,12 @@ public class QueueManagementService {
         // Stream through each queue using cursor-based iteration
         // Only the aggregation map stays in memory, not all queue items
         for (String actionClass : allQueues.keySet()) {
-            coreEventQueue.streamQueue(actionClass, item -> {
-                WarmQueueKey key = new WarmQueueKey(actionClass, item.flowName(), item.actionName());
-                aggregation.computeIfAbsent(key, k -> new WarmQueueAggregator()).add(item.queuedAt(), item.did());
-            });
+            for (String queueKey : queueKeys.getOrDefault(actionClass, List.of(actionClass))) {
+                coreEventQueue.streamQueue(queueKey, item -> {
+                    WarmQueueKey key = new WarmQueueKey(actionClass, item.flowName(), item.actionName());
+                    aggregation.computeIfAbsent(key, k -> new WarmQueueAggregator()).add(item.queuedAt(), item.did());
+                });
+            }
         }
 
         List<WarmQueueMetrics> result = aggregation.entrySet().stream()
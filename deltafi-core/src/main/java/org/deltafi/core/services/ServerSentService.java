@@ -18,6 +18,7 @@
 package org.deltafi.core.services;
 
 import com.fasterxml.uuid.Generators;
+import io.valkey.JedisPubSub;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
@@ -31,27 +32,76 @@ import java.util.concurrent.*;
 
 import static org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue.SSE_VALKEY_CHANNEL_PREFIX;
 
+/**
+ * Pushes the latest values of the SSE channels to the UI. Publishers store each value under its channel key and
+ * publish it on the channel of the same name. This service subscribes to all SSE channels and forwards changed
+ * values to the emitters as they arrive. The stored values are read whenever the subscription is (re)established so
+ * new emitters start from the latest values and updates missed while disconnected are caught up.
+ */
 @Slf4j
 @Service
 public class ServerSentService {
-    private final Map<String, String> channelToDataMap = new HashMap<>();
+    private static final long RESUBSCRIBE_DELAY_MS = 1000L;
+
+    private final Map<String, String> channelToDataMap = new ConcurrentHashMap<>();
     private final Map<UUID, SseEmitter> emitters = new ConcurrentHashMap<>();
     private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
-    private final ScheduledExecutorService dataExecutor = Executors.newSingleThreadScheduledExecutor();
     private final ValkeyKeyedBlockingQueue valkeyService;
+    private final JedisPubSub subscriber = new SseSubscriber();
+    private final Thread subscriberThread;
+    private volatile boolean running = true;
 
     public ServerSentService(ValkeyKeyedBlockingQueue valkeyService) {
         this.valkeyService = valkeyService;
         heartbeatExecutor.scheduleWithFixedDelay(this::sendHeartbeats, 15, 15, TimeUnit.SECONDS);
-        dataExecutor.scheduleWithFixedDelay(this::sendUpdatedData, 15, 1, TimeUnit.SECONDS);
+        subscriberThread = Thread.ofPlatform().name("sse-subscriber").daemon().start(this::subscribe);
     }
 
     @PreDestroy
     public void cleanup() {
-        dataExecutor.shutdownNow();
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.punsubscribe();
+        }
+        subscriberThread.interrupt();
         heartbeatExecutor.shutdownNow();
     }
 
+    private void subscribe() {
+        while (running) {
+            try {
+                valkeyService.psubscribe(subscriber, SSE_VALKEY_CHANNEL_PREFIX + ".*");
+            } catch (Exception e) {
+                if (running) {
+                    log.error("Lost subscription to the SSE channels, resubscribing", e);
+                }
+            }
+
+            try {
+                Thread.sleep(RESUBSCRIBE_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private class SseSubscriber extends JedisPubSub {
+        @Override
+        public void onPSubscribe(String pattern, int subscribedChannels) {
+            try {
+                valkeyService.getItemsWithPrefix(SSE_VALKEY_CHANNEL_PREFIX).forEach(ServerSentService.this::onUpdate);
+            } catch (Exception e) {
+                log.error("Failed to load the latest SSE data", e);
+            }
+        }
+
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+            onUpdate(channel, message);
+        }
+    }
+
     public SseEmitter createSseEmitter() {
         UUID uuid = Generators.timeBasedEpochGenerator().generate();
         SseEmitter sseEmitter = new SseEmitter(0L); // timeout of 0 to disable timeouts
@@ -74,31 +124,19 @@ public class ServerSentService {
         return event("heartbeat", "" + System.currentTimeMillis());
     }
 
-    void sendUpdatedData() {
-        if (emitters.isEmpty()) {
+    void onUpdate(String key, String value) {
+        if (value == null || value.equals(channelToDataMap.put(key, value)) || emitters.isEmpty()) {
             return;
         }
 
         try {
-            doSendUpdatedData();
+            log.debug("Sending on channel {} to {} subscriber(s)", key, emitters.size());
+            sendToAllEmitters(event(removePrefix(key), value));
         } catch (Exception e) {
             log.error("Failed to send data to subscribers", e);
         }
     }
 
-    private void doSendUpdatedData() {
-        Map<String, String> sseData = valkeyService.getItemsWithPrefix(SSE_VALKEY_CHANNEL_PREFIX);
-        for (Map.Entry<String, String> entry : sseData.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            if (!value.equals(channelToDataMap.get(key))) {
-                channelToDataMap.put(key, value);
-                log.debug("Sending on channel {} to {} subscriber(s)", key, emitters.size());
-                sendToAllEmitters(event(removePrefix(key), value));
-            }
-        }
-    }
-
     private void sendAllData(SseEmitter sseEmitter) {
         sendData(sseEmitter, heartbeatEvent());
         channelToDataMap.entrySet().stream()
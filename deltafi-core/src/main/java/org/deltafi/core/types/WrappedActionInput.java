@@ -23,8 +23,6 @@ import lombok.EqualsAndHashCode;
 import lombok.experimental.SuperBuilder;
 import org.deltafi.common.types.ActionInput;
 
-import java.time.OffsetDateTime;
-
 @EqualsAndHashCode(callSuper = true)
 @SuperBuilder
 @Data
@@ -32,9 +30,6 @@ public class WrappedActionInput extends ActionInput {
     @JsonIgnore
     private boolean coldQueued;
 
-    @JsonIgnore
-    private OffsetDateTime actionCreated;
-
     @JsonIgnore
     private DeltaFile deltaFile;
 }
@@ -67,7 +67,7 @@ class StatsServiceTest {
         statsService.deltaFileStats();
 
         ArgumentCaptor<String> jsonCaptor = ArgumentCaptor.forClass(String.class);
-        verify(valkeyQueue).set(anyString(), jsonCaptor.capture());
+        verify(valkeyQueue).setAndPublish(anyString(), jsonCaptor.capture());
 
         String json = jsonCaptor.getValue();
         assertNotNull(json);
@@ -85,7 +85,7 @@ class StatsServiceTest {
         statsService.deltaFileStats();
 
         ArgumentCaptor<String> jsonCaptor = ArgumentCaptor.forClass(String.class);
-        verify(valkeyQueue).set(anyString(), jsonCaptor.capture());
+        verify(valkeyQueue).setAndPublish(anyString(), jsonCaptor.capture());
 
         String json = jsonCaptor.getValue();
         assertNotNull(json);
@@ -98,7 +98,7 @@ class StatsServiceTest {
 
         statsService.errorCount();
 
-        verify(valkeyQueue).set(anyString(), eq("42"));
+        verify(valkeyQueue).setAndPublish(anyString(), eq("42"));
     }
 
     @Test
@@ -107,6 +107,6 @@ class StatsServiceTest {
 
         statsService.notificationCount();
 
-        verify(valkeyQueue).set(anyString(), eq("7"));
+        verify(valkeyQueue).setAndPublish(anyString(), eq("7"));
     }
 }
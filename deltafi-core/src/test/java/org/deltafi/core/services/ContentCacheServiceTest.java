@@ -0,0 +1,118 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.core.services;
+
+import org.deltafi.common.content.ContentStorageService;
+import org.deltafi.common.content.Segment;
+import org.deltafi.common.storage.s3.ObjectStorageException;
+import org.deltafi.common.types.Content;
+import org.deltafi.core.configuration.ContentCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ContentCacheServiceTest {
+    private static final byte[] DATA = "cached content".getBytes();
+
+    @Mock
+    ContentStorageService contentStorageService;
+
+    private ContentCacheService contentCacheService;
+
+    @BeforeEach
+    void setUp() {
+        contentCacheService = new ContentCacheService(contentStorageService, new ContentCacheProperties(1024, 100));
+    }
+
+    @Test
+    void servesRepeatedLoadsFromMemory() throws ObjectStorageException, IOException {
+        Content content = content(UUID.randomUUID(), DATA.length);
+        Mockito.when(contentStorageService.load(content)).thenReturn(new ByteArrayInputStream(DATA));
+
+        assertThat(read(contentCacheService.load(content))).isEqualTo(DATA);
+        assertThat(read(contentCacheService.load(content))).isEqualTo(DATA);
+
+        Mockito.verify(contentStorageService, Mockito.times(1)).load(content);
+        assertThat(contentCacheService.getCachedBytes()).isEqualTo(DATA.length);
+    }
+
+    @Test
+    void streamsLargeContentFromStorage() throws ObjectStorageException, IOException {
+        Content content = content(UUID.randomUUID(), 101);
+        Mockito.when(contentStorageService.load(content))
+                .thenAnswer(invocation -> new ByteArrayInputStream(new byte[101]));
+
+        read(contentCacheService.load(content));
+        read(contentCacheService.load(content));
+
+        Mockito.verify(contentStorageService, Mockito.times(2)).load(content);
+        assertThat(contentCacheService.getCachedBytes()).isZero();
+    }
+
+    @Test
+    void evictsContentOfDeletedDeltaFiles() throws ObjectStorageException, IOException {
+        UUID did = UUID.randomUUID();
+        Content content = content(did, DATA.length);
+        Content other = content(UUID.randomUUID(), DATA.length);
+        Mockito.when(contentStorageService.load(Mockito.any()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(DATA));
+        read(contentCacheService.load(content));
+        read(contentCacheService.load(other));
+
+        contentCacheService.evict(List.of(did));
+        read(contentCacheService.load(content));
+        read(contentCacheService.load(other));
+
+        Mockito.verify(contentStorageService, Mockito.times(2)).load(content);
+        Mockito.verify(contentStorageService, Mockito.times(1)).load(other);
+    }
+
+    @Test
+    void disabledWithoutMaxBytes() throws ObjectStorageException, IOException {
+        contentCacheService = new ContentCacheService(contentStorageService, new ContentCacheProperties(0, 100));
+        Content content = content(UUID.randomUUID(), DATA.length);
+        Mockito.when(contentStorageService.load(content)).thenAnswer(invocation -> new ByteArrayInputStream(DATA));
+
+        read(contentCacheService.load(content));
+        read(contentCacheService.load(content));
+
+        Mockito.verify(contentStorageService, Mockito.times(2)).load(content);
+    }
+
+    private static Content content(UUID did, long size) {
+        return new Content("name", "text/plain", new Segment(UUID.randomUUID(), 0, size, did));
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
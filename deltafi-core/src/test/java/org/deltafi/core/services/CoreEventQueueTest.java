@@ -21,18 +21,27 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.SneakyThrows;
+import org.deltafi.common.queue.QueueCapability;
+import org.deltafi.common.queue.QueuePayloadCodec;
+import org.deltafi.common.queue.QueuePayloadFormat;
+import org.deltafi.common.queue.QueueShards;
+import org.deltafi.common.queue.valkey.SortedSetEntry;
 import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
 import org.deltafi.common.test.time.TestClock;
 import org.deltafi.common.types.ActionContext;
 import org.deltafi.common.types.ActionEvent;
 import org.deltafi.common.types.ActionExecution;
 import org.deltafi.common.types.ActionInput;
+import org.deltafi.core.types.WrappedActionInput;
 import io.valkey.resps.Tuple;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.*;
 
@@ -45,6 +54,9 @@ class CoreEventQueueTest {
     @Mock
     private ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
 
+    @Captor
+    private ArgumentCaptor<List<SortedSetEntry>> entriesCaptor;
+
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
 
     private static final TestClock TEST_CLOCK = new TestClock();
@@ -154,7 +166,7 @@ class CoreEventQueueTest {
 
     @Test
     void testConvertBasic() throws JsonProcessingException {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(GOOD_BASIC);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(GOOD_BASIC));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         ActionEvent actionEvent = coreEventQueue.takeResult(QUEUE_NAME);
@@ -163,7 +175,7 @@ class CoreEventQueueTest {
 
     @Test
     void testConvertUnicode() throws JsonProcessingException {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(GOOD_UNICODE);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(GOOD_UNICODE));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         ActionEvent actionEvent = coreEventQueue.takeResult(QUEUE_NAME);
@@ -172,16 +184,30 @@ class CoreEventQueueTest {
 
     @Test
     void testExtraFieldsIgnored() throws JsonProcessingException {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(EXTRA_FIELDS_IGNORED);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(EXTRA_FIELDS_IGNORED));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         ActionEvent actionEvent = coreEventQueue.takeResult(QUEUE_NAME);
         assertEquals(DID, actionEvent.getDid());
     }
 
+    @Test
+    void testTakeResults() {
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 3)).thenReturn(List.of(
+                new SortedSetEntry(DGS_QUEUE_NAME, GOOD_BASIC, OffsetDateTime.now()),
+                new SortedSetEntry(DGS_QUEUE_NAME, INVALID_DATE, OffsetDateTime.now()),
+                new SortedSetEntry(DGS_QUEUE_NAME, GOOD_UNICODE, OffsetDateTime.now())));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
+        List<ActionEvent> actionEvents = coreEventQueue.takeResults(QUEUE_NAME, 3);
+        assertEquals(2, actionEvents.size());
+        assertEquals("flowName.ActionName", actionEvents.get(0).getActionName());
+        assertEquals("āȂ.̃Є", actionEvents.get(1).getActionName());
+    }
+
     @Test
     void testWrongJsonType() {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(getActionEventsArray());
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(getActionEventsArray()));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         org.assertj.core.api.Assertions.assertThatThrownBy(
@@ -192,7 +218,7 @@ class CoreEventQueueTest {
 
     @Test
     void testInvalidConversion() {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(INVALID_DATE);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(INVALID_DATE));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         org.assertj.core.api.Assertions.assertThatThrownBy(
@@ -203,7 +229,7 @@ class CoreEventQueueTest {
 
     @Test
     void testIllegalControlChars() {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(ILLEGAL_CONTROL_CHARS);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(ILLEGAL_CONTROL_CHARS));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         org.assertj.core.api.Assertions.assertThatThrownBy(
@@ -214,7 +240,7 @@ class CoreEventQueueTest {
 
     @Test
     void testMetricsOverflow() {
-        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME)).thenReturn(METRICS_OVERFLOW);
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1)).thenReturn(entries(METRICS_OVERFLOW));
 
         CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
         org.assertj.core.api.Assertions.assertThatThrownBy(
@@ -312,11 +338,11 @@ class CoreEventQueueTest {
                 """.formatted(did2.toString(), QUEUE_NAME);
 
         Tuple tuple1 = mock(Tuple.class);
-        when(tuple1.getElement()).thenReturn(json1);
+        when(tuple1.getBinaryElement()).thenReturn(json1.getBytes(StandardCharsets.UTF_8));
         when(tuple1.getScore()).thenReturn((double) score1);
 
         Tuple tuple2 = mock(Tuple.class);
-        when(tuple2.getElement()).thenReturn(json2);
+        when(tuple2.getBinaryElement()).thenReturn(json2.getBytes(StandardCharsets.UTF_8));
         when(tuple2.getScore()).thenReturn((double) score2);
 
         doAnswer(invocation -> {
@@ -371,11 +397,11 @@ class CoreEventQueueTest {
                 """.formatted(did1.toString(), QUEUE_NAME);
 
         Tuple validTuple = mock(Tuple.class);
-        when(validTuple.getElement()).thenReturn(validJson);
+        when(validTuple.getBinaryElement()).thenReturn(validJson.getBytes(StandardCharsets.UTF_8));
         when(validTuple.getScore()).thenReturn((double) score1);
 
         Tuple malformedTuple = mock(Tuple.class);
-        when(malformedTuple.getElement()).thenReturn("not valid json {{{");
+        when(malformedTuple.getBinaryElement()).thenReturn("not valid json {{{".getBytes(StandardCharsets.UTF_8));
 
         doAnswer(invocation -> {
             var consumer = invocation.<java.util.function.Consumer<Tuple>>getArgument(2);
@@ -393,6 +419,126 @@ class CoreEventQueueTest {
         assertEquals("flow1", result.get(0).flowName());
     }
 
+    @Test
+    @SneakyThrows
+    void testTakeSmileResult() {
+        ActionEvent event = CoreEventQueue.convertEvent(GOOD_BASIC);
+        byte[] smile = QueuePayloadCodec.encode(event, QueuePayloadFormat.SMILE);
+        assertTrue(QueuePayloadCodec.isSmile(smile));
+        when(valkeyKeyedBlockingQueue.take(DGS_QUEUE_NAME, 1))
+                .thenReturn(List.of(new SortedSetEntry(DGS_QUEUE_NAME, smile, OffsetDateTime.now())));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
+        ActionEvent actionEvent = coreEventQueue.takeResult(QUEUE_NAME);
+        assertEquals(DID, actionEvent.getDid());
+        assertEquals("flowName.ActionName", actionEvent.getActionName());
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutActionsNegotiatesFormat() {
+        when(valkeyKeyedBlockingQueue.getConsumerCapabilities())
+                .thenReturn(Map.of("smileQueue", List.of(Set.of(QueueCapability.SMILE))));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK,
+                () -> QueuePayloadFormat.SMILE, () -> 0);
+        coreEventQueue.putActions(List.of(wrappedActionInput("smileQueue"), wrappedActionInput("jsonQueue")), false);
+
+        verify(valkeyKeyedBlockingQueue).put(entriesCaptor.capture());
+        List<SortedSetEntry> entries = entriesCaptor.getValue();
+        assertTrue(QueuePayloadCodec.isSmile(entries.get(0).getValue()));
+        assertFalse(QueuePayloadCodec.isSmile(entries.get(1).getValue()));
+        assertEquals("smileQueue", QueuePayloadCodec.decode(entries.get(0).getValue(), ActionInput.class).getQueueName());
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutActionsNegotiatesCompression() {
+        when(valkeyKeyedBlockingQueue.getConsumerCapabilities())
+                .thenReturn(Map.of("lz4Queue", List.of(Set.of(QueueCapability.LZ4))));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK,
+                () -> QueuePayloadFormat.JSON, () -> 64);
+        WrappedActionInput large = wrappedActionInput("lz4Queue");
+        large.getActionContext().setActionName("action".repeat(100));
+        WrappedActionInput uncompressed = wrappedActionInput("jsonQueue");
+        uncompressed.getActionContext().setActionName("action".repeat(100));
+        coreEventQueue.putActions(List.of(large, uncompressed), false);
+
+        verify(valkeyKeyedBlockingQueue).put(entriesCaptor.capture());
+        List<SortedSetEntry> entries = entriesCaptor.getValue();
+        assertTrue(QueuePayloadCodec.isCompressed(entries.get(0).getValue()));
+        assertFalse(QueuePayloadCodec.isCompressed(entries.get(1).getValue()));
+        assertEquals("lz4Queue", QueuePayloadCodec.decode(entries.get(0).getValue(), ActionInput.class).getQueueName());
+    }
+
+    @Test
+    @SneakyThrows
+    void testQueueHasTaskingForActionLooksUpIndex() {
+        when(valkeyKeyedBlockingQueue.containsIndexed(eq("queue"), anyString()))
+                .thenAnswer(invocation -> "action:action".equals(invocation.getArgument(1)));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
+        assertTrue(coreEventQueue.queueHasTaskingForAction(wrappedActionInput("queue")));
+
+        WrappedActionInput other = wrappedActionInput("queue");
+        other.getActionContext().setActionName("other");
+        assertFalse(coreEventQueue.queueHasTaskingForAction(other));
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutActionsIndexesAndSkipsDuplicates() {
+        UUID queuedFlowId = UUID.randomUUID();
+        when(valkeyKeyedBlockingQueue.containsIndexed(eq("queue"), anyString()))
+                .thenAnswer(invocation -> ("flow:" + queuedFlowId).equals(invocation.getArgument(1)));
+
+        WrappedActionInput duplicate = wrappedActionInput("queue");
+        duplicate.getActionContext().setFlowId(queuedFlowId);
+        UUID newFlowId = UUID.randomUUID();
+        WrappedActionInput unique = wrappedActionInput("queue");
+        unique.getActionContext().setFlowId(newFlowId);
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK);
+        coreEventQueue.putActions(List.of(duplicate, unique), true);
+
+        verify(valkeyKeyedBlockingQueue).put(entriesCaptor.capture());
+        List<SortedSetEntry> entries = entriesCaptor.getValue();
+        assertEquals(1, entries.size());
+        assertEquals(List.of("flow:" + newFlowId, "action:action"), entries.getFirst().getIndexKeys());
+    }
+
+    @Test
+    @SneakyThrows
+    void testPutActionsShardsCapableQueues() {
+        when(valkeyKeyedBlockingQueue.getConsumerCapabilities())
+                .thenReturn(Map.of("shardedQueue", List.of(Set.of(QueueCapability.SHARDS))));
+
+        CoreEventQueue coreEventQueue = new CoreEventQueue(valkeyKeyedBlockingQueue, TEST_CLOCK,
+                () -> QueuePayloadFormat.JSON, () -> 0, () -> Map.of("shardedQueue", 4, "plainQueue", 4));
+        coreEventQueue.putActions(List.of(wrappedActionInput("shardedQueue"), wrappedActionInput("plainQueue")), false);
+
+        verify(valkeyKeyedBlockingQueue).put(entriesCaptor.capture());
+        List<SortedSetEntry> entries = entriesCaptor.getValue();
+        assertEquals(QueueShards.shardKey("shardedQueue", QueueShards.shardFor(DID, 4)), entries.get(0).getKey());
+        assertEquals("plainQueue", entries.get(1).getKey());
+
+        coreEventQueue.publishQueueShards();
+        verify(valkeyKeyedBlockingQueue).setQueueShards(Map.of("shardedQueue", 4, "plainQueue", 4));
+    }
+
+    private WrappedActionInput wrappedActionInput(String queueName) {
+        return WrappedActionInput.builder()
+                .queueName(queueName)
+                .actionContext(ActionContext.builder().did(DID).actionName("action").build())
+                .actionCreated(OffsetDateTime.now())
+                .build();
+    }
+
+    private List<SortedSetEntry> entries(String value) {
+        return List.of(new SortedSetEntry(DGS_QUEUE_NAME, value, OffsetDateTime.now()));
+    }
+
     private String getActionEventsArray() {
         return "[\"not an object\"]";
     }
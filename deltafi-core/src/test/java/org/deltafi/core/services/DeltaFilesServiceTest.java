@@ -86,6 +86,7 @@ class DeltaFilesServiceTest {
     private final FullFlowExemplarService fullFlowExemplarService;
     private final PluginService pluginService;
     private final FlowCacheService flowCacheService;
+    private final ContentCacheService contentCacheService;
 
     @Captor
     ArgumentCaptor<DeltaFile> deltaFileCaptor;
@@ -115,7 +116,7 @@ class DeltaFilesServiceTest {
                           @Mock Environment environment, @Mock IdentityService identityService,
                           @Mock ParameterResolver parameterResolver, @Mock PluginService pluginService,
                           @Mock FlowCacheService flowCacheService, @Mock ValkeyKeyedBlockingQueue valkeyQueue,
-                          @Mock ErrorCountService errorCountService) {
+                          @Mock ErrorCountService errorCountService, @Mock ContentCacheService contentCacheService) {
         this.timedDataSourceService = timedDataSourceService;
         this.transformFlowService = transformFlowService;
         this.dataSinkService = dataSinkService;
@@ -137,11 +138,13 @@ class DeltaFilesServiceTest {
         this.fullFlowExemplarService = new FullFlowExemplarService(flowDefinitionService, utilService);
         this.pluginService = pluginService;
         this.flowCacheService = flowCacheService;
+        this.contentCacheService = contentCacheService;
         deltaFilesService = new DeltaFilesService(testClock, transformFlowService, dataSinkService, mockDeltaFiPropertiesService,
                 stateMachine, annotationRepo, deltaFileRepo, deltaFileFlowRepo, coreEventQueue, contentStorageService, resumePolicyService,
                 metricService, analyticEventService, new DidMutexService(), deltaFileCacheService, restDataSourceService, timedDataSourceService,
                 onErrorDataSourceService, queueManagementService, queuedAnnotationRepo, environment, new TestUUIDGenerator(), identityService,
-                flowDefinitionService, parameterResolver, Optional.empty(), pluginService, flowCacheService, valkeyQueue, errorCountService);
+                flowDefinitionService, parameterResolver, Optional.empty(), pluginService, flowCacheService, valkeyQueue, errorCountService,
+                contentCacheService);
     }
 
     @AfterEach
@@ -443,6 +446,7 @@ class DeltaFilesServiceTest {
         assertEquals(List.of(content1.getSegments().getFirst().objectName(), content2.getSegments().getFirst().objectName()), stringListCaptor.getValue());
         verify(deltaFileRepo).setContentDeletedByDidIn(uuidListCaptor.capture(), any(), eq("policy"));
         assertEquals(List.of(deltaFile1.getDid(), deltaFile2.getDid()), uuidListCaptor.getValue());
+        verify(contentCacheService).evict(List.of(did1, did2));
         verify(metricService).increment(new Metric(DeltaFiConstants.DELETED_FILES, 2).addTag("policy", "policy"));
         verify(metricService).increment(new Metric(DeltaFiConstants.DELETED_BYTES, 0).addTag("policy", "policy"));
     }
@@ -550,6 +554,7 @@ class DeltaFilesServiceTest {
 
         verify(deltaFileRepo).deleteById(did);
         verify(contentStorageService).delete(content);
+        verify(contentCacheService).evict(List.of(did));
     }
 
     @Test
@@ -0,0 +1,119 @@
+/*
+ *    DeltaFi - Data transformation and enrichment platform
+ *
+ *    Copyright 2021-2025 DeltaFi Contributors <deltafi@deltafi.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.deltafi.core.services;
+
+import io.valkey.JedisPubSub;
+import org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.deltafi.common.queue.valkey.ValkeyKeyedBlockingQueue.SSE_VALKEY_CHANNEL_PREFIX;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ServerSentServiceTest {
+    private static final String PATTERN = SSE_VALKEY_CHANNEL_PREFIX + ".*";
+    private static final String CHANNEL = SSE_VALKEY_CHANNEL_PREFIX + ".queueMetrics";
+
+    @Mock
+    private ValkeyKeyedBlockingQueue valkeyKeyedBlockingQueue;
+
+    private final CountDownLatch emitterCreated = new CountDownLatch(1);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private ServerSentService serverSentService;
+
+    @AfterEach
+    void tearDown() {
+        done.countDown();
+        if (serverSentService != null) {
+            serverSentService.cleanup();
+        }
+    }
+
+    @Test
+    void forwardsPublishedValuesToEmitters() throws Exception {
+        when(valkeyKeyedBlockingQueue.getItemsWithPrefix(SSE_VALKEY_CHANNEL_PREFIX)).thenReturn(Map.of());
+        doAnswer(invocation -> {
+            JedisPubSub subscriber = invocation.getArgument(0);
+            subscriber.onPSubscribe(PATTERN, 1);
+            emitterCreated.await(5, TimeUnit.SECONDS);
+            subscriber.onPMessage(PATTERN, CHANNEL, "published");
+            done.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(valkeyKeyedBlockingQueue).psubscribe(any(), eq(PATTERN));
+
+        try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+            serverSentService = new ServerSentService(valkeyKeyedBlockingQueue);
+            serverSentService.createSseEmitter();
+            emitterCreated.countDown();
+
+            verify(emitters.constructed().getFirst(), timeout(5000)).send(event("queueMetrics", "published"));
+        }
+    }
+
+    @Test
+    void reloadsLatestValuesAfterResubscribing() throws Exception {
+        when(valkeyKeyedBlockingQueue.getItemsWithPrefix(SSE_VALKEY_CHANNEL_PREFIX))
+                .thenReturn(Map.of(CHANNEL, "before"))
+                .thenReturn(Map.of(CHANNEL, "missed while disconnected"));
+        AtomicInteger subscriptions = new AtomicInteger();
+        doAnswer(invocation -> {
+            JedisPubSub subscriber = invocation.getArgument(0);
+            if (subscriptions.incrementAndGet() == 1) {
+                emitterCreated.await(5, TimeUnit.SECONDS);
+                subscriber.onPSubscribe(PATTERN, 1);
+                throw new IllegalStateException("connection lost");
+            }
+            subscriber.onPSubscribe(PATTERN, 1);
+            done.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(valkeyKeyedBlockingQueue).psubscribe(any(), eq(PATTERN));
+
+        try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+            serverSentService = new ServerSentService(valkeyKeyedBlockingQueue);
+            serverSentService.createSseEmitter();
+            emitterCreated.countDown();
+
+            SseEmitter emitter = emitters.constructed().getFirst();
+            verify(emitter, timeout(5000)).send(event("queueMetrics", "before"));
+            verify(emitter, timeout(5000)).send(event("queueMetrics", "missed while disconnected"));
+            verify(valkeyKeyedBlockingQueue, times(2)).getItemsWithPrefix(SSE_VALKEY_CHANNEL_PREFIX);
+        }
+    }
+
+    private static SseEventBuilder event(String name, String data) {
+        return argThat(event -> {
+            String text = event.build().stream()
+                    .map(dataWithMediaType -> dataWithMediaType.getData().toString())
+                    .collect(Collectors.joining());
+            return text.contains("event:" + name + "\n") && text.contains("data:" + data + "\n");
+        });
+    }
+}
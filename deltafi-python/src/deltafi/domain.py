@@ -211,18 +211,13 @@ class Content:
                     continue
                 else:
                     # chop off the front of this segment
-                    segment = Segment(uuid=segment.uuid,
-                                      offset=segment.offset + offset_remaining,
-                                      size=segment.size - offset_remaining,
-                                      did=segment.did)
+                    segment = segment._replace(offset=segment.offset + offset_remaining,
+                                               size=segment.size - offset_remaining)
                     offset_remaining = 0
 
             if size_remaining < segment.size:
                 # chop off the back of this segment
-                segment = Segment(uuid=segment.uuid,
-                                  offset=segment.offset,
-                                  size=size_remaining,
-                                  did=segment.did)
+                segment = segment._replace(size=size_remaining)
             size_remaining -= segment.size
             new_segments.append(segment)
             if size_remaining == 0:
@@ -17,6 +17,7 @@
 #
 
 import io
+import struct
 import uuid
 from typing import List, NamedTuple
 from urllib.parse import urlparse
@@ -30,14 +31,18 @@ class Segment(NamedTuple):
     offset: int
     size: int
     did: str
+    compressed: bool = False
 
     def json(self):
-        return {
+        segment = {
             'uuid': str(self.uuid),
             'offset': self.offset,
             'size': self.size,
             'did': self.did
         }
+        if self.compressed:
+            segment['compressed'] = True
+        return segment
 
     @classmethod
     def from_dict(cls, segment: dict):
@@ -45,15 +50,163 @@ class Segment(NamedTuple):
         offset = segment['offset']
         size = segment['size']
         did = segment['did']
+        compressed = segment.get('compressed', False)
         return Segment(uuid=s_uuid,
                        offset=offset,
                        size=size,
-                       did=did)
+                       did=did,
+                       compressed=compressed)
 
     def id(self):
         return f"{self.did[:3]}/{self.did}/{self.uuid}"
 
 
+try:
+    import lz4.block as _lz4_block
+except ImportError:
+    _lz4_block = None
+
+BLOCK_SIZE = 256 * 1024
+# bytes read from the end of an object to find its index, larger indexes take a second read
+INDEX_READ_SIZE = 64 * 1024
+
+_BLOCK_HEADER = struct.Struct('>BII')
+_FOOTER = struct.Struct('>IIqI')
+_MAGIC = 0x44465a31
+_RAW_BLOCK = 0
+_LZ4_BLOCK = 1
+
+
+class CompressedIndex(NamedTuple):
+    """The object offsets of the blocks of a compressed object"""
+    block_size: int
+    block_offsets: List[int]
+    index_offset: int
+    uncompressed_size: int
+
+    def block_end(self, block: int):
+        return self.block_offsets[block + 1] if block + 1 < len(self.block_offsets) else self.index_offset
+
+
+def compressed_index_size(tail: bytes):
+    """Get the number of bytes at the end of a compressed object holding its index and footer"""
+    _, block_count, _ = _read_footer(tail)
+    return block_count * 8 + _FOOTER.size
+
+
+def read_compressed_index(tail: bytes, object_size: int):
+    """Read the index of a compressed object from bytes read from the end of the object"""
+    block_size, block_count, uncompressed_size = _read_footer(tail)
+    index_size = block_count * 8 + _FOOTER.size
+    if block_size <= 0 or block_count <= 0 or index_size > len(tail):
+        raise ValueError("Invalid compressed segment index")
+    block_offsets = list(struct.unpack_from(f'>{block_count}q', tail, len(tail) - index_size))
+    return CompressedIndex(block_size, block_offsets, object_size - index_size, uncompressed_size)
+
+
+def _read_footer(tail: bytes):
+    if len(tail) < _FOOTER.size:
+        raise ValueError("Compressed segment is too short")
+    block_size, block_count, uncompressed_size, magic = _FOOTER.unpack_from(tail, len(tail) - _FOOTER.size)
+    if magic != _MAGIC:
+        raise ValueError("Compressed segment footer not found")
+    return block_size, block_count, uncompressed_size
+
+
+def decompress_segment(data: bytes, offset: int, size: int):
+    """Read a range of uncompressed bytes from an object written by the Java ContentStorageService with compression
+    enabled. The object holds independently compressed LZ4 blocks, each preceded by its type, uncompressed length and
+    stored length, followed by an index that is not needed when reading from the start."""
+    return decompress_blocks(io.BytesIO(data), offset, size)
+
+
+def decompress_blocks(stream, offset: int, size: int):
+    """Read a range of uncompressed bytes from a stream of compressed blocks that starts at the beginning of a block.
+    Whole blocks before the range are skipped without being decompressed, and nothing is read from the stream past
+    the block holding the end of the range."""
+    result = bytearray()
+    while len(result) < size:
+        header = _read_exactly(stream, _BLOCK_HEADER.size)
+        block_type, uncompressed_length, stored_length = _BLOCK_HEADER.unpack(header)
+        stored = _read_exactly(stream, stored_length)
+        if offset >= uncompressed_length:
+            offset -= uncompressed_length
+            continue
+
+        if block_type == _RAW_BLOCK:
+            block = stored
+        elif block_type == _LZ4_BLOCK:
+            block = lz4_block_decompress(stored, uncompressed_length)
+        else:
+            raise ValueError(f"Invalid compressed segment block type {block_type}")
+        result += block[offset:offset + size - len(result)]
+        offset = 0
+    return bytes(result)
+
+
+def _read_exactly(stream, length: int):
+    data = bytearray()
+    while len(data) < length:
+        chunk = stream.read(length - len(data))
+        if not chunk:
+            raise ValueError("Compressed segment ended before the requested range")
+        data += chunk
+    return bytes(data)
+
+
+def lz4_block_decompress(source: bytes, uncompressed_length: int):
+    """Decompress an LZ4 block with the lz4 package when it is installed, or with the much slower pure-Python decoder
+    otherwise"""
+    if _lz4_block is not None:
+        return _lz4_block.decompress(source, uncompressed_size=uncompressed_length)
+    return _lz4_block_decompress(source, uncompressed_length)
+
+
+def _lz4_block_decompress(source: bytes, uncompressed_length: int):
+    result = bytearray()
+    position = 0
+    while position < len(source):
+        token = source[position]
+        position += 1
+
+        literal_length = token >> 4
+        if literal_length == 15:
+            while True:
+                extra = source[position]
+                position += 1
+                literal_length += extra
+                if extra != 255:
+                    break
+        result += source[position:position + literal_length]
+        position += literal_length
+        if position >= len(source):
+            break
+
+        match_offset = source[position] | (source[position + 1] << 8)
+        position += 2
+        match_length = token & 0x0F
+        if match_length == 15:
+            while True:
+                extra = source[position]
+                position += 1
+                match_length += extra
+                if extra != 255:
+                    break
+        match_length += 4
+
+        start = len(result) - match_offset
+        if match_offset >= match_length:
+            result += result[start:start + match_length]
+        else:
+            # the match overlaps the bytes it produces, copy one byte at a time
+            for i in range(match_length):
+                result.append(result[start + i])
+
+    if len(result) != uncompressed_length:
+        raise ValueError("Compressed segment block has the wrong length")
+    return result
+
+
 class ContentService:
     def __init__(self, url, access_key, secret_key, bucket_name):
         parsed = urlparse(url)
@@ -70,8 +223,53 @@ class ContentService:
             raise RuntimeError(f"Minio bucket {self.bucket_name} not found")
 
     def get_bytes(self, segments: List[Segment]):
-        return b"".join([self.minio_client.get_object(self.bucket_name, segment.id(), segment.offset,
-                                                      segment.size).read() for segment in segments])
+        return b"".join([self.get_segment_bytes(segment) for segment in segments])
+
+    def get_segment_bytes(self, segment: Segment):
+        if segment.compressed:
+            return self._get_compressed_segment_bytes(segment)
+        return self.minio_client.get_object(self.bucket_name, segment.id(), segment.offset, segment.size).read()
+
+    def _get_compressed_segment_bytes(self, segment: Segment):
+        object_name = segment.id()
+        if segment.offset < BLOCK_SIZE:
+            # the range starts in the first block, stream from the start of the object without fetching its size or
+            # index, reading stops once the segment has been decompressed
+            response = self.minio_client.get_object(self.bucket_name, object_name)
+            return self._decompress_response(response, segment.offset, segment.size)
+
+        object_size = self.minio_client.stat_object(self.bucket_name, object_name).size
+        tail = self._read_range(object_name, object_size, min(object_size, INDEX_READ_SIZE))
+        index_size = compressed_index_size(tail)
+        if index_size > len(tail):
+            tail = self._read_range(object_name, object_size, index_size)
+        index = read_compressed_index(tail, object_size)
+
+        first_block = segment.offset // index.block_size
+        last_block = (segment.offset + segment.size - 1) // index.block_size
+        if last_block >= len(index.block_offsets):
+            raise ValueError(f"Segment {object_name} extends past the end of the compressed object")
+
+        start = index.block_offsets[first_block]
+        response = self.minio_client.get_object(self.bucket_name, object_name, start,
+                                                index.block_end(last_block) - start)
+        return self._decompress_response(response, segment.offset - first_block * index.block_size, segment.size)
+
+    def _read_range(self, object_name: str, object_size: int, length: int):
+        response = self.minio_client.get_object(self.bucket_name, object_name, object_size - length, length)
+        try:
+            return response.read()
+        finally:
+            response.close()
+            response.release_conn()
+
+    @staticmethod
+    def _decompress_response(response, offset: int, size: int):
+        try:
+            return decompress_blocks(response, offset, size)
+        finally:
+            response.close()
+            response.release_conn()
 
     def get_str(self, segments: List[Segment]):
         return self.get_bytes(segments).decode('utf-8')
@@ -17,16 +17,26 @@
 #
 
 import io
+import struct
 
 import minio
 import pytest
-from deltafi.storage import Segment, ContentService
-from mockito import when, mock, unstub, verifyStubbedInvocationsAreUsed, ANY
+from deltafi import storage
+from deltafi.storage import Segment, ContentService, decompress_segment, BLOCK_SIZE
+from mockito import when, mock, unstub, verify, verifyStubbedInvocationsAreUsed, ANY
 
 BUCKET = 'storage'
 SEG_1_DATA = "one"
 SEG_2_DATA = "twotwo"
 TEST_DID = "123did"
+COMPRESSED_OBJECT = "123/123did/seg1"
+# written by the Java SegmentCompression.compress from java_fixture_plaintext()
+JAVA_FIXTURE = "test/data/compressed_segment.bin"
+
+
+class FakeResponse(io.BytesIO):
+    def release_conn(self):
+        pass
 
 
 def make_segment(segment_id, data):
@@ -111,3 +121,117 @@ def test_delete_all():
     service.delete_all(make_segments())
 
     verifyStubbedInvocationsAreUsed(minio_mock)
+
+
+def compressed_object():
+    # "abcd" as literals, an 8 byte match 4 bytes back, then "x" as the final literal
+    lz4 = bytes([0x44]) + b"abcd" + bytes([0x04, 0x00, 0x10]) + b"x"
+    raw = b"raw block"
+    return (struct.pack('>BII', 1, 13, len(lz4)) + lz4 +
+            struct.pack('>BII', 0, len(raw), len(raw)) + raw +
+            b"index and footer")
+
+
+def test_decompress_segment_range():
+    assert decompress_segment(compressed_object(), 0, 22) == b"abcdabcdabcdxraw block"
+    assert decompress_segment(compressed_object(), 10, 6) == b"cdxraw"
+    assert decompress_segment(compressed_object(), 13, 3) == b"raw"
+
+
+def test_get_compressed_str():
+    unstub()
+
+    minio_mock = mock(minio.Minio)
+    when(minio_mock).bucket_exists(...).thenReturn(True)
+    when(minio_mock).get_object(BUCKET, COMPRESSED_OBJECT).thenReturn(FakeResponse(compressed_object()))
+    when(minio).Minio(...).thenReturn(minio_mock)
+    service = faux_content_service()
+
+    segment = Segment(uuid="seg1", offset=8, size=8, did=TEST_DID, compressed=True)
+    content = service.get_str([segment])
+    verifyStubbedInvocationsAreUsed(minio_mock)
+
+    assert content == "abcdxraw"
+
+
+def test_segment_json_keeps_compressed_flag():
+    segment = Segment.from_dict({'uuid': 'seg1', 'offset': 0, 'size': 10, 'did': TEST_DID, 'compressed': True})
+    assert segment.compressed
+    assert segment.json()['compressed']
+    assert 'compressed' not in make_segment("seg1", SEG_1_DATA).json()
+
+
+def java_fixture_plaintext():
+    """Two blocks of repetitive text compressed with LZ4 followed by a short block of pseudo-random bytes that is
+    stored raw"""
+    text = bytearray()
+    i = 0
+    while len(text) < BLOCK_SIZE * 2:
+        text += f"{i % 100:02d} the quick brown fox jumps over the lazy dog\n".encode()
+        i += 1
+    del text[BLOCK_SIZE * 2:]
+    x = 1
+    for _ in range(1000):
+        x = (x * 1103515245 + 12345) & 0x7fffffff
+        text.append((x >> 16) & 0xff)
+    return bytes(text)
+
+
+def java_fixture():
+    with open(JAVA_FIXTURE, 'rb') as f:
+        return f.read()
+
+
+@pytest.mark.parametrize("lz4_binding", [True, False])
+def test_decompress_java_fixture(monkeypatch, lz4_binding):
+    if lz4_binding:
+        pytest.importorskip("lz4.block")
+    else:
+        monkeypatch.setattr(storage, '_lz4_block', None)
+
+    plaintext = java_fixture_plaintext()
+    assert decompress_segment(java_fixture(), 0, len(plaintext)) == plaintext
+    assert decompress_segment(java_fixture(), BLOCK_SIZE * 2 - 5, 10) == plaintext[BLOCK_SIZE * 2 - 5:BLOCK_SIZE * 2 + 5]
+
+
+def mock_compressed_object_service(data, requested_ranges):
+    def get_object(bucket, object_name, offset=0, length=0):
+        requested_ranges.append((offset, length))
+        return FakeResponse(data[offset:offset + length] if length else data[offset:])
+
+    minio_mock = mock(minio.Minio)
+    when(minio_mock).bucket_exists(...).thenReturn(True)
+    when(minio_mock).stat_object(BUCKET, COMPRESSED_OBJECT).thenReturn(mock({'size': len(data)}))
+    when(minio_mock).get_object(BUCKET, COMPRESSED_OBJECT, ...).thenAnswer(get_object)
+    when(minio).Minio(...).thenReturn(minio_mock)
+    return minio_mock, faux_content_service()
+
+
+def test_get_compressed_range_reads_index_and_covering_blocks():
+    unstub()
+    data = java_fixture()
+    plaintext = java_fixture_plaintext()
+    requested_ranges = []
+    minio_mock, service = mock_compressed_object_service(data, requested_ranges)
+
+    offset = BLOCK_SIZE + 100
+    segment = Segment(uuid="seg1", offset=offset, size=BLOCK_SIZE, did=TEST_DID, compressed=True)
+    assert service.get_segment_bytes(segment) == plaintext[offset:offset + BLOCK_SIZE]
+
+    tail = data[requested_ranges[0][0]:]
+    index = storage.read_compressed_index(tail, len(data))
+    assert requested_ranges == [(0, len(data)),
+                                (index.block_offsets[1], index.index_offset - index.block_offsets[1])]
+
+
+def test_get_compressed_first_block_skips_the_index():
+    unstub()
+    plaintext = java_fixture_plaintext()
+    requested_ranges = []
+    minio_mock, service = mock_compressed_object_service(java_fixture(), requested_ranges)
+
+    segment = Segment(uuid="seg1", offset=10, size=100, did=TEST_DID, compressed=True)
+    assert service.get_segment_bytes(segment) == plaintext[10:110]
+
+    assert requested_ranges == [(0, 0)]
+    verify(minio_mock, times=0).stat_object(...)
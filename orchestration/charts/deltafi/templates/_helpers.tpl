@@ -153,6 +153,8 @@ initContainers:
   value: {{ .Values.deltafi.storage.url | default "http://deltafi-s3proxy:9000" }}
 - name: MINIO_PARTSIZE
   value: "5242880"
+- name: MINIO_PUTOBJECTSCONCURRENCY
+  value: {{ .Values.deltafi.storage.putObjectsConcurrency | default 1 | quote }}
 - name: REDIS_URL
   value: http://deltafi-valkey-master:6379
 - name: REDIS_HOST
@@ -597,6 +597,7 @@ func (o *ComposeOrchestrator) writeCommonEnv(path string) error {
 		"LOCAL_STORAGE_CONTENT":              localStorage,
 		"METRICS_PERIOD_SECONDS":             "10",
 		"MINIO_PARTSIZE":                     "5242880",
+		"MINIO_PUTOBJECTSCONCURRENCY":        o.getValueOr(values, "deltafi.storage.putObjectsConcurrency", "1"),
 		"MINIO_URL":                          o.getValueOr(values, "deltafi.storage.url", "http://deltafi-s3proxy:9000"),
 		"NODE_NAME":                          hostname,
 		"ORCHESTRATION_DIR":                  o.orchestrationPath,
@@ -616,6 +617,11 @@ func (o *ComposeOrchestrator) writeCommonEnv(path string) error {
 		"VALKEY_URL":                         "http://deltafi-valkey:6379",
 	}
 
+	// Java containers mount ${DATA_DIR}/minio here and read and write the local object storage files directly
+	if localStorage == "true" && o.getValueOr(values, "deltafi.storage.filesystem.enabled", "true") == "true" {
+		envVars["STORAGE_FILESYSTEM_PATH"] = "/data/deltafi/minio"
+	}
+
 	return writeEnvFile(path, envVars)
 }
 